@@ -0,0 +1,73 @@
+#!/usr/bin/env bash
+# Starts the backend with an application class-data-sharing archive, which cuts time-to-ready
+# after a restart. The first start after the jar or the JDK changes unpacks the jar and makes a
+# training run that stops as soon as the application context is up (spring.context.exit=onRefresh),
+# recording every class loaded on the way; later starts map those classes instead of loading them.
+#
+# Run it from the directory holding .env, with the usual arguments:
+#   backend/run-with-cds.sh --server.port=8080
+#
+# Environment:
+#   JAVA        java launcher to use (java on the PATH)
+#   APP_JAR     runnable jar (target/ai-debugger-backend-*-exec.jar next to this script)
+#   CDS_DIR     where the unpacked jar and archive are kept (target/cds next to this script)
+#   JAVA_OPTS   extra JVM options for the real start
+set -euo pipefail
+
+HERE="$(cd "$(dirname "$0")" && pwd)"
+JAVA="${JAVA:-java}"
+APP_JAR="${APP_JAR:-$(ls "$HERE"/target/ai-debugger-backend-*-exec.jar 2>/dev/null | head -n 1)}"
+CDS_DIR="${CDS_DIR:-$HERE/target/cds}"
+
+if [ -z "$APP_JAR" ] || [ ! -f "$APP_JAR" ]; then
+    echo "No runnable jar found; build it with: mvn -f $HERE/pom.xml package" >&2
+    exit 1
+fi
+
+JDK_HOME="$("$JAVA" -XshowSettings:properties -version 2>&1 | sed -n 's/^ *java\.home = //p')"
+JAR_TOOL="$JDK_HOME/bin/jar"
+if [ ! -x "$JAR_TOOL" ]; then
+    echo "No jar tool in $JDK_HOME (a JRE?); starting without an application archive" >&2
+    exec "$JAVA" ${JAVA_OPTS:-} -jar "$APP_JAR" "$@"
+fi
+
+# one archive per jar build and JDK; the module image changes when the JDK is updated in place
+KEY="$( { sha256sum < "$APP_JAR"; "$JAVA" -version 2>&1; echo "$JDK_HOME"; stat -c '%s %Y' "$JDK_HOME/lib/modules" 2>/dev/null || true; } \
+    | sha256sum | cut -c1-16)"
+APP_DIR="$CDS_DIR/$KEY"
+
+if [ ! -f "$APP_DIR/app.jsa" ]; then
+    mkdir -p "$CDS_DIR"
+    # archives of other jars or JDKs
+    find "$CDS_DIR" -mindepth 1 -maxdepth 1 -type d -regex '.*/[0-9a-f]\{16\}' ! -name "$KEY" -exec rm -rf {} +
+    rm -rf "$APP_DIR"
+    mkdir -p "$APP_DIR/unpacked"
+    (cd "$APP_DIR/unpacked" && "$JAR_TOOL" xf "$APP_JAR")
+    # CDS only archives classes from jars, not directories
+    (cd "$APP_DIR/unpacked/BOOT-INF/classes" && "$JAR_TOOL" cf "$APP_DIR/app.jar" .)
+    { echo "$APP_DIR/app.jar"; sed -n 's/^- "\(.*\)"$/\1/p' "$APP_DIR/unpacked/BOOT-INF/classpath.idx" | sed "s#^#$APP_DIR/unpacked/#"; } \
+        | paste -sd: > "$APP_DIR/classpath"
+    sed -n 's/^Start-Class: *\([^[:space:]]*\).*$/\1/p' "$APP_DIR/unpacked/META-INF/MANIFEST.MF" > "$APP_DIR/main-class"
+
+    # same arguments, but on a free port so it can run next to a live instance
+    TRAIN_ARGS=()
+    for arg in "$@"; do
+        case "$arg" in --server.port=*) ;; *) TRAIN_ARGS+=("$arg") ;; esac
+    done
+    echo "Recording the application class data sharing archive (one-time, see $APP_DIR/training.log)" >&2
+    if "$JAVA" -XX:ArchiveClassesAtExit="$APP_DIR/app.jsa.tmp" -Xlog:cds*=off -Dspring.context.exit=onRefresh \
+        -cp "$(cat "$APP_DIR/classpath")" "$(cat "$APP_DIR/main-class")" "${TRAIN_ARGS[@]}" --server.port=0 \
+        > "$APP_DIR/training.log" 2>&1 && [ -f "$APP_DIR/app.jsa.tmp" ]; then
+        mv "$APP_DIR/app.jsa.tmp" "$APP_DIR/app.jsa"
+    else
+        # an archive of a failed start would not cover the classes a real start loads
+        rm -f "$APP_DIR/app.jsa.tmp"
+        echo "Training run failed; starting without an application archive" >&2
+    fi
+fi
+
+SHARE_OPTS=()
+if [ -f "$APP_DIR/app.jsa" ]; then
+    SHARE_OPTS=(-XX:SharedArchiveFile="$APP_DIR/app.jsa" -Xshare:auto -Xlog:cds*=off)
+fi
+exec "$JAVA" ${JAVA_OPTS:-} "${SHARE_OPTS[@]}" -cp "$(cat "$APP_DIR/classpath")" "$(cat "$APP_DIR/main-class")" "$@"
@@ -1,15 +1,19 @@
 package com.aidebugger.backend;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 import io.github.cdimascio.dotenv.Dotenv;
-import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+import java.util.Map;
 
 @SpringBootApplication
 public class AiDebuggerApplication {
 
+    private static final Logger logger = LoggerFactory.getLogger(AiDebuggerApplication.class);
+
     public static void main(String[] args) {
     	
     	// Load .env variables
@@ -17,7 +21,11 @@ public class AiDebuggerApplication {
         System.setProperty("GEMINI_API_KEY", dotenv.get("GEMINI_API_KEY"));
         System.setProperty("GEMINI_MODEL", dotenv.get("GEMINI_MODEL"));
         
-        SpringApplication.run(AiDebuggerApplication.class, args);
-        System.out.println("✅ AI Debugger Backend is running...");
+        SpringApplication app = new SpringApplication(AiDebuggerApplication.class);
+        // lowest precedence; override with --management.endpoints.web.exposure.include=...
+        app.setDefaultProperties(Map.of(
+                "management.endpoints.web.exposure.include", "health,info,metrics,prometheus"));
+        app.run(args);
+        logger.info("AI Debugger Backend is running");
     }
 }
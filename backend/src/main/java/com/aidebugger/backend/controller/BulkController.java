@@ -0,0 +1,52 @@
+package com.aidebugger.backend.controller;
+
+import com.aidebugger.backend.service.BulkRunService;
+import com.aidebugger.backend.service.Client;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+/**
+ * Grades many submissions from one upload: POST /api/bulk/run with an NDJSON body (one
+ * {@code {id, language, code, input | tests}} object per line) or a zip of source files
+ * ({@code Content-Type: application/zip}; an optional {@code tests.json} applies to all of them,
+ * otherwise the {@code input} parameter is every program's stdin). Results stream back as
+ * NDJSON in completion order, ending with a {@code {"summary": ...}} line.
+ */
+@RestController
+@RequestMapping("/api/bulk")
+@CrossOrigin(origins = "*", exposedHeaders = ClientIdentity.HEADER)
+public class BulkController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Autowired
+    private BulkRunService bulkRunService;
+
+    @Autowired
+    private ClientIdentity clientIdentity;
+
+    @Value("${executor.bulk.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @PostMapping(value = "/run", produces = "application/x-ndjson")
+    public ResponseBodyEmitter run(HttpServletRequest http, HttpServletResponse response,
+                                   @RequestParam(required = false) String input) throws IOException {
+        Client client = clientIdentity.identify(http, response);
+        boolean zip = http.getContentType() != null && http.getContentType().toLowerCase().contains("zip");
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMs);
+        Future<?> job = bulkRunService.start(http.getInputStream(), zip, input, client,
+                line -> emitter.send(line + "\n", NDJSON),
+                emitter::complete);
+        emitter.onTimeout(() -> job.cancel(true));
+        emitter.onError(e -> job.cancel(true));
+        return emitter;
+    }
+}
@@ -0,0 +1,87 @@
+package com.aidebugger.backend.controller;
+
+import com.aidebugger.backend.service.Client;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Tells clients apart by a token the server hands out in the {@code X-Client-Token} response
+ * header and the client sends back on later requests. The remote address is no good for that:
+ * a classroom behind one NAT would share a single client's queue share.
+ *
+ * A token is 128 random bits plus an HMAC over them, so only tokens this server issued are
+ * accepted and one client cannot guess another's. A request without a valid token gets a new
+ * one; dropping it to look like many clients is bounded by the scheduler's per-address cap.
+ * Tokens survive restarts only when {@code client.token-secret} is set.
+ */
+@Component
+public class ClientIdentity {
+
+    public static final String HEADER = "X-Client-Token";
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    @Value("${client.token-secret:}")
+    private String secret;
+
+    private final SecureRandom random = new SecureRandom();
+    private SecretKeySpec key;
+
+    @PostConstruct
+    void init() {
+        byte[] k;
+        if (secret == null || secret.isEmpty()) {
+            k = new byte[32];
+            random.nextBytes(k);
+        } else {
+            k = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(k, "HmacSHA256");
+    }
+
+    /** The request's client, issuing a token (in the response header) when it has no valid one. */
+    public Client identify(HttpServletRequest http, HttpServletResponse response) {
+        String token = http.getHeader(HEADER);
+        if (!isValid(token)) token = issue();
+        response.setHeader(HEADER, token);
+        return new Client(token, http.getRemoteAddr());
+    }
+
+    String issue() {
+        byte[] id = new byte[16];
+        random.nextBytes(id);
+        String body = BASE64.encodeToString(id);
+        return body + "." + sign(body);
+    }
+
+    boolean isValid(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) return false;
+        int dot = token.indexOf('.');
+        if (dot <= 0) return false;
+        byte[] expected = sign(token.substring(0, dot)).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return BASE64.encodeToString(Arrays.copyOf(mac.doFinal(body.getBytes(StandardCharsets.US_ASCII)), 16));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -1,19 +1,45 @@
 package com.aidebugger.backend.controller;
 
+import com.aidebugger.backend.model.BatchRequest;
+import com.aidebugger.backend.model.BatchResponse;
 import com.aidebugger.backend.model.CodeRequest;
 import com.aidebugger.backend.model.CodeResponse;
+import com.aidebugger.backend.service.AiDebugService;
+import com.aidebugger.backend.service.Client;
+import com.aidebugger.backend.service.DebugStreamListener;
+import com.aidebugger.backend.service.ExecutionRejectedException;
+import com.aidebugger.backend.service.ExecutionScheduler;
 import com.aidebugger.backend.service.LocalExecutorService;
+import com.aidebugger.backend.service.GeminiClient;
+import com.aidebugger.backend.service.GeminiResponseCache;
 import com.aidebugger.backend.service.GeminiService;
+import com.aidebugger.backend.service.OutputListener;
+import com.aidebugger.backend.service.ProjectWorkspaces;
+import com.aidebugger.backend.service.PromptCompactor;
+import com.aidebugger.backend.service.RunResultCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = ClientIdentity.HEADER)
 public class CodeController {
 
     private static final Logger logger = LoggerFactory.getLogger(CodeController.class);
@@ -21,30 +47,52 @@ public class CodeController {
     @Autowired
     private LocalExecutorService localExecutorService;
 
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private ClientIdentity clientIdentity;
+
+    @Autowired
+    private AiDebugService aiDebugService;
+
     @Autowired(required = false)
     private GeminiService geminiService;
 
+    @Autowired
+    private GeminiResponseCache geminiResponseCache;
+
+    @Autowired
+    private RunResultCache runResultCache;
+
+    @Autowired
+    private GeminiClient geminiClient;
+
+    @Autowired
+    private PromptCompactor promptCompactor;
+
+    @Value("${executor.batch.max-cases:200}")
+    private int maxBatchCases;
+
     @PostMapping("/run")
-    public ResponseEntity<CodeResponse> runCode(@RequestBody CodeRequest request) {
+    public ResponseEntity<CodeResponse> runCode(@RequestBody CodeRequest request, HttpServletRequest http,
+                                                HttpServletResponse response) {
+        Client client = clientIdentity.identify(http, response);
         try {
-            if (request == null || request.getCode() == null || request.getCode().trim().isEmpty()) {
-                CodeResponse bad = new CodeResponse();
-                bad.setError("Code is empty. Please provide source code.");
-                return ResponseEntity.badRequest().body(bad);
-            }
-            if (request.getCode().length() > 300_000) {
-                CodeResponse r = new CodeResponse();
-                r.setError("Source too large. Maximum allowed size is 300 KB.");
-                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(r);
-            }
-            if (request.getInput() != null && request.getInput().length() > 50_000) {
-                CodeResponse r = new CodeResponse();
-                r.setError("Input too large. Maximum allowed stdin size is 50 KB.");
-                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(r);
-            }
+            ResponseEntity<CodeResponse> invalid = validateRunRequest(request);
+            if (invalid != null) return invalid;
+            request.setClientId(client.getId());
+
+            // a cached result does not need to queue for a run slot
+            CodeResponse cached = localExecutorService.cachedResult(request);
+            if (cached != null) return ResponseEntity.ok(cached);
 
-            CodeResponse resp = localExecutorService.executeCode(request);
-            return ResponseEntity.ok(resp);
+            try (ExecutionScheduler.Permit ignored = executionScheduler.acquire(request.getLanguage(), client)) {
+                CodeResponse resp = localExecutorService.executeCode(request);
+                return ResponseEntity.ok(resp);
+            }
+        } catch (ExecutionRejectedException ex) {
+            return rejected(ex);
         } catch (Exception ex) {
             logger.error("Unexpected error in /api/run", ex);
             CodeResponse r = new CodeResponse();
@@ -53,74 +101,278 @@ public class CodeController {
         }
     }
 
-    @PostMapping("/ai-debug")
-    public ResponseEntity<CodeResponse> aiDebug(@RequestBody CodeRequest request) {
+    /**
+     * Runs one submission against many test cases: compiled once, cases fanned out across
+     * cores. The batch takes a single scheduler permit, like one run.
+     */
+    @PostMapping("/run/batch")
+    public ResponseEntity<BatchResponse> runBatch(@RequestBody BatchRequest request, HttpServletRequest http,
+                                                  HttpServletResponse response) {
+        Client client = clientIdentity.identify(http, response);
         try {
-            if (request == null || request.getCode() == null || request.getCode().trim().isEmpty()) {
-                CodeResponse bad = new CodeResponse();
-                bad.setError("Code is empty. Please provide source code for AI debugging.");
-                return ResponseEntity.badRequest().body(bad);
-            }
-            if (request.getDescription() == null || request.getDescription().trim().isEmpty()) {
-                CodeResponse bad = new CodeResponse();
-                bad.setError("Description/prompt is required for AI Debug. Please explain what the code should do.");
-                return ResponseEntity.badRequest().body(bad);
+            ResponseEntity<BatchResponse> invalid = validateBatchRequest(request, maxBatchCases);
+            if (invalid != null) return invalid;
+
+            try (ExecutionScheduler.Permit ignored = executionScheduler.acquire(request.getLanguage(), client)) {
+                return ResponseEntity.ok(localExecutorService.runBatch(request));
             }
+        } catch (ExecutionRejectedException ex) {
+            ResponseEntity<CodeResponse> r = rejected(ex);
+            BatchResponse b = new BatchResponse();
+            b.setError(r.getBody().getError());
+            return ResponseEntity.status(r.getStatusCode()).headers(r.getHeaders()).body(b);
+        } catch (Exception ex) {
+            logger.error("Unexpected error in /api/run/batch", ex);
+            BatchResponse r = new BatchResponse();
+            r.setError("Server error while running tests: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(r);
+        }
+    }
 
-            if (geminiService == null) {
+    /**
+     * Streams a run as Server-Sent Events: "compile" with diagnostics, "stdout"/"stderr" chunks while
+     * the program runs (up to the same limit as /run), then one "result" event with the full
+     * CodeResponse. Buffered events are bounded by the output limits, so a slow client cannot
+     * make the server hold more than one response's worth of output.
+     */
+    @PostMapping(value = "/run/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Object>>> runCodeStream(@RequestBody CodeRequest request,
+                                                                      HttpServletRequest http,
+                                                                      HttpServletResponse response) throws InterruptedException {
+        Client client = clientIdentity.identify(http, response);
+        ResponseEntity<CodeResponse> invalid = validateRunRequest(request);
+        if (invalid != null) {
+            return ResponseEntity.status(invalid.getStatusCode()).body(Flux.just(event("result", invalid.getBody())));
+        }
+        request.setClientId(client.getId());
+        ExecutionScheduler.Permit permit;
+        try {
+            permit = executionScheduler.acquire(request.getLanguage(), client);
+        } catch (ExecutionRejectedException ex) {
+            ResponseEntity<CodeResponse> r = rejected(ex);
+            return ResponseEntity.status(r.getStatusCode()).headers(r.getHeaders()).body(Flux.just(event("result", r.getBody())));
+        }
+
+        Flux<ServerSentEvent<Object>> events = Flux.<ServerSentEvent<Object>>create(sink -> {
+            try {
+                CodeResponse resp = localExecutorService.executeCode(request, new OutputListener() {
+                    @Override
+                    public void onCompileOutput(String compileOutput) {
+                        sink.next(event("compile", compileOutput));
+                    }
+
+                    @Override
+                    public void onOutput(boolean stderr, String text) {
+                        sink.next(event(stderr ? "stderr" : "stdout", text));
+                    }
+                });
+                sink.next(event("result", resp));
+            } catch (Exception ex) {
+                logger.error("Unexpected error in /api/run/stream", ex);
                 CodeResponse r = new CodeResponse();
-                r.setError("Server-side GeminiService is not configured. Please implement GeminiService and restart.");
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(r);
+                r.setError("Server error while running code: " + ex.getMessage());
+                sink.next(event("result", r));
+            } finally {
+                permit.close();
             }
+            sink.complete();
+        }, FluxSink.OverflowStrategy.BUFFER)
+                .subscribeOn(Schedulers.boundedElastic())
+                // never scheduled: the run did not start, so nothing else gives the slot back
+                .doOnError(ex -> permit.close())
+                // start the run now rather than on subscription and keep its events for the
+                // response: the slot is held exactly as long as the run, even if the client
+                // leaves early or the response is never subscribed
+                .replay()
+                .autoConnect(0);
 
-            CodeResponse runResult = localExecutorService.executeCode(request);
+        return ResponseEntity.ok(events);
+    }
 
-            if (runResult.getCompileOutput() != null && !runResult.getCompileOutput().trim().isEmpty()) {
-                CodeResponse compileErrResp = new CodeResponse();
-                compileErrResp.setCompileOutput(runResult.getCompileOutput());
-                compileErrResp.setError("Compilation failed. Fix syntax errors first.");
-                return ResponseEntity.ok(compileErrResp);
-            }
+    @GetMapping("/scheduler/stats")
+    public List<ExecutionScheduler.LaneStats> schedulerStats() {
+        return executionScheduler.stats();
+    }
 
-            StringBuilder augmentedDescription = new StringBuilder();
-            augmentedDescription.append(request.getDescription().trim());
-            augmentedDescription.append("\n\n--- Run context (automatically collected) ---\n");
-            if ((runResult.getOutput() != null && !runResult.getOutput().isBlank())) {
-                augmentedDescription.append("Program stdout:\n").append(runResult.getOutput()).append("\n");
-            }
-            if (runResult.getError() != null && !runResult.getError().isBlank()) {
-                augmentedDescription.append("Program runtime stderr/error:\n").append(runResult.getError()).append("\n");
-            }
+    @GetMapping("/ai-cache/stats")
+    public GeminiResponseCache.Stats aiCacheStats() {
+        return geminiResponseCache.stats();
+    }
 
-            CodeRequest forAi = new CodeRequest();
-            forAi.setCode(request.getCode());
-            forAi.setLanguage(request.getLanguage());
-            forAi.setDescription(augmentedDescription.toString());
+    @GetMapping("/run-cache/stats")
+    public RunResultCache.Stats runCacheStats() {
+        return runResultCache.stats();
+    }
 
-            CodeResponse aiResp = geminiService.debugCode(forAi);
+    @GetMapping("/gemini/stats")
+    public GeminiClient.Stats geminiStats() {
+        return geminiClient.stats();
+    }
 
-            if ((aiResp == null) || ((aiResp.getCorrectedCode() == null || aiResp.getCorrectedCode().isBlank())
-                    && (aiResp.getExplanation() == null || aiResp.getExplanation().isBlank()))) {
-                CodeResponse fallback = new CodeResponse();
-                fallback.setExplanation("AI did not return a usable response. Here is the program's runtime info.");
-                fallback.setOutput(runResult.getOutput());
-                fallback.setError(runResult.getError());
-                return ResponseEntity.ok(fallback);
-            }
+    @GetMapping("/ai-prompt/stats")
+    public PromptCompactor.Stats aiPromptStats() {
+        return promptCompactor.stats();
+    }
 
-            if (aiResp.getExplanation() == null) aiResp.setExplanation("");
-            aiResp.setExplanation(aiResp.getExplanation() + "\n\n--- Previous run output (for reference) ---\n" +
-                    (runResult.getOutput() == null ? "" : runResult.getOutput()) +
-                    (runResult.getError() == null ? "" : ("\nErrors:\n" + runResult.getError()))
-            );
+    /**
+     * Returns a Mono so the servlet thread is released while the program runs and while
+     * Gemini generates; only the run itself occupies a (bounded-elastic) thread.
+     */
+    @PostMapping("/ai-debug")
+    public Mono<ResponseEntity<CodeResponse>> aiDebug(@RequestBody CodeRequest request, HttpServletRequest http,
+                                                      HttpServletResponse response) {
+        Client client = clientIdentity.identify(http, response);
+        ResponseEntity<CodeResponse> invalid = validateDebugRequest(request, geminiService != null);
+        if (invalid != null) return Mono.just(invalid);
+        request.setClientId(client.getId());
 
-            return ResponseEntity.ok(aiResp);
+        return aiDebugService.debugAsync(request, client)
+                .map(ResponseEntity::ok)
+                .onErrorResume(ExecutionRejectedException.class, ex -> Mono.just(rejected(ex)))
+                .onErrorResume(ex -> {
+                    logger.error("Unexpected error in /api/ai-debug", ex);
+                    CodeResponse r = new CodeResponse();
+                    r.setError("Server error while performing AI debug: " + ex.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(r));
+                });
+    }
 
-        } catch (Exception ex) {
-            logger.error("Unexpected error in /api/ai-debug", ex);
+    /**
+     * Streams the ai-debug flow as server-sent events: {@code run} with the program's result,
+     * then {@code explanation} and {@code code} chunks while Gemini generates, and finally
+     * {@code result} with the same response {@code /ai-debug} would return.
+     */
+    @PostMapping(value = "/ai-debug/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Object>>> aiDebugStream(@RequestBody CodeRequest request,
+                                                                       HttpServletRequest http,
+                                                                       HttpServletResponse response) {
+        Client client = clientIdentity.identify(http, response);
+        ResponseEntity<CodeResponse> invalid = validateDebugRequest(request, geminiService != null);
+        if (invalid != null) {
+            return ResponseEntity.status(invalid.getStatusCode()).body(Flux.just(event("result", invalid.getBody())));
+        }
+        request.setClientId(client.getId());
+
+        Flux<ServerSentEvent<Object>> events = Flux.<ServerSentEvent<Object>>create(sink -> {
+            Disposable debug = aiDebugService.debugStream(request, client, new DebugStreamListener() {
+                @Override
+                public void onRunResult(CodeResponse runResult) {
+                    sink.next(event("run", runResult));
+                }
+
+                @Override
+                public void onExplanation(String text) {
+                    sink.next(event("explanation", text));
+                }
+
+                @Override
+                public void onCorrectedCode(String text) {
+                    sink.next(event("code", text));
+                }
+            }).subscribe(resp -> {
+                sink.next(event("result", resp));
+                sink.complete();
+            }, ex -> {
+                CodeResponse r;
+                if (ex instanceof ExecutionRejectedException) {
+                    r = rejected((ExecutionRejectedException) ex).getBody();
+                } else {
+                    logger.error("Unexpected error in /api/ai-debug/stream", ex);
+                    r = new CodeResponse();
+                    r.setError("Server error while performing AI debug: " + ex.getMessage());
+                }
+                sink.next(event("result", r));
+                sink.complete();
+            });
+            sink.onDispose(debug);
+        }, FluxSink.OverflowStrategy.BUFFER);
+
+        return ResponseEntity.ok(events);
+    }
+
+    static ResponseEntity<CodeResponse> validateRunRequest(CodeRequest request) {
+        // a project's file count, size and paths are checked when it is unpacked
+        boolean project = request != null && ProjectWorkspaces.isProject(request);
+        if (!project && (request == null || request.getCode() == null || request.getCode().trim().isEmpty())) {
+            CodeResponse bad = new CodeResponse();
+            bad.setError("Code is empty. Please provide source code.");
+            return ResponseEntity.badRequest().body(bad);
+        }
+        if (!project && request.getCode().length() > 300_000) {
             CodeResponse r = new CodeResponse();
-            r.setError("Server error while performing AI debug: " + ex.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(r);
+            r.setError("Source too large. Maximum allowed size is 300 KB.");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(r);
+        }
+        if (request.getInput() != null && request.getInput().length() > 50_000) {
+            CodeResponse r = new CodeResponse();
+            r.setError("Input too large. Maximum allowed stdin size is 50 KB.");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(r);
+        }
+        return null;
+    }
+
+    static ResponseEntity<BatchResponse> validateBatchRequest(BatchRequest request, int maxCases) {
+        String problem = null;
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        if (request == null || request.getCode() == null || request.getCode().trim().isEmpty()) {
+            problem = "Code is empty. Please provide source code.";
+        } else if (request.getTests() == null || request.getTests().isEmpty()) {
+            problem = "No test cases. Provide at least one {input, expectedOutput} pair in tests.";
+        } else if (request.getCode().length() > 300_000) {
+            problem = "Source too large. Maximum allowed size is 300 KB.";
+            status = HttpStatus.PAYLOAD_TOO_LARGE;
+        } else if (request.getTests().size() > maxCases) {
+            problem = "Too many test cases. Maximum is " + maxCases + " per batch.";
+            status = HttpStatus.PAYLOAD_TOO_LARGE;
+        } else {
+            for (BatchRequest.TestCase t : request.getTests()) {
+                if (t == null) {
+                    problem = "Test cases must not be null.";
+                    break;
+                }
+                if ((t.getInput() != null && t.getInput().length() > 50_000)
+                        || (t.getExpectedOutput() != null && t.getExpectedOutput().length() > 50_000)) {
+                    problem = "Test case too large. Maximum allowed input and expected output size is 50 KB.";
+                    status = HttpStatus.PAYLOAD_TOO_LARGE;
+                    break;
+                }
+            }
+        }
+        if (problem == null) return null;
+        BatchResponse r = new BatchResponse();
+        r.setError(problem);
+        return ResponseEntity.status(status).body(r);
+    }
+
+    static ResponseEntity<CodeResponse> validateDebugRequest(CodeRequest request, boolean geminiConfigured) {
+        if (request == null || request.getCode() == null || request.getCode().trim().isEmpty()) {
+            CodeResponse bad = new CodeResponse();
+            bad.setError("Code is empty. Please provide source code for AI debugging.");
+            return ResponseEntity.badRequest().body(bad);
+        }
+        if (request.getDescription() == null || request.getDescription().trim().isEmpty()) {
+            CodeResponse bad = new CodeResponse();
+            bad.setError("Description/prompt is required for AI Debug. Please explain what the code should do.");
+            return ResponseEntity.badRequest().body(bad);
+        }
+
+        if (!geminiConfigured) {
+            CodeResponse r = new CodeResponse();
+            r.setError("Server-side GeminiService is not configured. Please implement GeminiService and restart.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(r);
         }
+        return null;
+    }
+
+    static ResponseEntity<CodeResponse> rejected(ExecutionRejectedException ex) {
+        CodeResponse r = new CodeResponse();
+        r.setError(ex.getMessage());
+        return ResponseEntity.status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(r);
+    }
+
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
     }
 }
@@ -0,0 +1,113 @@
+package com.aidebugger.backend.controller;
+
+import com.aidebugger.backend.model.CodeRequest;
+import com.aidebugger.backend.model.CodeResponse;
+import com.aidebugger.backend.model.JobResponse;
+import com.aidebugger.backend.service.AiDebugService;
+import com.aidebugger.backend.service.Client;
+import com.aidebugger.backend.service.ExecutionRejectedException;
+import com.aidebugger.backend.service.ExecutionScheduler;
+import com.aidebugger.backend.service.GeminiService;
+import com.aidebugger.backend.service.JobService;
+import com.aidebugger.backend.service.LocalExecutorService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous variants of /api/run and /api/ai-debug: POST returns a job id at once
+ * (202 Accepted), and the result is fetched from GET /api/jobs/{id}. Passing {@code waitMs}
+ * long-polls without holding a request thread while the job runs.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*", exposedHeaders = ClientIdentity.HEADER)
+public class JobController {
+
+    private static final long MAX_WAIT_MS = 30_000;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private LocalExecutorService localExecutorService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private ClientIdentity clientIdentity;
+
+    @Autowired
+    private AiDebugService aiDebugService;
+
+    @Autowired(required = false)
+    private GeminiService geminiService;
+
+    @PostMapping("/run")
+    public ResponseEntity<?> submitRun(@RequestBody CodeRequest request, HttpServletRequest http,
+                                       HttpServletResponse response) {
+        Client client = clientIdentity.identify(http, response);
+        ResponseEntity<CodeResponse> invalid = CodeController.validateRunRequest(request);
+        if (invalid != null) return invalid;
+        request.setClientId(client.getId());
+        return submit("run", () -> {
+            try (ExecutionScheduler.Permit ignored = executionScheduler.acquire(request.getLanguage(), client)) {
+                return localExecutorService.executeCode(request);
+            }
+        });
+    }
+
+    @PostMapping("/ai-debug")
+    public ResponseEntity<?> submitAiDebug(@RequestBody CodeRequest request, HttpServletRequest http,
+                                           HttpServletResponse response) {
+        Client client = clientIdentity.identify(http, response);
+        ResponseEntity<CodeResponse> invalid = CodeController.validateDebugRequest(request, geminiService != null);
+        if (invalid != null) return invalid;
+        request.setClientId(client.getId());
+        try {
+            JobService.Job job = jobService.submitAsync("ai-debug", () -> aiDebugService.debugAsync(request, client));
+            return accepted(job);
+        } catch (ExecutionRejectedException ex) {
+            return CodeController.rejected(ex);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<JobResponse>> getJob(@PathVariable String id,
+                                                                @RequestParam(defaultValue = "0") long waitMs) {
+        JobService.Job job = jobService.get(id);
+        if (job == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        }
+        if (waitMs <= 0 || job.getResult().isDone()) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(job.toResponse()));
+        }
+        return job.getResult()
+                .thenApply(r -> true)
+                .completeOnTimeout(false, Math.min(waitMs, MAX_WAIT_MS), TimeUnit.MILLISECONDS)
+                .thenApply(done -> ResponseEntity.ok(job.toResponse()));
+    }
+
+    private ResponseEntity<?> submit(String type, Callable<CodeResponse> work) {
+        try {
+            return accepted(jobService.submit(type, work));
+        } catch (ExecutionRejectedException ex) {
+            return CodeController.rejected(ex);
+        }
+    }
+
+    private ResponseEntity<JobResponse> accepted(JobService.Job job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.getId()))
+                .body(job.toResponse());
+    }
+}
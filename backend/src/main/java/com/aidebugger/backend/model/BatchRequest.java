@@ -0,0 +1,39 @@
+package com.aidebugger.backend.model;
+
+import java.util.List;
+
+public class BatchRequest {
+    private String code;
+    private String language;
+    private List<TestCase> tests;
+    private Long timeoutMs;
+    private Boolean stopOnFirstFailure;
+
+    public static class TestCase {
+        private String input;
+        private String expectedOutput;
+
+        // getters & setters
+        public String getInput() { return input; }
+        public void setInput(String input) { this.input = input; }
+
+        public String getExpectedOutput() { return expectedOutput; }
+        public void setExpectedOutput(String expectedOutput) { this.expectedOutput = expectedOutput; }
+    }
+
+    // getters & setters
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public List<TestCase> getTests() { return tests; }
+    public void setTests(List<TestCase> tests) { this.tests = tests; }
+
+    public Long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(Long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+    public Boolean getStopOnFirstFailure() { return stopOnFirstFailure; }
+    public void setStopOnFirstFailure(Boolean stopOnFirstFailure) { this.stopOnFirstFailure = stopOnFirstFailure; }
+}
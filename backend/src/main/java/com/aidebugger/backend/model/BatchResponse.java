@@ -0,0 +1,79 @@
+package com.aidebugger.backend.model;
+
+import java.util.List;
+
+public class BatchResponse {
+    private String error;
+    private String compileOutput;
+    private int total;
+    private int passed;
+    private int failed;
+    private int skipped;
+    private long compileTimeMillis;
+    private long timeMillis;
+    private List<TestResult> results;
+
+    /**
+     * Verdicts: PASSED, WRONG_ANSWER, RUNTIME_ERROR, TIMEOUT, or SKIPPED when an earlier failure
+     * stopped the batch. Without an expected output a case passes if it runs without error.
+     */
+    public static class TestResult {
+        private int index;
+        private String verdict;
+        private String output;
+        private String error;
+        private long timeMillis;
+        private Long cpuTimeMillis;
+        private Long peakMemoryKb;
+
+        // getters & setters
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+
+        public String getVerdict() { return verdict; }
+        public void setVerdict(String verdict) { this.verdict = verdict; }
+
+        public String getOutput() { return output; }
+        public void setOutput(String output) { this.output = output; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+
+        public long getTimeMillis() { return timeMillis; }
+        public void setTimeMillis(long timeMillis) { this.timeMillis = timeMillis; }
+
+        public Long getCpuTimeMillis() { return cpuTimeMillis; }
+        public void setCpuTimeMillis(Long cpuTimeMillis) { this.cpuTimeMillis = cpuTimeMillis; }
+
+        public Long getPeakMemoryKb() { return peakMemoryKb; }
+        public void setPeakMemoryKb(Long peakMemoryKb) { this.peakMemoryKb = peakMemoryKb; }
+    }
+
+    // getters & setters
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public String getCompileOutput() { return compileOutput; }
+    public void setCompileOutput(String compileOutput) { this.compileOutput = compileOutput; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getPassed() { return passed; }
+    public void setPassed(int passed) { this.passed = passed; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public int getSkipped() { return skipped; }
+    public void setSkipped(int skipped) { this.skipped = skipped; }
+
+    public long getCompileTimeMillis() { return compileTimeMillis; }
+    public void setCompileTimeMillis(long compileTimeMillis) { this.compileTimeMillis = compileTimeMillis; }
+
+    public long getTimeMillis() { return timeMillis; }
+    public void setTimeMillis(long timeMillis) { this.timeMillis = timeMillis; }
+
+    public List<TestResult> getResults() { return results; }
+    public void setResults(List<TestResult> results) { this.results = results; }
+}
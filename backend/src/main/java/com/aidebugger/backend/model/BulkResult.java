@@ -0,0 +1,32 @@
+package com.aidebugger.backend.model;
+
+/**
+ * One line of a bulk run's output. {@code result} is a {@link CodeResponse} for single runs and
+ * a {@link BatchResponse} for test batches; duplicates of an earlier submission carry the
+ * earlier one's result and its id in {@code duplicateOf}.
+ *
+ * Status is one of OK, PASSED, FAILED, COMPILE_ERROR, RUNTIME_ERROR, TIMEOUT or INVALID.
+ */
+public class BulkResult {
+    private String id;
+    private String status;
+    private String duplicateOf;
+    private long timeMillis;
+    private Object result;
+
+    // getters & setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getDuplicateOf() { return duplicateOf; }
+    public void setDuplicateOf(String duplicateOf) { this.duplicateOf = duplicateOf; }
+
+    public long getTimeMillis() { return timeMillis; }
+    public void setTimeMillis(long timeMillis) { this.timeMillis = timeMillis; }
+
+    public Object getResult() { return result; }
+    public void setResult(Object result) { this.result = result; }
+}
@@ -0,0 +1,28 @@
+package com.aidebugger.backend.model;
+
+import java.util.List;
+
+/** One submission of a bulk run: a single run with {@code input}, or a test batch with {@code tests}. */
+public class BulkSubmission {
+    private String id;
+    private String language;
+    private String code;
+    private String input;
+    private List<BatchRequest.TestCase> tests;
+
+    // getters & setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public String getInput() { return input; }
+    public void setInput(String input) { this.input = input; }
+
+    public List<BatchRequest.TestCase> getTests() { return tests; }
+    public void setTests(List<BatchRequest.TestCase> tests) { this.tests = tests; }
+}
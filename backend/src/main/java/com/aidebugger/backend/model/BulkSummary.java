@@ -0,0 +1,35 @@
+package com.aidebugger.backend.model;
+
+import java.util.Map;
+
+public class BulkSummary {
+    private int total;
+    private int executed;
+    private int duplicates;
+    private Map<String, Integer> statuses;
+    private long timeMillis;
+    private String report;
+    private String error;
+
+    // getters & setters
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getExecuted() { return executed; }
+    public void setExecuted(int executed) { this.executed = executed; }
+
+    public int getDuplicates() { return duplicates; }
+    public void setDuplicates(int duplicates) { this.duplicates = duplicates; }
+
+    public Map<String, Integer> getStatuses() { return statuses; }
+    public void setStatuses(Map<String, Integer> statuses) { this.statuses = statuses; }
+
+    public long getTimeMillis() { return timeMillis; }
+    public void setTimeMillis(long timeMillis) { this.timeMillis = timeMillis; }
+
+    public String getReport() { return report; }
+    public void setReport(String report) { this.report = report; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -1,10 +1,26 @@
 package com.aidebugger.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Map;
+
 public class CodeRequest {
     private String code;
     private String language;
     private String input;
     private String description;
+    private Boolean verify;
+    // multi-file project instead of code: path -> content, or a base64 zip of the same
+    private Map<String, String> files;
+    private String zip;
+    // keeps the project's build between requests, so only what changed is recompiled
+    private String sessionId;
+    // Java main class or Python script to run; found automatically when there is only one
+    private String entry;
+    // the token of the client that sent the request, set by the server (never read from the body);
+    // sessions are per client
+    @JsonIgnore
+    private String clientId;
 
     // getters & setters
     public String getCode() { return code; }
@@ -18,4 +34,22 @@ public class CodeRequest {
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
+
+    public Boolean getVerify() { return verify; }
+    public void setVerify(Boolean verify) { this.verify = verify; }
+
+    public Map<String, String> getFiles() { return files; }
+    public void setFiles(Map<String, String> files) { this.files = files; }
+
+    public String getZip() { return zip; }
+    public void setZip(String zip) { this.zip = zip; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public String getEntry() { return entry; }
+    public void setEntry(String entry) { this.entry = entry; }
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
 }
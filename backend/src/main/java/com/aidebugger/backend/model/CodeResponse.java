@@ -1,11 +1,22 @@
 package com.aidebugger.backend.model;
 
+import java.util.List;
+
 public class CodeResponse {
     private String output;
     private String error;
     private String compileOutput;
     private String correctedCode;
     private String explanation;
+    private List<String> alternativeCode;
+    private List<Verification> verification;
+    // resource use of the run; null when not measured (e.g. the run timed out)
+    private Integer exitCode;
+    private Long cpuTimeMillis;
+    private Long peakMemoryKb;
+    private Long wallTimeMillis;
+    // served from the run-result cache; the usage figures are those of the run that was cached
+    private boolean fromCache;
 
     // getters & setters
     public String getOutput() { return output; }
@@ -22,4 +33,25 @@ public class CodeResponse {
 
     public String getExplanation() { return explanation; }
     public void setExplanation(String explanation) { this.explanation = explanation; }
+
+    public List<String> getAlternativeCode() { return alternativeCode; }
+    public void setAlternativeCode(List<String> alternativeCode) { this.alternativeCode = alternativeCode; }
+
+    public List<Verification> getVerification() { return verification; }
+    public void setVerification(List<Verification> verification) { this.verification = verification; }
+
+    public Integer getExitCode() { return exitCode; }
+    public void setExitCode(Integer exitCode) { this.exitCode = exitCode; }
+
+    public Long getCpuTimeMillis() { return cpuTimeMillis; }
+    public void setCpuTimeMillis(Long cpuTimeMillis) { this.cpuTimeMillis = cpuTimeMillis; }
+
+    public Long getPeakMemoryKb() { return peakMemoryKb; }
+    public void setPeakMemoryKb(Long peakMemoryKb) { this.peakMemoryKb = peakMemoryKb; }
+
+    public Long getWallTimeMillis() { return wallTimeMillis; }
+    public void setWallTimeMillis(Long wallTimeMillis) { this.wallTimeMillis = wallTimeMillis; }
+
+    public boolean isFromCache() { return fromCache; }
+    public void setFromCache(boolean fromCache) { this.fromCache = fromCache; }
 }
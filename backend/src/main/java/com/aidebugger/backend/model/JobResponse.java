@@ -0,0 +1,29 @@
+package com.aidebugger.backend.model;
+
+public class JobResponse {
+    private String jobId;
+    private String type;
+    private String status;
+    private long createdAt;
+    private Long finishedAt;
+    private CodeResponse result;
+
+    // getters & setters
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public Long getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Long finishedAt) { this.finishedAt = finishedAt; }
+
+    public CodeResponse getResult() { return result; }
+    public void setResult(CodeResponse result) { this.result = result; }
+}
@@ -0,0 +1,33 @@
+package com.aidebugger.backend.model;
+
+/**
+ * Outcome of running one AI-suggested fix. Candidate 0 is {@code correctedCode}, candidate
+ * {@code i > 0} is {@code alternativeCode[i - 1]}.
+ */
+public class Verification {
+    private int candidate;
+    private boolean passed;
+    private String output;
+    private String error;
+    private String compileOutput;
+    private long timeMillis;
+
+    // getters & setters
+    public int getCandidate() { return candidate; }
+    public void setCandidate(int candidate) { this.candidate = candidate; }
+
+    public boolean isPassed() { return passed; }
+    public void setPassed(boolean passed) { this.passed = passed; }
+
+    public String getOutput() { return output; }
+    public void setOutput(String output) { this.output = output; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public String getCompileOutput() { return compileOutput; }
+    public void setCompileOutput(String compileOutput) { this.compileOutput = compileOutput; }
+
+    public long getTimeMillis() { return timeMillis; }
+    public void setTimeMillis(long timeMillis) { this.timeMillis = timeMillis; }
+}
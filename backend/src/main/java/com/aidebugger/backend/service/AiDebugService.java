@@ -0,0 +1,174 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeRequest;
+import com.aidebugger.backend.model.CodeResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The ai-debug flow: run the program once to collect its output, then ask Gemini with that
+ * run context attached. Shared by the synchronous endpoint and the job API.
+ */
+@Service
+public class AiDebugService {
+
+    @Autowired
+    private LocalExecutorService localExecutorService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private GeminiService geminiService;
+
+    @Autowired
+    private FixVerifier fixVerifier;
+
+    @Value("${ai-debug.pipelined:false}")
+    private boolean pipelined;
+
+    /**
+     * Runs the program on a bounded-elastic thread (processes block), then calls Gemini without
+     * holding any thread while the model works.
+     *
+     * Errors with {@link ExecutionRejectedException} when the scheduler has no room for the run.
+     */
+    public Mono<CodeResponse> debugAsync(CodeRequest request, Client client) {
+        Mono<CodeResponse> answer = pipelined ? debugPipelined(request, client) : debugSequential(request, client);
+        return answer.flatMap(aiResp -> fixVerifier.annotate(request, aiResp, client));
+    }
+
+    private Mono<CodeResponse> debugSequential(CodeRequest request, Client client) {
+        return run(request, client, OutputListener.NONE)
+                .flatMap(runResult -> {
+                    if (hasCompileErrors(runResult)) return Mono.just(compileFailure(runResult));
+                    return geminiService.debugCodeAsync(withRunContext(request, runResult))
+                            .map(aiResp -> withRunOutput(aiResp, runResult));
+                });
+    }
+
+    /**
+     * Like {@link #debugAsync}, but reports the run result and the AI answer to
+     * {@code listener} as they become available. The emitted response is the same one the
+     * non-streaming flow returns.
+     */
+    public Mono<CodeResponse> debugStream(CodeRequest request, Client client, DebugStreamListener listener) {
+        return run(request, client, OutputListener.NONE)
+                .flatMap(runResult -> {
+                    listener.onRunResult(runResult);
+                    if (hasCompileErrors(runResult)) return Mono.just(compileFailure(runResult));
+                    return geminiService.debugCodeStream(withRunContext(request, runResult), listener)
+                            .map(aiResp -> withRunOutput(aiResp, runResult));
+                })
+                .flatMap(aiResp -> fixVerifier.annotate(request, aiResp, client));
+    }
+
+    /**
+     * Overlaps the run with a speculative Gemini call on just the code and description, started
+     * as soon as the program compiles (so a compile failure never starts one). A run with no
+     * error and no output adds nothing to the prompt, so it takes the speculative answer and the
+     * latency is roughly max(run, model) rather than their sum. Anything the run printed, like a
+     * runtime error or a timeout, belongs in the prompt: the speculative call is cancelled and
+     * the usual call with run context follows, as it also does when the speculative call itself
+     * fails.
+     */
+    private Mono<CodeResponse> debugPipelined(CodeRequest request, Client client) {
+        return Mono.defer(() -> {
+            AtomicReference<CompletableFuture<CodeResponse>> speculative = new AtomicReference<>();
+            OutputListener startSpeculative = new OutputListener() {
+                @Override
+                public void onCompiled() {
+                    speculative.set(geminiService.debugCodeSpeculative(request).toFuture());
+                }
+
+                @Override
+                public void onOutput(boolean stderr, String text) {
+                }
+            };
+            return run(request, client, startSpeculative)
+                    .flatMap(runResult -> {
+                        CompletableFuture<CodeResponse> early = speculative.get();
+                        if (hasCompileErrors(runResult)) return Mono.just(compileFailure(runResult));
+                        Mono<CodeResponse> followUp = Mono.defer(() -> geminiService.debugCodeAsync(withRunContext(request, runResult)));
+                        Mono<CodeResponse> answer;
+                        if (early == null || !isBlank(runResult.getError()) || !isBlank(runResult.getOutput())) {
+                            if (early != null) early.cancel(true);
+                            answer = followUp;
+                        } else {
+                            answer = Mono.fromFuture(early).flatMap(ai -> ai.getError() == null ? Mono.just(ai) : followUp);
+                        }
+                        return answer.map(aiResp -> withRunOutput(aiResp, runResult));
+                    })
+                    .doFinally(signal -> {
+                        CompletableFuture<CodeResponse> early = speculative.get();
+                        if (early != null && !early.isDone()) early.cancel(true);
+                    });
+        });
+    }
+
+    private Mono<CodeResponse> run(CodeRequest request, Client client, OutputListener listener) {
+        return Mono.fromCallable(() -> {
+                    try (ExecutionScheduler.Permit ignored = executionScheduler.acquire(request.getLanguage(), client)) {
+                        return localExecutorService.executeCode(request, listener);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static boolean hasCompileErrors(CodeResponse runResult) {
+        return runResult.getCompileOutput() != null && !runResult.getCompileOutput().trim().isEmpty();
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static CodeResponse compileFailure(CodeResponse runResult) {
+        CodeResponse compileErrResp = new CodeResponse();
+        compileErrResp.setCompileOutput(runResult.getCompileOutput());
+        compileErrResp.setError("Compilation failed. Fix syntax errors first.");
+        return compileErrResp;
+    }
+
+    private CodeRequest withRunContext(CodeRequest request, CodeResponse runResult) {
+        StringBuilder augmentedDescription = new StringBuilder();
+        augmentedDescription.append(request.getDescription().trim());
+        augmentedDescription.append("\n\n--- Run context (automatically collected) ---\n");
+        if ((runResult.getOutput() != null && !runResult.getOutput().isBlank())) {
+            augmentedDescription.append("Program stdout:\n").append(runResult.getOutput()).append("\n");
+        }
+        if (runResult.getError() != null && !runResult.getError().isBlank()) {
+            augmentedDescription.append("Program runtime stderr/error:\n").append(runResult.getError()).append("\n");
+        }
+
+        CodeRequest forAi = new CodeRequest();
+        forAi.setCode(request.getCode());
+        forAi.setLanguage(request.getLanguage());
+        forAi.setDescription(augmentedDescription.toString());
+        return forAi;
+    }
+
+    private CodeResponse withRunOutput(CodeResponse aiResp, CodeResponse runResult) {
+        if ((aiResp == null) || ((aiResp.getCorrectedCode() == null || aiResp.getCorrectedCode().isBlank())
+                && (aiResp.getExplanation() == null || aiResp.getExplanation().isBlank()))) {
+            CodeResponse fallback = new CodeResponse();
+            fallback.setExplanation("AI did not return a usable response. Here is the program's runtime info.");
+            fallback.setOutput(runResult.getOutput());
+            fallback.setError(runResult.getError());
+            return fallback;
+        }
+
+        if (aiResp.getExplanation() == null) aiResp.setExplanation("");
+        aiResp.setExplanation(aiResp.getExplanation() + "\n\n--- Previous run output (for reference) ---\n" +
+                (runResult.getOutput() == null ? "" : runResult.getOutput()) +
+                (runResult.getError() == null ? "" : ("\nErrors:\n" + runResult.getError()))
+        );
+        return aiResp;
+    }
+}
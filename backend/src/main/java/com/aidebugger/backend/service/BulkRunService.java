@@ -0,0 +1,459 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.BatchRequest;
+import com.aidebugger.backend.model.BatchResponse;
+import com.aidebugger.backend.model.BulkResult;
+import com.aidebugger.backend.model.BulkSubmission;
+import com.aidebugger.backend.model.BulkSummary;
+import com.aidebugger.backend.model.CodeRequest;
+import com.aidebugger.backend.model.CodeResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Runs a whole classroom's submissions from one upload.
+ *
+ * Submissions are read as they arrive (NDJSON) or from a zip, and identical submissions run
+ * once. Runs go through the execution scheduler as one internal client per upload, and at
+ * most {@code executor.bulk.parallelism} of them are in flight, so a bulk run keeps every core
+ * busy without starving interactive users. Each result is written as one NDJSON line when it
+ * completes, followed by a summary line; the summary and per-submission statuses can also be
+ * saved as a report file under {@code executor.bulk.report-dir}.
+ */
+@Service
+public class BulkRunService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkRunService.class);
+
+    private static final int MAX_CODE_CHARS = 300_000;
+    private static final int MAX_INPUT_CHARS = 50_000;
+
+    @Autowired
+    private LocalExecutorService localExecutorService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    // 0 means one per core
+    @Value("${executor.bulk.parallelism:0}")
+    private int parallelism;
+
+    @Value("${executor.bulk.max-submissions:5000}")
+    private int maxSubmissions;
+
+    @Value("${executor.bulk.report-dir:}")
+    private String reportDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ExecutorService workers;
+    private ExecutorService coordinators;
+
+    /** Receives the NDJSON lines of one bulk run, without the trailing newline. */
+    public interface LineSink {
+        void send(String line) throws IOException;
+    }
+
+    @PostConstruct
+    void init() {
+        if (parallelism <= 0) parallelism = Runtime.getRuntime().availableProcessors();
+        workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "bulk-run");
+            t.setDaemon(true);
+            return t;
+        });
+        coordinators = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "bulk-coordinator");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinators.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Starts a bulk run in the background. Cancelling the returned future (e.g. when the client
+     * disconnects) stops reading submissions and kills the runs in flight.
+     *
+     * @param sharedInput stdin for zip submissions when the zip has no {@code tests.json}
+     */
+    public Future<?> start(InputStream body, boolean zip, String sharedInput, Client client,
+                           LineSink sink, Runnable onDone) {
+        return coordinators.submit(() -> {
+            try {
+                Iterator<BulkSubmission> submissions = zip ? readZip(body, sharedInput) : readNdjson(body);
+                run(submissions, client.withId("bulk:" + client.getId()), sink);
+            } catch (InterruptedException e) {
+                // cancelled: the client went away or the response timed out
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("Bulk run failed: {}", e.toString());
+                BulkSummary failed = new BulkSummary();
+                failed.setError("Could not read submissions: " + e.getMessage());
+                try {
+                    sink.send(mapper.writeValueAsString(Map.of("summary", failed)));
+                } catch (IOException ignored) {
+                    // client is gone
+                }
+            } finally {
+                onDone.run();
+            }
+            return null;
+        });
+    }
+
+    private void run(Iterator<BulkSubmission> submissions, Client client, LineSink sink) throws Exception {
+        long started = System.nanoTime();
+        Semaphore inFlight = new Semaphore(parallelism);
+        Map<String, Leader> leaders = new HashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        List<BulkResult> report = Collections.synchronizedList(new ArrayList<>());
+        Emitter emitter = new Emitter(sink, report);
+        int total = 0;
+        int duplicates = 0;
+        try {
+            while (submissions.hasNext() && !emitter.failed()) {
+                BulkSubmission sub = submissions.next();
+                total++;
+                if (sub.getId() == null || sub.getId().isBlank()) sub.setId("#" + total);
+                String problem = total > maxSubmissions ? "Too many submissions; the limit is " + maxSubmissions + "." : validate(sub);
+                if (problem != null) {
+                    CodeResponse err = new CodeResponse();
+                    err.setError(problem);
+                    emitter.emit(result(sub.getId(), "INVALID", null, 0, err));
+                    continue;
+                }
+
+                String key = dedupKey(sub);
+                Leader leader = leaders.get(key);
+                if (leader != null) {
+                    duplicates++;
+                    leader.follow(sub.getId(), emitter);
+                    continue;
+                }
+                leader = new Leader(sub.getId());
+                leaders.put(key, leader);
+
+                inFlight.acquire();
+                Leader mine = leader;
+                futures.add(workers.submit(() -> {
+                    try {
+                        long start = System.nanoTime();
+                        Object result = execute(sub, client);
+                        mine.finish(status(result), result, (System.nanoTime() - start) / 1_000_000, emitter);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+            if (emitter.failed()) {
+                // nobody is listening any more
+                futures.forEach(f -> f.cancel(true));
+                return;
+            }
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+
+        BulkSummary summary = new BulkSummary();
+        summary.setTotal(total);
+        summary.setExecuted(leaders.size());
+        summary.setDuplicates(duplicates);
+        Map<String, Integer> statuses = new TreeMap<>();
+        synchronized (report) {
+            for (BulkResult r : report) statuses.merge(r.getStatus(), 1, Integer::sum);
+        }
+        summary.setStatuses(statuses);
+        summary.setTimeMillis((System.nanoTime() - started) / 1_000_000);
+        summary.setReport(writeReport(summary, report));
+        emitter.send(Map.of("summary", summary));
+    }
+
+    /** Runs one submission under a scheduler permit, waiting out a busy scheduler rather than failing. */
+    private Object execute(BulkSubmission sub, Client client) throws InterruptedException {
+        while (true) {
+            try (ExecutionScheduler.Permit ignored = executionScheduler.acquire(sub.getLanguage(), client, parallelism)) {
+                if (sub.getTests() != null && !sub.getTests().isEmpty()) {
+                    BatchRequest batch = new BatchRequest();
+                    batch.setCode(sub.getCode());
+                    batch.setLanguage(sub.getLanguage());
+                    batch.setTests(sub.getTests());
+                    return localExecutorService.runBatch(batch);
+                }
+                CodeRequest run = new CodeRequest();
+                run.setCode(sub.getCode());
+                run.setLanguage(sub.getLanguage());
+                run.setInput(sub.getInput());
+                run.setClientId(client.getId());
+                return localExecutorService.executeCode(run);
+            } catch (ExecutionRejectedException e) {
+                if (e.getStatus() != HttpStatus.SERVICE_UNAVAILABLE) {
+                    CodeResponse err = new CodeResponse();
+                    err.setError(e.getMessage());
+                    return err;
+                }
+                TimeUnit.SECONDS.sleep(Math.max(1, e.getRetryAfterSeconds()));
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                CodeResponse err = new CodeResponse();
+                err.setError("Execution error: " + e.getMessage());
+                return err;
+            }
+        }
+    }
+
+    static String status(Object result) {
+        if (result instanceof BatchResponse) {
+            BatchResponse b = (BatchResponse) result;
+            if (b.getCompileOutput() != null && !b.getCompileOutput().isBlank()) return "COMPILE_ERROR";
+            if (b.getError() != null) return "RUNTIME_ERROR";
+            return b.getFailed() == 0 && b.getSkipped() == 0 ? "PASSED" : "FAILED";
+        }
+        CodeResponse r = (CodeResponse) result;
+        if (r.getCompileOutput() != null && !r.getCompileOutput().isBlank()) return "COMPILE_ERROR";
+        if (r.getError() != null && r.getError().startsWith("Execution timed out")) return "TIMEOUT";
+        if (r.getError() != null && !r.getError().isBlank()) return "RUNTIME_ERROR";
+        return "OK";
+    }
+
+    private static String validate(BulkSubmission sub) {
+        if (sub.getCode() == null || sub.getCode().trim().isEmpty()) return "Code is empty.";
+        if (sub.getLanguage() == null || sub.getLanguage().isBlank()) return "Language is missing.";
+        if (sub.getCode().length() > MAX_CODE_CHARS) return "Source too large. Maximum allowed size is 300 KB.";
+        if (sub.getInput() != null && sub.getInput().length() > MAX_INPUT_CHARS) return "Input too large. Maximum allowed stdin size is 50 KB.";
+        return null;
+    }
+
+    /** Identical language, source and stdin (or tests) produce the same result. */
+    private String dedupKey(BulkSubmission sub) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(sub.getLanguage().toLowerCase().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(sub.getCode().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(sub.getInput() == null ? new byte[0] : sub.getInput().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            if (sub.getTests() != null) md.update(mapper.writeValueAsBytes(sub.getTests()));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static BulkResult result(String id, String status, String duplicateOf, long timeMillis, Object result) {
+        BulkResult r = new BulkResult();
+        r.setId(id);
+        r.setStatus(status);
+        r.setDuplicateOf(duplicateOf);
+        r.setTimeMillis(timeMillis);
+        r.setResult(result);
+        return r;
+    }
+
+    private String writeReport(BulkSummary summary, List<BulkResult> results) {
+        if (reportDir == null || reportDir.isBlank()) return null;
+        try {
+            Path dir = Paths.get(reportDir);
+            Files.createDirectories(dir);
+            Path file = dir.resolve("bulk-" + System.currentTimeMillis() + ".json");
+            List<Map<String, Object>> rows = new ArrayList<>();
+            synchronized (results) {
+                for (BulkResult r : results) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("id", r.getId());
+                    row.put("status", r.getStatus());
+                    row.put("duplicateOf", r.getDuplicateOf());
+                    row.put("timeMillis", r.getTimeMillis());
+                    rows.add(row);
+                }
+            }
+            Map<String, Object> doc = new LinkedHashMap<>();
+            doc.put("summary", summary);
+            doc.put("submissions", rows);
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), doc);
+            return file.toAbsolutePath().toString();
+        } catch (IOException e) {
+            logger.warn("Could not write bulk report to {}: {}", reportDir, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Reads one submission per line, lazily, so runs start before the upload has finished. */
+    private Iterator<BulkSubmission> readNdjson(InputStream body) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return new Iterator<>() {
+            private int lineNo;
+            private String next = advance();
+
+            private String advance() {
+                try {
+                    String line;
+                    do {
+                        line = reader.readLine();
+                        lineNo++;
+                    } while (line != null && line.isBlank());
+                    return line;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public BulkSubmission next() {
+                if (next == null) throw new NoSuchElementException();
+                String line = next;
+                int at = lineNo;
+                next = advance();
+                try {
+                    return mapper.readValue(line, BulkSubmission.class);
+                } catch (IOException e) {
+                    // reported as an invalid submission
+                    BulkSubmission bad = new BulkSubmission();
+                    bad.setId("line " + at);
+                    return bad;
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads every source file of a zip, taking the language from the extension. A
+     * {@code tests.json} anywhere in the zip applies to every submission, so the zip is read
+     * fully before anything runs.
+     */
+    private Iterator<BulkSubmission> readZip(InputStream body, String sharedInput) throws IOException {
+        List<BulkSubmission> subs = new ArrayList<>();
+        List<BatchRequest.TestCase> tests = null;
+        try (ZipInputStream zin = new ZipInputStream(body)) {
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                if (entry.isDirectory()) continue;
+                String name = entry.getName();
+                String fileName = name.substring(name.lastIndexOf('/') + 1);
+                if (fileName.equals("tests.json")) {
+                    tests = mapper.readValue(zin.readNBytes(MAX_INPUT_CHARS * 200), new TypeReference<List<BatchRequest.TestCase>>() { });
+                    continue;
+                }
+                String language = languageOf(fileName);
+                if (language == null) continue;
+                if (subs.size() >= maxSubmissions) throw new IOException("Too many submissions; the limit is " + maxSubmissions + ".");
+                BulkSubmission sub = new BulkSubmission();
+                sub.setId(name);
+                sub.setLanguage(language);
+                sub.setCode(new String(zin.readNBytes(MAX_CODE_CHARS * 4 + 1), StandardCharsets.UTF_8));
+                sub.setInput(sharedInput);
+                subs.add(sub);
+            }
+        }
+        if (tests != null) {
+            for (BulkSubmission sub : subs) sub.setTests(tests);
+        }
+        return subs.iterator();
+    }
+
+    private static String languageOf(String fileName) {
+        if (fileName.endsWith(".c")) return "c";
+        if (fileName.endsWith(".java")) return "java";
+        if (fileName.endsWith(".py")) return "python";
+        return null;
+    }
+
+    /** First submission with a given key; later identical ones reuse its result. */
+    private static final class Leader {
+        private final String id;
+        private final List<String> followers = new ArrayList<>();
+        private String status;
+        private Object result;
+
+        Leader(String id) {
+            this.id = id;
+        }
+
+        void follow(String followerId, Emitter emitter) {
+            synchronized (this) {
+                if (result == null) {
+                    followers.add(followerId);
+                    return;
+                }
+            }
+            emitter.emit(result(followerId, status, id, 0, result));
+        }
+
+        void finish(String status, Object result, long timeMillis, Emitter emitter) {
+            List<String> waiting;
+            synchronized (this) {
+                this.status = status;
+                this.result = result;
+                waiting = new ArrayList<>(followers);
+            }
+            emitter.emit(result(id, status, null, timeMillis, result));
+            for (String f : waiting) emitter.emit(result(f, status, id, 0, result));
+        }
+    }
+
+    /** Serializes lines to the sink one at a time and remembers when the client went away. */
+    private final class Emitter {
+        private final LineSink sink;
+        private final List<BulkResult> report;
+        private volatile boolean failed;
+
+        Emitter(LineSink sink, List<BulkResult> report) {
+            this.sink = sink;
+            this.report = report;
+        }
+
+        void emit(BulkResult r) {
+            // the report only needs the outcome, not the (possibly large) output
+            report.add(result(r.getId(), r.getStatus(), r.getDuplicateOf(), r.getTimeMillis(), null));
+            send(r);
+        }
+
+        synchronized void send(Object line) {
+            if (failed) return;
+            try {
+                sink.send(mapper.writeValueAsString(line));
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+            }
+        }
+
+        boolean failed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.aidebugger.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Class-data-sharing archive for the JVMs that run user programs.
+ *
+ * The JDK's default archive only covers the classes needed to boot. This one also holds what
+ * student programs load next (Scanner, formatting, collections, streams, lambda and string
+ * concatenation bootstraps, exception printing), found by running {@code cds/CdsTraining.java}
+ * with a class list dump. Only JDK classes go in, so the archive does not depend on a run's
+ * classpath. It is built in the background on first start and kept under
+ * {@code executor.cds.dir}, named after the JDK it was built for; a different JDK gets a new
+ * archive and the old ones are deleted. Until it is ready, and if building it fails, JVMs
+ * start with the default archive as before.
+ */
+@Component
+public class ClassDataSharing {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassDataSharing.class);
+
+    private static final String JAVA_HOME = System.getProperty("java.home");
+    private static final String JAVA_BIN = Paths.get(JAVA_HOME, "bin", "java").toString();
+    private static final String TRAINING_CLASS = "CdsTraining";
+    private static final String TRAINING_INPUT = "3\nasha 91\nben 78\ncara 85\n1.5\nhello world\n255\n";
+    private static final long STEP_TIMEOUT_SECONDS = 120;
+    // only boot and platform classes; anything else would tie the archive to a classpath
+    private static final List<String> JDK_PACKAGES = List.of("java/", "javax/", "jdk/", "sun/", "com/sun/");
+
+    @Autowired
+    private InMemoryJavaCompiler javaCompiler;
+
+    @Value("${executor.cds.enabled:true}")
+    private boolean enabled;
+
+    /** Where archives are kept across restarts; defaults to {@code <tmpdir>/aidebugger-cds}. */
+    @Value("${executor.cds.dir:}")
+    private String dirProperty;
+
+    private Path archive;
+    private volatile boolean ready;
+    private ExecutorService builder;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) return;
+        Path dir = dirProperty == null || dirProperty.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "aidebugger-cds")
+                : Paths.get(dirProperty);
+        try {
+            Files.createDirectories(dir);
+            archive = dir.resolve("jdk-" + jdkFingerprint() + ".jsa");
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.warn("Class data sharing archive disabled: {}", e.getMessage());
+            return;
+        }
+        removeStaleArchives(dir);
+        if (Files.isRegularFile(archive) && archiveWorks(archive)) {
+            ready = true;
+            logger.info("Java runs use class data sharing archive {}", archive);
+            return;
+        }
+        builder = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "cds-archive");
+            t.setDaemon(true);
+            return t;
+        });
+        builder.execute(this::build);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (builder != null) builder.shutdownNow();
+    }
+
+    /** Options selecting the archive for a user-program JVM; empty until it is built. */
+    public List<String> jvmOptions() {
+        if (!ready) return List.of();
+        // never let a CDS warning end up in a program's output
+        return List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto", "-Xlog:cds*=off");
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        Path work = null;
+        try {
+            work = Files.createTempDirectory("cds_");
+            Path classes = Files.createDirectories(work.resolve("classes"));
+            compileTraining(classes);
+
+            Path userList = work.resolve("user.classlist");
+            run(work, TRAINING_INPUT, "-Xshare:off", "-XX:DumpLoadedClassList=" + userList, "-cp", classes.toString(), TRAINING_CLASS);
+
+            Path classList = work.resolve("jdk.classlist");
+            int count = mergeClassLists(classList, userList);
+
+            Path tmp = archive.resolveSibling(archive.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+            Files.deleteIfExists(tmp);
+            int exit = run(work, "", "-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + tmp, "-Xlog:cds*=off");
+            if (exit != 0 || !archiveWorks(tmp)) {
+                Files.deleteIfExists(tmp);
+                logger.warn("Could not build a class data sharing archive (exit {}); Java runs use the JDK default", exit);
+                return;
+            }
+            Files.move(tmp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            ready = true;
+            logger.info("Built class data sharing archive {} with {} classes in {} ms", archive, count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Could not build a class data sharing archive: {}", e.getMessage());
+        } finally {
+            if (work != null) deleteQuietly(work);
+        }
+    }
+
+    private void compileTraining(Path classes) throws IOException, InterruptedException {
+        String source;
+        try (InputStream is = ClassDataSharing.class.getResourceAsStream("/cds/" + TRAINING_CLASS + ".java")) {
+            if (is == null) throw new IOException("missing cds/" + TRAINING_CLASS + ".java");
+            source = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        // compiled like a submission, so the archive gets the bootstraps javac emits for user code
+        if (javaCompiler.isAvailable()) {
+            InMemoryJavaCompiler.Result result = javaCompiler.compile(TRAINING_CLASS + ".java", source, List.of());
+            if (result.getClasses().isEmpty()) throw new IOException("training program does not compile: " + result.getDiagnostics());
+            for (Map.Entry<String, byte[]> e : result.getClasses().entrySet()) {
+                Files.write(classes.resolve(e.getKey() + ".class"), e.getValue());
+            }
+            return;
+        }
+        Path src = classes.resolveSibling(TRAINING_CLASS + ".java");
+        Files.writeString(src, source);
+        Process p = new ProcessBuilder(Paths.get(JAVA_HOME, "bin", "javac").toString(), "-d", classes.toString(), src.toString())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        if (!p.waitFor(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS) || p.exitValue() != 0) {
+            p.destroyForcibly();
+            throw new IOException("javac failed on the training program");
+        }
+    }
+
+    /**
+     * Writes the JDK classes named in {@code lists} to {@code target}, once each, and returns how
+     * many there are.
+     */
+    static int mergeClassLists(Path target, Path... lists) throws IOException {
+        Set<String> lines = new LinkedHashSet<>();
+        int classes = 0;
+        for (Path list : lists) {
+            for (String line : Files.readAllLines(list)) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] parts = line.trim().split("\\s+");
+                if (line.startsWith("@lambda-form-invoker")) {
+                    lines.add(line);
+                } else if (line.startsWith("@lambda-proxy")) {
+                    if (parts.length > 1 && isJdkClass(parts[1])) lines.add(line);
+                } else if (!line.startsWith("@") && isJdkClass(parts[0]) && !line.contains(" source:")) {
+                    // ids are per list and only needed for classes from custom loaders
+                    if (lines.add(parts[0])) classes++;
+                }
+            }
+        }
+        Files.write(target, lines);
+        return classes;
+    }
+
+    private static boolean isJdkClass(String name) {
+        for (String p : JDK_PACKAGES) {
+            if (name.startsWith(p)) return true;
+        }
+        return false;
+    }
+
+    /** Maps the archive the way a run would; a stale or corrupt file fails here instead. */
+    private static boolean archiveWorks(Path jsa) {
+        try {
+            Process p = new ProcessBuilder(JAVA_BIN, "-XX:SharedArchiveFile=" + jsa, "-Xshare:on", "-XX:+UseSerialGC", "-Xmx256m", "-version")
+                    .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (p.waitFor(30, TimeUnit.SECONDS)) return p.exitValue() == 0;
+            p.destroyForcibly();
+            return false;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static int run(Path dir, String input, String... args) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(JAVA_BIN);
+        cmd.addAll(Arrays.asList(args));
+        Process p = new ProcessBuilder(cmd).directory(dir.toFile())
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try (var os = p.getOutputStream()) {
+            os.write(input.getBytes(StandardCharsets.UTF_8));
+        }
+        if (!p.waitFor(STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            p.destroyForcibly();
+            throw new IOException("timed out: " + String.join(" ", args));
+        }
+        return p.exitValue();
+    }
+
+    /**
+     * Identifies the JDK an archive belongs to: its location and version, and the size and
+     * timestamp of its module image, which change when the JDK is updated in place.
+     */
+    private static String jdkFingerprint() throws IOException, NoSuchAlgorithmException {
+        StringBuilder id = new StringBuilder(JAVA_HOME).append('|')
+                .append(System.getProperty("java.vm.version")).append('|')
+                .append(System.getProperty("os.arch"));
+        Path modules = Paths.get(JAVA_HOME, "lib", "modules");
+        if (Files.exists(modules)) {
+            id.append('|').append(Files.size(modules)).append('|').append(Files.getLastModifiedTime(modules).toMillis());
+        }
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(id.toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest, 0, 8);
+    }
+
+    private void removeStaleArchives(Path dir) {
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(dir, "jdk-*.jsa")) {
+            for (Path p : old) {
+                if (!p.equals(archive)) {
+                    Files.deleteIfExists(p);
+                    logger.info("Removed class data sharing archive of another JDK: {}", p.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot clean up old class data sharing archives in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try (Stream<Path> s = Files.walk(path)) {
+            s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.aidebugger.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What a compiled class refers to, read from its class file, for deciding what an edit forces
+ * to be recompiled.
+ *
+ * References are the classes named in the constant pool and in type descriptors and generic
+ * signatures. Constants are the {@code static final} fields javac inlines into the classes
+ * that use them, which leaves no reference behind; a change to one needs a full rebuild.
+ */
+final class ClassDependencies {
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final Pattern DESCRIPTOR_CLASS = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private ClassDependencies() {
+    }
+
+    static final class Info {
+        private final String name;
+        private final String superName;
+        private final List<String> interfaces;
+        private final Set<String> references;
+        private final String constants;
+        private final boolean hasMain;
+
+        Info(String name, String superName, List<String> interfaces, Set<String> references, String constants, boolean hasMain) {
+            this.name = name;
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.references = references;
+            this.constants = constants;
+            this.hasMain = hasMain;
+        }
+
+        /** Binary name, e.g. {@code shapes.Circle$Builder}. */
+        String name() { return name; }
+        /** The superclass and interfaces, by binary name. */
+        List<String> supertypes() {
+            List<String> all = new ArrayList<>(interfaces);
+            if (superName != null) all.add(superName);
+            return all;
+        }
+        /** Every class this one names, by binary name, itself included. */
+        Set<String> references() { return references; }
+        /** Names and values of the compile-time constants it declares; equal strings mean equal constants. */
+        String constants() { return constants; }
+        /** Declares {@code public static void main(String[])}. */
+        boolean hasMain() { return hasMain; }
+    }
+
+    static Info read(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != 0xCAFEBABE) throw new IOException("not a class file");
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        int count = in.readUnsignedShort();
+        Object[] pool = new Object[count];
+        int[] tags = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = tag;
+            switch (tag) {
+                case 1 -> pool[i] = in.readUTF();
+                case 3 -> pool[i] = in.readInt();
+                case 4 -> pool[i] = in.readFloat();
+                case 5 -> { pool[i] = in.readLong(); i++; }
+                case 6 -> { pool[i] = in.readDouble(); i++; }
+                case 7, 8, 16, 19, 20 -> pool[i] = in.readUnsignedShort();
+                case 9, 10, 11, 12, 17, 18 -> in.readInt();
+                case 15 -> { in.readUnsignedByte(); in.readUnsignedShort(); }
+                default -> throw new IOException("unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> references = new TreeSet<>();
+        for (int i = 1; i < count; i++) {
+            if (tags[i] == 7) {
+                String internal = (String) pool[(Integer) pool[i]];
+                if (internal.startsWith("[")) {
+                    addDescriptorClasses(internal, references);
+                } else {
+                    references.add(binaryName(internal));
+                }
+            } else if (tags[i] == 1) {
+                addDescriptorClasses((String) pool[i], references);
+            }
+        }
+
+        in.readUnsignedShort();
+        String name = binaryName((String) pool[(Integer) pool[in.readUnsignedShort()]]);
+        int superIndex = in.readUnsignedShort();
+        String superName = superIndex == 0 ? null : binaryName((String) pool[(Integer) pool[superIndex]]);
+        int interfaceCount = in.readUnsignedShort();
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(binaryName((String) pool[(Integer) pool[in.readUnsignedShort()]]));
+        }
+
+        StringBuilder constants = new StringBuilder();
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            in.readUnsignedShort();
+            String fieldName = (String) pool[in.readUnsignedShort()];
+            in.readUnsignedShort();
+            int attributes = in.readUnsignedShort();
+            for (int a = 0; a < attributes; a++) {
+                String attribute = (String) pool[in.readUnsignedShort()];
+                int length = in.readInt();
+                if (attribute.equals("ConstantValue") && length == 2) {
+                    int index = in.readUnsignedShort();
+                    Object value = tags[index] == 8 ? pool[(Integer) pool[index]] : pool[index];
+                    constants.append(fieldName).append('=').append(value).append(';');
+                } else {
+                    in.skipNBytes(length);
+                }
+            }
+        }
+
+        boolean hasMain = false;
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            int access = in.readUnsignedShort();
+            String methodName = (String) pool[in.readUnsignedShort()];
+            String descriptor = (String) pool[in.readUnsignedShort()];
+            if (methodName.equals("main") && descriptor.equals("([Ljava/lang/String;)V")
+                    && (access & (ACC_PUBLIC | ACC_STATIC)) == (ACC_PUBLIC | ACC_STATIC)) {
+                hasMain = true;
+            }
+            int attributes = in.readUnsignedShort();
+            for (int a = 0; a < attributes; a++) {
+                in.readUnsignedShort();
+                in.skipNBytes(in.readInt());
+            }
+        }
+        return new Info(name, superName, interfaces, references, constants.toString(), hasMain);
+    }
+
+    private static void addDescriptorClasses(String s, Set<String> references) {
+        if (s.indexOf('L') < 0) return;
+        Matcher m = DESCRIPTOR_CLASS.matcher(s);
+        while (m.find()) references.add(binaryName(m.group(1)));
+    }
+
+    private static String binaryName(String internal) {
+        return internal.replace('/', '.');
+    }
+}
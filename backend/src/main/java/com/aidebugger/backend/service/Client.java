@@ -0,0 +1,26 @@
+package com.aidebugger.backend.service;
+
+/**
+ * Who a run is for: the token the server issued to the client, which keys fairness and
+ * sessions, and the network address the request came from, which bounds how many clients one
+ * host can queue for.
+ */
+public final class Client {
+
+    private final String id;
+    private final String address;
+
+    public Client(String id, String address) {
+        this.id = id == null ? "" : id;
+        this.address = address == null ? "" : address;
+    }
+
+    /** The same address under another id, e.g. a bulk run queueing apart from its owner's runs. */
+    public Client withId(String id) {
+        return new Client(id, address);
+    }
+
+    public String getId() { return id; }
+
+    public String getAddress() { return address; }
+}
@@ -0,0 +1,219 @@
+package com.aidebugger.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of compiled artifacts (C binaries, Java class files).
+ *
+ * Entries are content addressed: the key is a SHA-256 over the language, the source,
+ * the compiler flags and the toolchain version, so a resubmission of unchanged code
+ * can skip compilation entirely. Entries are evicted least-recently-used once the
+ * total size exceeds {@code executor.compile-cache.max-bytes}.
+ */
+@Service
+public class CompileCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompileCacheService.class);
+
+    @Value("${executor.compile-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${executor.compile-cache.dir:}")
+    private String cacheDirProperty;
+
+    @Value("${executor.compile-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    private Path root;
+
+    // key -> entry size in bytes, kept in access order for LRU eviction
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, String> toolchainVersions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (!enabled) return;
+        try {
+            root = (cacheDirProperty == null || cacheDirProperty.isBlank())
+                    ? Paths.get(System.getProperty("java.io.tmpdir"), "aidebugger-compile-cache")
+                    : Paths.get(cacheDirProperty);
+            Files.createDirectories(root);
+            loadIndex();
+        } catch (IOException e) {
+            logger.warn("Compile cache disabled, cannot use directory {}: {}", root, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the cache key for a compilation. The toolchain version is part of the key so
+     * that upgrading gcc/javac never serves artifacts built by the old compiler.
+     */
+    public String key(String language, String source, List<String> flags, String toolchainVersion) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { language, String.join(" ", flags), toolchainVersion, source }) {
+                byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+                md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                md.update((byte) ':');
+                md.update(bytes);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Copies the cached artifacts for {@code key} into {@code dir}.
+     *
+     * @return true on a cache hit, false if there is no entry (or it vanished concurrently)
+     */
+    public boolean restore(String key, Path dir) {
+        if (!enabled) return false;
+        synchronized (this) {
+            if (index.get(key) == null) return false;
+        }
+        Path entry = root.resolve(key);
+        try (Stream<Path> files = Files.list(entry)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                Path target = dir.resolve(f.getFileName().toString());
+                Files.copy(f, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            return true;
+        } catch (IOException e) {
+            // entry evicted while we were copying; treat as a miss
+            synchronized (this) {
+                Long size = index.remove(key);
+                if (size != null) totalBytes -= size;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Stores the given artifacts (regular files inside {@code dir}) under {@code key}.
+     * Failures are logged and otherwise ignored; the cache is only an optimisation.
+     */
+    public void store(String key, Path dir, List<String> artifactNames) {
+        if (!enabled) return;
+        synchronized (this) {
+            if (index.containsKey(key)) return;
+        }
+        Path staging = null;
+        try {
+            staging = Files.createTempDirectory(root, ".staging_");
+            long size = 0;
+            for (String name : artifactNames) {
+                Path src = dir.resolve(name);
+                Files.copy(src, staging.resolve(name), StandardCopyOption.COPY_ATTRIBUTES);
+                size += Files.size(src);
+            }
+            Path entry = root.resolve(key);
+            try {
+                Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+                staging = null;
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException raced) {
+                // another request stored the same key first
+                return;
+            }
+            synchronized (this) {
+                index.put(key, size);
+                totalBytes += size;
+                evictIfNeeded();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not store compile cache entry {}: {}", key, e.getMessage());
+        } finally {
+            if (staging != null) deleteQuietly(staging);
+        }
+    }
+
+    /**
+     * Returns the first line of an external toolchain's version banner, resolved once per process.
+     */
+    public String toolchainVersion(String tool) {
+        if (tool == null) return "";
+        return toolchainVersions.computeIfAbsent(tool, t -> {
+            String flag = t.equals("javac") ? "-version" : "--version";
+            try {
+                Process p = new ProcessBuilder(t, flag).redirectErrorStream(true).start();
+                String line;
+                try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                    line = br.readLine();
+                }
+                p.waitFor(5, TimeUnit.SECONDS);
+                return line == null ? t : line.trim();
+            } catch (IOException | InterruptedException e) {
+                return t;
+            }
+        });
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            deleteQuietly(root.resolve(eldest.getKey()));
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> s = Files.list(root)) {
+            s.forEach(entries::add);
+        }
+        entries.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+        synchronized (this) {
+            for (Path p : entries) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(".staging_")) {
+                    deleteQuietly(p);
+                    continue;
+                }
+                long size = 0;
+                try (Stream<Path> files = Files.list(p)) {
+                    for (Path f : (Iterable<Path>) files::iterator) size += Files.size(f);
+                } catch (IOException e) {
+                    deleteQuietly(p);
+                    continue;
+                }
+                index.put(name, size);
+                totalBytes += size;
+            }
+            evictIfNeeded();
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try (Stream<Path> s = Files.walk(path)) {
+            s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeResponse;
+
+/**
+ * Receives a Gemini answer while it is being generated, for streaming clients.
+ *
+ * Text before the first code fence arrives as explanation, the body of that fence as corrected
+ * code; anything after the closing fence is not forwarded. The final {@code CodeResponse} is
+ * parsed from the complete answer exactly as in batch mode and is the authoritative result.
+ * Callbacks arrive on I/O threads and must not block.
+ */
+public interface DebugStreamListener {
+
+    DebugStreamListener NONE = new DebugStreamListener() {
+        @Override
+        public void onExplanation(String text) {
+        }
+
+        @Override
+        public void onCorrectedCode(String text) {
+        }
+    };
+
+    /** Called once the program run that provides the AI's context has finished. */
+    default void onRunResult(CodeResponse runResult) {
+    }
+
+    void onExplanation(String text);
+
+    void onCorrectedCode(String text);
+}
@@ -0,0 +1,24 @@
+package com.aidebugger.backend.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown by {@link ExecutionScheduler} when a run cannot be admitted. Carries the HTTP status
+ * to answer with (429 for a client over its share, 503 when the lane is saturated) and a
+ * Retry-After hint.
+ */
+public class ExecutionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public ExecutionRejectedException(HttpStatus status, String message, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() { return status; }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
@@ -0,0 +1,272 @@
+package com.aidebugger.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of {@link LocalExecutorService}.
+ *
+ * Every language has its own lane with a fixed number of concurrent runs (default: one per
+ * core) and a bounded wait queue. Waiting requests are served round-robin across clients, so
+ * one client resubmitting in a loop cannot starve a classroom. Each client may queue only a few
+ * runs; a network address may queue more, enough for a classroom behind one NAT, but not the
+ * whole lane, so a host cannot crowd others out by posing as many clients. When a lane is saturated,
+ * requests are rejected immediately with an {@link ExecutionRejectedException} instead of
+ * piling up compilers on the host.
+ */
+@Service
+public class ExecutionScheduler {
+
+    @Value("${executor.scheduler.c.concurrency:0}")
+    private int cConcurrency;
+
+    @Value("${executor.scheduler.java.concurrency:0}")
+    private int javaConcurrency;
+
+    @Value("${executor.scheduler.python.concurrency:0}")
+    private int pythonConcurrency;
+
+    @Value("${executor.scheduler.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${executor.scheduler.max-queued-per-client:4}")
+    private int maxQueuedPerClient;
+
+    @Value("${executor.scheduler.max-queued-per-address:32}")
+    private int maxQueuedPerAddress;
+
+    @Value("${executor.scheduler.max-wait-ms:15000}")
+    private long maxWaitMs;
+
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+
+    /** Releases the slot taken by {@link #acquire}; closing twice is harmless. */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static class LaneStats {
+        private final String language;
+        private final int concurrency;
+        private final int running;
+        private final int queued;
+        private final long admitted;
+        private final long rejected;
+        private final double avgWaitMs;
+        private final double maxWaitMs;
+
+        LaneStats(String language, int concurrency, int running, int queued, long admitted, long rejected,
+                  double avgWaitMs, double maxWaitMs) {
+            this.language = language;
+            this.concurrency = concurrency;
+            this.running = running;
+            this.queued = queued;
+            this.admitted = admitted;
+            this.rejected = rejected;
+            this.avgWaitMs = avgWaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        public String getLanguage() { return language; }
+        public int getConcurrency() { return concurrency; }
+        public int getRunning() { return running; }
+        public int getQueued() { return queued; }
+        public long getAdmitted() { return admitted; }
+        public long getRejected() { return rejected; }
+        public double getAvgWaitMs() { return avgWaitMs; }
+        public double getMaxWaitMs() { return maxWaitMs; }
+    }
+
+    @PostConstruct
+    void init() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        lanes.put("c", new Lane("c", cConcurrency > 0 ? cConcurrency : cores));
+        lanes.put("java", new Lane("java", javaConcurrency > 0 ? javaConcurrency : cores));
+        lanes.put("python", new Lane("python", pythonConcurrency > 0 ? pythonConcurrency : cores));
+    }
+
+    /**
+     * Waits for a run slot in the language's lane.
+     *
+     * @throws ExecutionRejectedException when the lane's queue or the client's or its address's
+     *         share of it is full, or no slot frees up within {@code executor.scheduler.max-wait-ms}
+     */
+    public Permit acquire(String language, Client client) throws InterruptedException {
+        return acquire(language, client, maxQueuedPerClient);
+    }
+
+    /**
+     * Like {@link #acquire(String, Client)} with an explicit limit on the client's queued
+     * requests, for internal clients such as bulk runs that bound their own concurrency.
+     */
+    public Permit acquire(String language, Client client, int maxQueued) throws InterruptedException {
+        Lane lane = lanes.get(normalize(language));
+        if (lane == null) {
+            // unsupported languages are rejected by the executor without starting anything
+            return () -> { };
+        }
+        return lane.acquire(client, maxQueued, Math.max(maxQueuedPerAddress, maxQueued));
+    }
+
+    public List<LaneStats> stats() {
+        List<LaneStats> list = new ArrayList<>();
+        for (Lane lane : lanes.values()) list.add(lane.stats());
+        return list;
+    }
+
+    private static String normalize(String language) {
+        String lang = language == null ? "" : language.toLowerCase();
+        return lang.equals("py") ? "python" : lang;
+    }
+
+    private final class Lane {
+        private final String language;
+        private final int concurrency;
+        private int running;
+        private int queued;
+        // client -> its waiting tickets; iteration order is the round-robin order
+        private final LinkedHashMap<String, ArrayDeque<Ticket>> waiting = new LinkedHashMap<>();
+        // address -> how many of the waiting tickets came from it
+        private final Map<String, Integer> queuedByAddress = new HashMap<>();
+        private long admitted;
+        private long rejected;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+        // moving average of how long a slot is held, for Retry-After
+        private double avgHoldMs = 1000;
+
+        Lane(String language, int concurrency) {
+            this.language = language;
+            this.concurrency = concurrency;
+        }
+
+        synchronized Permit acquire(Client client, int maxQueued, int maxQueuedFromAddress) throws InterruptedException {
+            long start = System.nanoTime();
+            if (running < concurrency && queued == 0) {
+                return admit(start);
+            }
+            String clientId = client.getId();
+            ArrayDeque<Ticket> mine = waiting.get(clientId);
+            if (mine != null && mine.size() >= maxQueued) {
+                rejected++;
+                throw new ExecutionRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many pending runs from this client. Please wait for them to finish.", retryAfterSeconds());
+            }
+            if (queuedByAddress.getOrDefault(client.getAddress(), 0) >= maxQueuedFromAddress) {
+                rejected++;
+                throw new ExecutionRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many pending runs from this network address. Please wait for them to finish.", retryAfterSeconds());
+            }
+            if (queued >= queueCapacity) {
+                rejected++;
+                throw new ExecutionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "The " + language + " runners are busy. Please try again shortly.", retryAfterSeconds());
+            }
+
+            Ticket ticket = new Ticket(client.getAddress());
+            waiting.computeIfAbsent(clientId, k -> new ArrayDeque<>()).add(ticket);
+            queuedByAddress.merge(ticket.address, 1, Integer::sum);
+            queued++;
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            try {
+                while (!ticket.granted) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                if (ticket.granted) {
+                    // handed a slot just as we were interrupted; give it to the next waiter
+                    running--;
+                    dispatch();
+                }
+                throw e;
+            } finally {
+                if (!ticket.granted) {
+                    ArrayDeque<Ticket> q = waiting.get(clientId);
+                    if (q != null && q.remove(ticket)) {
+                        dequeued(ticket);
+                        if (q.isEmpty()) waiting.remove(clientId);
+                    }
+                }
+            }
+            if (!ticket.granted) {
+                rejected++;
+                throw new ExecutionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Timed out waiting for a free " + language + " runner. Please try again shortly.", retryAfterSeconds());
+            }
+            // running was already incremented by dispatch()
+            return permit(start);
+        }
+
+        private Permit admit(long start) {
+            running++;
+            return permit(start);
+        }
+
+        private Permit permit(long start) {
+            long granted = System.nanoTime();
+            long waited = granted - start;
+            admitted++;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+            boolean[] released = { false };
+            return () -> {
+                synchronized (Lane.this) {
+                    if (released[0]) return;
+                    released[0] = true;
+                    avgHoldMs = avgHoldMs * 0.9 + (System.nanoTime() - granted) / 1e6 * 0.1;
+                    running--;
+                    dispatch();
+                }
+            };
+        }
+
+        /** Hands free slots to the next waiting clients in round-robin order. */
+        private void dispatch() {
+            boolean handed = false;
+            while (running < concurrency && queued > 0) {
+                Iterator<Map.Entry<String, ArrayDeque<Ticket>>> it = waiting.entrySet().iterator();
+                Map.Entry<String, ArrayDeque<Ticket>> next = it.next();
+                it.remove();
+                Ticket t = next.getValue().poll();
+                if (!next.getValue().isEmpty()) waiting.put(next.getKey(), next.getValue());
+                dequeued(t);
+                running++;
+                t.granted = true;
+                handed = true;
+            }
+            if (handed) notifyAll();
+        }
+
+        private void dequeued(Ticket t) {
+            queued--;
+            queuedByAddress.computeIfPresent(t.address, (a, n) -> n > 1 ? n - 1 : null);
+        }
+
+        private long retryAfterSeconds() {
+            double seconds = avgHoldMs / 1000.0 * (queued + 1) / concurrency;
+            return Math.max(1, (long) Math.ceil(seconds));
+        }
+
+        synchronized LaneStats stats() {
+            double avgWait = admitted == 0 ? 0 : totalWaitNanos / 1e6 / admitted;
+            return new LaneStats(language, concurrency, running, queued, admitted, rejected, avgWait, maxWaitNanos / 1e6);
+        }
+    }
+
+    private static final class Ticket {
+        final String address;
+        boolean granted;
+
+        Ticket(String address) {
+            this.address = address;
+        }
+    }
+}
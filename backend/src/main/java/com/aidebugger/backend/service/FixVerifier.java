@@ -0,0 +1,112 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeRequest;
+import com.aidebugger.backend.model.CodeResponse;
+import com.aidebugger.backend.model.Verification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the fixes Gemini suggested against the original stdin before they reach the user.
+ *
+ * Candidates (the corrected code, then any alternatives) run in parallel through the normal
+ * execution scheduler, so verification competes fairly with ordinary runs. A candidate passes
+ * when it compiles and exits without a runtime error or stderr output. The whole verification
+ * is bounded by {@code ai-debug.verify.budget-ms}; candidates that do not finish in time are
+ * reported as unverified and the answer is returned anyway.
+ */
+@Service
+public class FixVerifier {
+
+    @Autowired
+    private LocalExecutorService localExecutorService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    /** Verify when the request does not say; requests can opt in or out with {@code verify}. */
+    @Value("${ai-debug.verify.enabled:false}")
+    private boolean enabledByDefault;
+
+    @Value("${ai-debug.verify.budget-ms:8000}")
+    private long budgetMs;
+
+    @Value("${ai-debug.verify.max-candidates:3}")
+    private int maxCandidates;
+
+    /** Adds a verification entry per candidate to {@code aiResp}; answers without code pass through. */
+    public Mono<CodeResponse> annotate(CodeRequest request, CodeResponse aiResp, Client client) {
+        boolean wanted = request.getVerify() != null ? request.getVerify() : enabledByDefault;
+        if (!wanted || aiResp.getCorrectedCode() == null || aiResp.getCorrectedCode().isBlank()) {
+            return Mono.just(aiResp);
+        }
+
+        List<String> candidates = new ArrayList<>();
+        candidates.add(aiResp.getCorrectedCode());
+        if (aiResp.getAlternativeCode() != null) candidates.addAll(aiResp.getAlternativeCode());
+        if (candidates.size() > maxCandidates) candidates = candidates.subList(0, Math.max(1, maxCandidates));
+
+        long deadline = System.currentTimeMillis() + budgetMs;
+        List<String> toRun = candidates;
+        return Flux.range(0, toRun.size())
+                .flatMapSequential(i -> verify(i, toRun.get(i), request, client, deadline), toRun.size())
+                .collectList()
+                .map(verifications -> {
+                    aiResp.setVerification(verifications);
+                    return aiResp;
+                });
+    }
+
+    private Mono<Verification> verify(int index, String code, CodeRequest original, Client client, long deadline) {
+        return Mono.fromCallable(() -> {
+                    try (ExecutionScheduler.Permit ignored = executionScheduler.acquire(original.getLanguage(), client)) {
+                        // the caller has given up on this one while it was queued
+                        if (System.currentTimeMillis() >= deadline) throw new TimeoutException();
+
+                        CodeRequest run = new CodeRequest();
+                        run.setCode(code);
+                        run.setLanguage(original.getLanguage());
+                        run.setInput(original.getInput());
+                        run.setClientId(client.getId());
+                        long start = System.nanoTime();
+                        CodeResponse result = localExecutorService.executeCode(run);
+
+                        Verification v = new Verification();
+                        v.setCandidate(index);
+                        v.setTimeMillis((System.nanoTime() - start) / 1_000_000);
+                        v.setOutput(result.getOutput());
+                        v.setError(result.getError());
+                        v.setCompileOutput(result.getCompileOutput());
+                        v.setPassed(isBlank(result.getCompileOutput()) && isBlank(result.getError()));
+                        return v;
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(Duration.ofMillis(Math.max(1, deadline - System.currentTimeMillis())))
+                .onErrorResume(ex -> {
+                    Verification v = new Verification();
+                    v.setCandidate(index);
+                    if (ex instanceof TimeoutException) {
+                        v.setError("Not verified within the " + budgetMs + " ms budget.");
+                    } else if (ex instanceof ExecutionRejectedException) {
+                        v.setError("Not verified: " + ex.getMessage());
+                    } else {
+                        v.setError("Verification error: " + ex.getMessage());
+                    }
+                    return Mono.just(v);
+                });
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+}
@@ -0,0 +1,453 @@
+package com.aidebugger.backend.service;
+
+import io.netty.channel.ChannelOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upstream HTTP layer for the Gemini API.
+ *
+ * Every attempt goes through a token-bucket limiter sized to our quota and a circuit breaker,
+ * over a dedicated keep-alive connection pool. Attempts failing with 429, 5xx, a timeout or a
+ * connection error are retried with exponential backoff. Optionally, an attempt still running
+ * after the recent p95 latency is hedged with a second request; the first answer wins.
+ */
+@Component
+public class GeminiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+
+    @Value("${gemini.base-url:https://generativelanguage.googleapis.com/v1beta/models}")
+    private String baseUrl;
+
+    @Value("${gemini.client.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${gemini.client.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${gemini.client.attempt-timeout-ms:20000}")
+    private long attemptTimeoutMs;
+
+    // overall budget for one logical call, retries and backoff included
+    @Value("${gemini.client.total-timeout-ms:30000}")
+    private long totalTimeoutMs;
+
+    @Value("${gemini.client.requests-per-minute:60}")
+    private double requestsPerMinute;
+
+    @Value("${gemini.client.burst:10}")
+    private int burst;
+
+    @Value("${gemini.client.max-queue-ms:10000}")
+    private long maxQueueMs;
+
+    @Value("${gemini.client.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${gemini.client.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${gemini.client.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${gemini.client.hedge.min-delay-ms:2000}")
+    private long hedgeMinDelayMs;
+
+    @Value("${gemini.client.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${gemini.client.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    private ConnectionProvider connections;
+    private WebClient webClient;
+    private TokenBucket limiter;
+    private CircuitBreaker breaker;
+    private final LatencyWindow latencies = new LatencyWindow(256);
+
+    /** A non-2xx answer from Gemini. */
+    public static class GeminiHttpException extends RuntimeException {
+        private final HttpStatusCode statusCode;
+        private final String body;
+
+        GeminiHttpException(HttpStatusCode statusCode, String body) {
+            super("HTTP " + statusCode + ": " + body);
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public HttpStatusCode getStatusCode() { return statusCode; }
+
+        public String getBody() { return body; }
+    }
+
+    /** Raised without calling upstream when the limiter queue or the circuit breaker says no. */
+    public static class RejectedException extends RuntimeException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Stats {
+        private final String circuit;
+        private final double availableTokens;
+        private final long p95LatencyMs;
+        private final long hedgedRequests;
+
+        Stats(String circuit, double availableTokens, long p95LatencyMs, long hedgedRequests) {
+            this.circuit = circuit;
+            this.availableTokens = availableTokens;
+            this.p95LatencyMs = p95LatencyMs;
+            this.hedgedRequests = hedgedRequests;
+        }
+
+        public String getCircuit() { return circuit; }
+        public double getAvailableTokens() { return availableTokens; }
+        public long getP95LatencyMs() { return p95LatencyMs; }
+        public long getHedgedRequests() { return hedgedRequests; }
+    }
+
+    private final AtomicLong hedgedRequests = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        connections = ConnectionProvider.builder("gemini")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 4)
+                .maxIdleTime(Duration.ofSeconds(60))
+                .maxLifeTime(Duration.ofMinutes(10))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+        HttpClient http = HttpClient.create(connections)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(true);
+        webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(http))
+                .codecs(c -> c.defaultCodecs().maxInMemorySize(8 * 1024 * 1024))
+                .build();
+        limiter = new TokenBucket(requestsPerMinute / 60.0, Math.max(1, burst));
+        breaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenMs);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (connections != null) connections.dispose();
+    }
+
+    public String url(String model, String method) {
+        return String.format("%s/%s:%s", baseUrl, model, method);
+    }
+
+    /**
+     * Calls {@code :generateContent} with rate limiting, retries, optional hedging and the
+     * circuit breaker applied.
+     */
+    public Mono<Map<String, Object>> generateContent(String model, String apiKey, Map<String, Object> payload) {
+        String url = url(model, "generateContent");
+        Mono<Map<String, Object>> attempt = Mono.defer(() -> {
+            Object pass = new Object();
+            return admit(pass).then(send(url, apiKey, payload)).doFinally(signal -> breaker.release(pass));
+        });
+        Mono<Map<String, Object>> hedged = hedgeEnabled ? hedge(attempt, url, apiKey, payload) : attempt;
+        return hedged.retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(initialBackoffMs))
+                .maxBackoff(Duration.ofSeconds(8))
+                .jitter(0.5)
+                .filter(GeminiClient::isRetryable)
+                .doBeforeRetry(s -> logger.warn("Retrying Gemini call after {}", s.failure().toString()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(Duration.ofMillis(totalTimeoutMs));
+    }
+
+    /**
+     * Calls {@code :streamGenerateContent} and emits each partial response as it arrives. The
+     * limiter and breaker apply as for {@link #generateContent}; failures are retried only until
+     * the first chunk has been emitted, since a restarted stream would repeat text. The
+     * attempt timeout bounds the wait for each chunk, the total timeout the whole stream.
+     */
+    public Flux<Map<String, Object>> streamGenerateContent(String model, String apiKey, Map<String, Object> payload) {
+        String url = url(model, "streamGenerateContent") + "?alt=sse";
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            // deferred so that every retry is admitted again
+            Flux<Map<String, Object>> attempt = Flux.defer(() -> {
+                Object pass = new Object();
+                return admit(pass).thenMany(sendStream(url, apiKey, payload)).doFinally(signal -> breaker.release(pass));
+            });
+            return attempt
+                    .doOnNext(chunk -> started.set(true))
+                    .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(initialBackoffMs))
+                            .maxBackoff(Duration.ofSeconds(8))
+                            .jitter(0.5)
+                            .filter(e -> !started.get() && isRetryable(e))
+                            .doBeforeRetry(s -> logger.warn("Retrying Gemini stream after {}", s.failure().toString()))
+                            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        }).takeUntilOther(Mono.delay(Duration.ofMillis(totalTimeoutMs))
+                .then(Mono.error(new TimeoutException("Gemini stream exceeded " + totalTimeoutMs + " ms"))));
+    }
+
+    public Stats stats() {
+        return new Stats(breaker.state(), limiter.available(), latencies.p95(), hedgedRequests.get());
+    }
+
+    /**
+     * Waits for a rate-limit token, failing fast when the wait would exceed max-queue-ms. The
+     * token is reserved before asking the breaker, so a rate-limited call never takes the
+     * half-open trial; the caller hands {@code pass} to {@link CircuitBreaker#release} when the
+     * attempt ends, whatever the outcome.
+     */
+    Mono<Void> admit(Object pass) {
+        long waitMs = limiter.reserve(maxQueueMs);
+        if (waitMs < 0) {
+            return Mono.error(new RejectedException("Gemini request rate limit reached. Please try again shortly."));
+        }
+        String open = breaker.tryPass(pass);
+        if (open != null) {
+            limiter.refund();
+            return Mono.error(new RejectedException(open));
+        }
+        return waitMs == 0 ? Mono.empty() : Mono.delay(Duration.ofMillis(waitMs)).then();
+    }
+
+    /** Feeds the breaker and the latency window from one upstream attempt. */
+    <T> Mono<T> observe(Mono<T> upstream) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return upstream
+                    .doOnSuccess(v -> {
+                        breaker.onSuccess();
+                        latencies.add((System.nanoTime() - start) / 1_000_000);
+                    })
+                    .doOnError(e -> {
+                        if (isRetryable(e)) breaker.onFailure(); else breaker.onSuccess();
+                    });
+        });
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Mono<Map<String, Object>> send(String url, String apiKey, Map<String, Object> payload) {
+        Mono<Map> call = webClient.post()
+                .uri(url)
+                .header("x-goog-api-key", apiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(payload)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResp -> clientResp.bodyToMono(String.class).defaultIfEmpty("").flatMap(body ->
+                                Mono.error(new GeminiHttpException(clientResp.statusCode(), body))))
+                .bodyToMono(Map.class)
+                .timeout(Duration.ofMillis(attemptTimeoutMs));
+        return observe(call).map(m -> (Map<String, Object>) m);
+    }
+
+    private Flux<Map<String, Object>> sendStream(String url, String apiKey, Map<String, Object> payload) {
+        return Flux.defer(() -> webClient.post()
+                .uri(url)
+                .header("x-goog-api-key", apiKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(payload)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResp -> clientResp.bodyToMono(String.class).defaultIfEmpty("").flatMap(body ->
+                                Mono.error(new GeminiHttpException(clientResp.statusCode(), body))))
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() { })
+                .timeout(Mono.delay(Duration.ofMillis(attemptTimeoutMs)),
+                        event -> Mono.delay(Duration.ofMillis(attemptTimeoutMs)))
+                .mapNotNull(ServerSentEvent::data)
+                // stream durations would skew the p95 used for hedging, so only the breaker is fed;
+                // a first chunk is as good a health signal as a finished call
+                .doOnNext(chunk -> breaker.onSuccess())
+                .doOnError(e -> {
+                    if (isRetryable(e)) breaker.onFailure(); else breaker.onSuccess();
+                }));
+    }
+
+    /**
+     * Races the attempt against a second one started after the current p95 latency. The second
+     * request only goes out if a rate-limit token is free right now.
+     */
+    private Mono<Map<String, Object>> hedge(Mono<Map<String, Object>> attempt, String url, String apiKey,
+                                            Map<String, Object> payload) {
+        return Mono.defer(() -> {
+            long delay = Math.max(hedgeMinDelayMs, latencies.p95());
+            Mono<Map<String, Object>> backup = Mono.delay(Duration.ofMillis(delay))
+                    .then(Mono.defer(() -> {
+                        if (!limiter.tryAcquire()) return Mono.never();
+                        Object pass = new Object();
+                        if (breaker.tryPass(pass) != null) {
+                            limiter.refund();
+                            return Mono.never();
+                        }
+                        hedgedRequests.incrementAndGet();
+                        return send(url, apiKey, payload).doFinally(signal -> breaker.release(pass));
+                    }));
+            return Mono.firstWithSignal(attempt, backup);
+        });
+    }
+
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof GeminiHttpException) {
+            int status = ((GeminiHttpException) e).getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return e instanceof TimeoutException || e instanceof WebClientRequestException;
+    }
+
+    /** Token bucket where callers reserve a token and are told how long to wait for it. */
+    static final class TokenBucket {
+        private final double perMs;
+        private final double capacity;
+        private double tokens;
+        private long last = System.nanoTime();
+
+        TokenBucket(double perSecond, double capacity) {
+            this.perMs = perSecond / 1000.0;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        /** @return ms to wait before using the reserved token, or -1 if that exceeds {@code maxWaitMs} */
+        synchronized long reserve(long maxWaitMs) {
+            refill();
+            double deficit = 1 - tokens;
+            long wait = deficit <= 0 ? 0 : (long) Math.ceil(deficit / perMs);
+            if (wait > maxWaitMs) return -1;
+            tokens -= 1;
+            return wait;
+        }
+
+        synchronized boolean tryAcquire() {
+            refill();
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+
+        /** Gives back a token that was taken but not used. */
+        synchronized void refund() {
+            refill();
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        synchronized double available() {
+            refill();
+            return tokens;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - last) / 1e6 * perMs);
+            last = now;
+        }
+    }
+
+    /** Consecutive-failure breaker with a single trial request while half-open. */
+    static final class CircuitBreaker {
+        private final int threshold;
+        private final long openMs;
+        private int failures;
+        private long openedAt;
+        private boolean open;
+        // the attempt making the half-open trial, if any
+        private Object trial;
+
+        CircuitBreaker(int threshold, long openMs) {
+            this.threshold = threshold;
+            this.openMs = openMs;
+        }
+
+        /**
+         * @param attempt identifies the caller, which becomes the trial when the breaker is half-open
+         * @return null when the call may proceed, otherwise the reason it may not
+         */
+        synchronized String tryPass(Object attempt) {
+            if (!open) return null;
+            long remaining = openedAt + openMs - System.currentTimeMillis();
+            if (remaining > 0 || trial != null) {
+                return "Gemini is currently failing; AI debug is paused for "
+                        + Math.max(1, (remaining + 999) / 1000) + "s.";
+            }
+            trial = attempt;
+            return null;
+        }
+
+        synchronized void onSuccess() {
+            failures = 0;
+            open = false;
+            trial = null;
+        }
+
+        synchronized void onFailure() {
+            failures++;
+            if (trial != null || failures >= threshold) {
+                if (!open) logger.warn("Gemini circuit opened after {} consecutive failures", failures);
+                open = true;
+                openedAt = System.currentTimeMillis();
+                trial = null;
+            }
+        }
+
+        /**
+         * Called when an attempt ends however it ends. One that was the trial and ended without
+         * an outcome (cancelled, never sent) proves nothing either way; the next call gets the trial.
+         */
+        synchronized void release(Object attempt) {
+            if (trial == attempt) trial = null;
+        }
+
+        synchronized String state() {
+            if (!open) return "CLOSED";
+            return System.currentTimeMillis() - openedAt >= openMs ? "HALF_OPEN" : "OPEN";
+        }
+    }
+
+    /** Ring of recent latencies; p95 is computed on demand. */
+    static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void add(long ms) {
+            samples[next] = ms;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+
+        synchronized long p95() {
+            if (count < 20) return 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(count * 0.95) - 1];
+        }
+    }
+}
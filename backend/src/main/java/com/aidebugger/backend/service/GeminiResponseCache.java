@@ -0,0 +1,311 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeRequest;
+import com.aidebugger.backend.model.CodeResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of successful Gemini debug answers.
+ *
+ * The key is a SHA-256 over the model, the language, the code with comments and insignificant
+ * whitespace removed, and the description (which carries the collected run context), so
+ * resubmissions that only differ in formatting share an answer. Entries expire after
+ * {@code gemini.cache.ttl-minutes} and are evicted least-recently-used beyond
+ * {@code gemini.cache.max-entries}. If {@code gemini.cache.file} is set, the cache is loaded
+ * from and periodically saved to that file.
+ */
+@Service
+public class GeminiResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiResponseCache.class);
+
+    @Value("${gemini.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gemini.cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${gemini.cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${gemini.cache.file:}")
+    private String file;
+
+    @Value("${gemini.cache.flush-interval-seconds:60}")
+    private long flushIntervalSeconds;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile boolean dirty;
+    private ScheduledExecutorService flusher;
+
+    /** Persistent form of an entry; also the file format. */
+    public static class Entry {
+        public String key;
+        public long createdAt;
+        public String explanation;
+        public String correctedCode;
+        public List<String> alternativeCode;
+    }
+
+    public static class Stats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        Stats(int size, long hits, long misses, long evictions) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public double getHitRate() { return hits + misses == 0 ? 0 : (double) hits / (hits + misses); }
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled || file == null || file.isBlank()) return;
+        load(Paths.get(file));
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gemini-cache-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (flusher == null) return;
+        flusher.shutdownNow();
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String key(String model, CodeRequest request) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            String language = request.getLanguage() == null ? "" : request.getLanguage().toLowerCase();
+            String description = request.getDescription() == null ? "" : request.getDescription();
+            for (String part : new String[] {
+                    model,
+                    language,
+                    normalizeCode(language, request.getCode()),
+                    // run context names the run's workspace, which must not split the key
+                    WorkspacePool.normalizePaths(description.trim()).replaceAll("\\s+", " ") }) {
+                byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+                md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                md.update((byte) ':');
+                md.update(bytes);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Returns a copy of the cached answer, or null on a miss. */
+    public CodeResponse get(String key) {
+        if (!enabled) return null;
+        Entry e;
+        synchronized (this) {
+            e = entries.get(key);
+            if (e != null && isExpired(e)) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                dirty = true;
+                e = null;
+            }
+        }
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        CodeResponse resp = new CodeResponse();
+        resp.setExplanation(e.explanation);
+        resp.setCorrectedCode(e.correctedCode);
+        resp.setAlternativeCode(e.alternativeCode);
+        return resp;
+    }
+
+    /** Stores an answer; responses carrying an error are never cached. */
+    public void put(String key, CodeResponse resp) {
+        if (!enabled || resp == null || resp.getError() != null) return;
+        Entry e = new Entry();
+        e.key = key;
+        e.createdAt = System.currentTimeMillis();
+        e.explanation = resp.getExplanation();
+        e.correctedCode = resp.getCorrectedCode();
+        e.alternativeCode = resp.getAlternativeCode();
+        synchronized (this) {
+            entries.put(key, e);
+            evictIfNeeded();
+            dirty = true;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), hits.get(), misses.get(), evictions.get());
+    }
+
+    /**
+     * Drops comments and whitespace that do not change the program. String literals are kept
+     * verbatim, and for Python the indentation of each line is kept since it is significant.
+     */
+    static String normalizeCode(String language, String code) {
+        if (code == null) return "";
+        boolean python = language.equals("python") || language.equals("py");
+        StringBuilder out = new StringBuilder(code.length());
+        int n = code.length();
+        boolean lineStart = true;
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c == '\n') {
+                if (!lineStart) out.append('\n');
+                lineStart = true;
+                pendingSpace = false;
+                i++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                int j = i;
+                while (j < n && code.charAt(j) != '\n' && Character.isWhitespace(code.charAt(j))) j++;
+                if (lineStart && python && j < n && code.charAt(j) != '\n' && code.charAt(j) != '#') {
+                    out.append(code, i, j);
+                } else if (!lineStart) {
+                    pendingSpace = true;
+                }
+                i = j;
+                continue;
+            }
+            if (python ? c == '#' : (c == '/' && i + 1 < n && code.charAt(i + 1) == '/')) {
+                while (i < n && code.charAt(i) != '\n') i++;
+                continue;
+            }
+            if (!python && c == '/' && i + 1 < n && code.charAt(i + 1) == '*') {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                pendingSpace = !lineStart;
+                continue;
+            }
+            if (pendingSpace) out.append(' ');
+            pendingSpace = false;
+            lineStart = false;
+            if (c == '"' || c == '\'') {
+                int end = skipString(code, i, python);
+                out.append(code, i, end);
+                i = end;
+                continue;
+            }
+            out.append(c);
+            i++;
+        }
+        // brace languages do not care about line structure either
+        return python ? out.toString() : out.toString().replace('\n', ' ');
+    }
+
+    /** Returns the index just past the string literal starting at {@code start}. */
+    private static int skipString(String code, int start, boolean python) {
+        char q = code.charAt(start);
+        int n = code.length();
+        if (python && start + 2 < n && code.charAt(start + 1) == q && code.charAt(start + 2) == q) {
+            String triple = String.valueOf(q).repeat(3);
+            int end = code.indexOf(triple, start + 3);
+            return end < 0 ? n : end + 3;
+        }
+        int i = start + 1;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == q || c == '\n') return i + 1;
+            i++;
+        }
+        return n;
+    }
+
+    private boolean isExpired(Entry e) {
+        return System.currentTimeMillis() - e.createdAt > TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void load(Path path) {
+        if (Files.notExists(path)) return;
+        try {
+            List<Entry> list = mapper.readValue(path.toFile(), new TypeReference<List<Entry>>() { });
+            synchronized (this) {
+                for (Entry e : list) {
+                    if (e.key != null && !isExpired(e)) entries.put(e.key, e);
+                }
+                evictIfNeeded();
+            }
+            logger.info("Loaded {} Gemini cache entries from {}", entries.size(), path);
+        } catch (IOException e) {
+            logger.warn("Could not load Gemini cache from {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void flush() {
+        if (!dirty) return;
+        List<Entry> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries.values());
+            dirty = false;
+        }
+        Path path = Paths.get(file);
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, ".gemini-cache", ".tmp");
+            mapper.writeValue(tmp.toFile(), snapshot);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            logger.warn("Could not save Gemini cache to {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -2,122 +2,338 @@ package com.aidebugger.backend.service;
 
 import com.aidebugger.backend.model.CodeRequest;
 import com.aidebugger.backend.model.CodeResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class GeminiService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GeminiService.class);
+
     @Value("${gemini.api.key:}")
     private String geminiApiKeyProperty;
 
     @Value("${gemini.model:gemini-2.5-flash}")
     private String geminiModelProperty;
 
-    private static final String GEMINI_BASE = "https://generativelanguage.googleapis.com/v1beta/models";
+    @Autowired
+    private GeminiClient geminiClient;
 
-    private final WebClient webClient;
+    @Autowired
+    private GeminiResponseCache responseCache;
 
-    public GeminiService() {
-        this.webClient = WebClient.builder().build();
-    }
+    @Autowired
+    private PromptCompactor promptCompactor;
+
+    @Autowired
+    private Telemetry telemetry;
+
+    private final SingleFlight<String, CodeResponse> inFlight = new SingleFlight<>();
 
+    /**
+     * Blocking variant of {@link #debugCodeAsync(CodeRequest)}, for callers that are not reactive.
+     */
     public CodeResponse debugCode(CodeRequest request) {
+        return debugCodeAsync(request).block();
+    }
+
+    /**
+     * Asks Gemini to debug the code without blocking the calling thread. The returned Mono
+     * always emits a response; failures are reported in its error field.
+     */
+    public Mono<CodeResponse> debugCodeAsync(CodeRequest request) {
+        return debugCode(request, true);
+    }
+
+    /**
+     * Like {@link #debugCodeAsync(CodeRequest)}, but never shares the upstream call with
+     * concurrent identical requests, so cancelling the subscription aborts the request to
+     * Gemini. Meant for speculative calls that are likely to be abandoned.
+     */
+    public Mono<CodeResponse> debugCodeSpeculative(CodeRequest request) {
+        return debugCode(request, false);
+    }
+
+    private Mono<CodeResponse> debugCode(CodeRequest request, boolean coalesce) {
+        String mode = coalesce ? "batch" : "speculative";
+        long started = System.nanoTime();
         CodeResponse resp = new CodeResponse();
 
         String apiKey = resolveApiKey();
         String model = resolveModel();
 
-        System.out.println("[GeminiService] resolved apiKey present? " + (apiKey != null && !apiKey.isBlank()) + ", model=" + model);
+        if (apiKey == null || apiKey.isBlank()) {
+            resp.setError("Gemini API key not configured. Set GEMINI_API_KEY as an env var, system property, or in application.properties (gemini.api.key).");
+            return Mono.just(resp);
+        }
+
+        String cacheKey = responseCache.key(model, request);
+        CodeResponse cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            telemetry.geminiRequest(mode, cached, true, System.nanoTime() - started);
+            return Mono.just(cached);
+        }
+
+        String prompt = buildPrompt(request);
+        telemetry.geminiPhase(mode, "prompt", System.nanoTime() - started);
+        Map<String, Object> payload = Map.of(
+                "contents", List.of(Map.of("parts", List.of(Map.of("text", prompt))))
+        );
+
+        Mono<CodeResponse> call = timedUpstream(mode, geminiClient.generateContent(model, apiKey, payload))
+                .map(this::toCodeResponse)
+                .doOnNext(r -> responseCache.put(cacheKey, r))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    telemetry.geminiError("empty");
+                    resp.setError("Empty response from Gemini.");
+                    return resp;
+                }))
+                .onErrorResume(GeminiClient.GeminiHttpException.class, hex -> httpError(resp, hex))
+                .onErrorResume(ex -> {
+                    telemetry.geminiError(errorReason(ex));
+                    resp.setError("Gemini API error: " + ex.getMessage());
+                    logger.warn("Gemini call failed: {}", ex.toString());
+                    return Mono.just(resp);
+                });
+
+        // identical concurrent requests share one upstream call; each caller gets its own copy
+        // because the ai-debug flow appends to the explanation
+        Mono<CodeResponse> result = !coalesce ? call
+                : Mono.defer(() -> Mono.fromFuture(inFlight.runAsync(cacheKey, call::toFuture), true)).map(GeminiService::copy);
+        return result.doOnNext(r -> telemetry.geminiRequest(mode, r, false, System.nanoTime() - started));
+    }
+
+    /** Records the time from subscribing to the upstream call until it completes, fails or is cancelled. */
+    private <T> Mono<T> timedUpstream(String mode, Mono<T> upstream) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return upstream.doFinally(signal -> telemetry.geminiPhase(mode, "upstream", System.nanoTime() - start));
+        });
+    }
+
+    /** Gemini answered with an error status (after the client's retries, if it was retryable). */
+    private Mono<CodeResponse> httpError(CodeResponse resp, GeminiClient.GeminiHttpException hex) {
+        int status = hex.getStatusCode().value();
+        telemetry.geminiError("http_" + status);
+        resp.setError("Gemini HTTP error: " + status + " - " + hex.getBody());
+        logger.warn("Gemini HTTP error: {}", status);
+        return Mono.just(resp);
+    }
 
+    private static String errorReason(Throwable ex) {
+        if (ex instanceof GeminiClient.RejectedException) return "rejected";
+        if (ex instanceof TimeoutException) return "timeout";
+        return "other";
+    }
+
+    /**
+     * Streaming variant of {@link #debugCodeAsync(CodeRequest)}: relays the answer to
+     * {@code listener} as Gemini generates it and emits the same response batch mode would
+     * have produced once the stream ends. Cache hits are replayed to the listener in one piece.
+     * Streams are not coalesced with concurrent identical requests, since each caller needs
+     * its own chunks.
+     */
+    public Mono<CodeResponse> debugCodeStream(CodeRequest request, DebugStreamListener listener) {
+        long started = System.nanoTime();
+        CodeResponse resp = new CodeResponse();
+
+        String apiKey = resolveApiKey();
+        String model = resolveModel();
         if (apiKey == null || apiKey.isBlank()) {
             resp.setError("Gemini API key not configured. Set GEMINI_API_KEY as an env var, system property, or in application.properties (gemini.api.key).");
-            return resp;
+            return Mono.just(resp);
         }
 
-        try {
-            String prompt = buildPrompt(request);
-            String url = String.format("%s/%s:generateContent", GEMINI_BASE, model);
-
-            Map<String, Object> payload = Map.of(
-                    "contents", List.of(Map.of("parts", List.of(Map.of("text", prompt))))
-            );
-
-
-            System.out.println("[GeminiService] Calling Gemini at: " + url);
-            // Log trimmed prompt size for debugging
-            System.out.println("[GeminiService] Prompt (first 800 chars): " + (prompt.length() > 800 ? prompt.substring(0, 800) + "..." : prompt));
-
-            Map<?, ?> apiResp = webClient.post()
-                    .uri(url)
-                    .header("x-goog-api-key", apiKey)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(payload)
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                            clientResp -> clientResp.bodyToMono(String.class).flatMap(body ->
-                                    reactor.core.publisher.Mono.error(new RuntimeException("HTTP " + clientResp.statusCode() + ": " + body))
-                            ))
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(30))
-                    .block();
-
-            if (apiResp == null) {
-                resp.setError("Empty response from Gemini.");
-                return resp;
+        String cacheKey = responseCache.key(model, request);
+        CodeResponse cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            if (cached.getExplanation() != null && !cached.getExplanation().isEmpty()) listener.onExplanation(cached.getExplanation());
+            if (cached.getCorrectedCode() != null && !cached.getCorrectedCode().isEmpty()) listener.onCorrectedCode(cached.getCorrectedCode());
+            telemetry.geminiRequest("stream", cached, true, System.nanoTime() - started);
+            return Mono.just(cached);
+        }
+
+        Map<String, Object> payload = Map.of(
+                "contents", List.of(Map.of("parts", List.of(Map.of("text", buildPrompt(request)))))
+        );
+        telemetry.geminiPhase("stream", "prompt", System.nanoTime() - started);
+
+        return Mono.defer(() -> {
+            StringBuilder fullText = new StringBuilder();
+            AtomicBoolean received = new AtomicBoolean();
+            FenceSplitter splitter = new FenceSplitter(listener);
+            long upstreamStart = System.nanoTime();
+            return geminiClient.streamGenerateContent(model, apiKey, payload)
+                    .doFinally(signal -> telemetry.geminiPhase("stream", "upstream", System.nanoTime() - upstreamStart))
+                    .map(GeminiService::extractTextFromResponse)
+                    .doOnNext(text -> {
+                        received.set(true);
+                        fullText.append(text);
+                        splitter.accept(text);
+                    })
+                    .then(Mono.fromSupplier(() -> {
+                        if (!received.get()) {
+                            telemetry.geminiError("empty");
+                            resp.setError("Empty response from Gemini.");
+                            return resp;
+                        }
+                        CodeResponse parsed = parseAnswer(fullText.toString());
+                        responseCache.put(cacheKey, parsed);
+                        return copy(parsed);
+                    }))
+                    .onErrorResume(GeminiClient.GeminiHttpException.class, hex -> httpError(resp, hex))
+                    .onErrorResume(ex -> {
+                        telemetry.geminiError(errorReason(ex));
+                        resp.setError("Gemini API error: " + ex.getMessage());
+                        logger.warn("Gemini stream failed: {}", ex.toString());
+                        return Mono.just(resp);
+                    })
+                    .doOnNext(r -> telemetry.geminiRequest("stream", r, false, System.nanoTime() - started));
+        });
+    }
+
+    private static CodeResponse copy(CodeResponse r) {
+        CodeResponse c = new CodeResponse();
+        c.setOutput(r.getOutput());
+        c.setError(r.getError());
+        c.setCompileOutput(r.getCompileOutput());
+        c.setCorrectedCode(r.getCorrectedCode());
+        c.setAlternativeCode(r.getAlternativeCode());
+        c.setExplanation(r.getExplanation());
+        return c;
+    }
+
+    private CodeResponse toCodeResponse(Map<?, ?> apiResp) {
+        // Parse generated text defensively
+        String fullText = extractTextFromResponse(apiResp);
+        logger.debug("Gemini answer: {} chars", fullText.length());
+        return parseAnswer(fullText);
+    }
+
+    /**
+     * Splits a complete answer into the explanation and the first fenced code block; any
+     * further fenced blocks become alternative fixes.
+     */
+    private static CodeResponse parseAnswer(String fullText) {
+        CodeResponse resp = new CodeResponse();
+        if (fullText == null) fullText = "";
+
+        String explanation = fullText.trim();
+        String correctedCode = "";
+
+        int startFence = fullText.indexOf("```");
+        if (startFence >= 0) {
+            int endFence = fullText.indexOf("```", startFence + 3);
+            if (endFence > startFence) {
+                correctedCode = fenceBody(fullText, startFence, endFence);
+                explanation = (startFence > 0) ? fullText.substring(0, startFence).trim() : "";
+
+                List<String> alternatives = new ArrayList<>();
+                int next = fullText.indexOf("```", endFence + 3);
+                while (next >= 0) {
+                    int close = fullText.indexOf("```", next + 3);
+                    if (close < 0) break;
+                    String body = fenceBody(fullText, next, close);
+                    if (!body.isEmpty()) alternatives.add(body);
+                    next = fullText.indexOf("```", close + 3);
+                }
+                if (!alternatives.isEmpty()) resp.setAlternativeCode(alternatives);
             }
+        }
 
-            // Debug: print top-level keys
-            System.out.println("[GeminiService] Response keys: " + apiResp.keySet());
+        resp.setExplanation(explanation);
+        resp.setCorrectedCode(correctedCode);
+        return resp;
+    }
 
-            // Parse generated text defensively
-            String fullText = extractTextFromResponse(apiResp);
+    /** The body of the block between two fences, without the language line. */
+    private static String fenceBody(String text, int startFence, int endFence) {
+        int firstLineBreak = text.indexOf('\n', startFence + 3);
+        if (firstLineBreak > startFence + 3 && firstLineBreak < endFence) {
+            return text.substring(firstLineBreak + 1, endFence).trim();
+        }
+        return text.substring(startFence + 3, endFence).trim();
+    }
 
-            // Debug output length
-            System.out.println("[GeminiService] fullText length: " + (fullText == null ? 0 : fullText.length()));
+    /**
+     * Incremental counterpart of {@link #parseAnswer}: routes streamed text to the listener as
+     * explanation until the first fence, skips the fence's language line, forwards the body as
+     * code and drops everything after the closing fence. Up to two trailing backticks are held
+     * back in case a fence is split across chunks.
+     */
+    static final class FenceSplitter {
+        private enum State { EXPLANATION, FENCE_HEADER, CODE, DONE }
 
-            if (fullText == null) fullText = "";
+        private final DebugStreamListener listener;
+        private final StringBuilder pending = new StringBuilder();
+        private State state = State.EXPLANATION;
 
-            String explanation = fullText.trim();
-            String correctedCode = "";
+        FenceSplitter(DebugStreamListener listener) {
+            this.listener = listener;
+        }
 
-            int startFence = fullText.indexOf("```");
-            if (startFence >= 0) {
-                int endFence = fullText.indexOf("```", startFence + 3);
-                if (endFence > startFence) {
-                    int firstLineBreak = fullText.indexOf('\n', startFence + 3);
-                    if (firstLineBreak > startFence + 3 && firstLineBreak < endFence) {
-                        correctedCode = fullText.substring(firstLineBreak + 1, endFence).trim();
-                    } else {
-                        correctedCode = fullText.substring(startFence + 3, endFence).trim();
+        void accept(String text) {
+            if (state == State.DONE || text.isEmpty()) return;
+            pending.append(text);
+            while (true) {
+                switch (state) {
+                    case EXPLANATION:
+                    case CODE: {
+                        int fence = pending.indexOf("```");
+                        int end = fence >= 0 ? fence : pending.length() - heldBackticks();
+                        emit(pending.substring(0, end));
+                        if (fence < 0) {
+                            pending.delete(0, end);
+                            return;
+                        }
+                        pending.delete(0, fence + 3);
+                        state = state == State.EXPLANATION ? State.FENCE_HEADER : State.DONE;
+                        break;
+                    }
+                    case FENCE_HEADER: {
+                        int newline = pending.indexOf("\n");
+                        int fence = pending.indexOf("```");
+                        if (fence >= 0 && (newline < 0 || fence < newline)) {
+                            // a one-line block such as ```x = 1```
+                            listener.onCorrectedCode(pending.substring(0, fence).trim());
+                            state = State.DONE;
+                        } else if (newline >= 0) {
+                            pending.delete(0, newline + 1);
+                            state = State.CODE;
+                            break;
+                        }
+                        return;
                     }
-                    explanation = (startFence > 0) ? fullText.substring(0, startFence).trim() : "";
+                    default:
+                        pending.setLength(0);
+                        return;
                 }
             }
+        }
+
+        private int heldBackticks() {
+            int n = 0;
+            while (n < 2 && n < pending.length() && pending.charAt(pending.length() - 1 - n) == '`') n++;
+            return n;
+        }
 
-            resp.setExplanation(explanation);
-            resp.setCorrectedCode(correctedCode);
-            return resp;
-
-        } catch (WebClientResponseException wex) {
-            String body = wex.getResponseBodyAsString();
-            resp.setError("Gemini HTTP error: " + wex.getRawStatusCode() + " - " + (body == null ? wex.getMessage() : body));
-            System.err.println("[GeminiService] WebClientResponseException: " + resp.getError());
-            return resp;
-        } catch (Exception ex) {
-            resp.setError("Gemini API error: " + ex.getMessage());
-            System.err.println("[GeminiService] Exception: " + ex.toString());
-            return resp;
+        private void emit(String text) {
+            if (text.isEmpty()) return;
+            if (state == State.EXPLANATION) listener.onExplanation(text); else listener.onCorrectedCode(text);
         }
     }
 
-    private String extractTextFromResponse(Map<?, ?> apiResp) {
+    static String extractTextFromResponse(Map<?, ?> apiResp) {
         // Common shapes:
         // { "candidates": [ { "content": { "parts": [ {"text": "..." } ] } } ] }
         // or { "candidates": [ { "text": "..." } ] }
@@ -158,7 +374,7 @@ public class GeminiService {
                 }
             }
         } catch (Exception e) {
-            System.err.println("[GeminiService] extractTextFromResponse error: " + e.toString());
+            logger.warn("Could not extract text from Gemini response: {}", e.toString());
         }
         return "";
     }
@@ -183,18 +399,38 @@ public class GeminiService {
         return "gemini-2.5-flash";
     }
 
-    private String buildPrompt(CodeRequest req) {
+    private static final String PROMPT_INSTRUCTIONS =
+            "You are an expert programmer and tutor. "
+            + "Given a program and a user's description of what the program should do, "
+            + "find logical errors (not only syntax) and suggest a corrected version of the code. "
+            + "If the code has syntax errors, point them out. "
+            + "If the code is already correct, reply: 'Your code is ready to run' and give a short explanation of what it does. "
+            + "Always provide corrected code inside a fenced code block with triple backticks and the language if possible.\n\n";
+
+    private static final String PROMPT_CLOSING =
+            "Return an explanation and the corrected code (if needed). Keep explanation concise and actionable.";
+
+    /**
+     * Builds the prompt within the configured token budget; see {@link PromptCompactor}. When
+     * anything was left out, the prompt says so, since a model that believes it sees the whole
+     * program may "fix" code it was never shown.
+     */
+    String buildPrompt(CodeRequest req) {
+        int overhead = promptCompactor.estimateTokens(PROMPT_INSTRUCTIONS + PROMPT_CLOSING) + 32;
+        PromptCompactor.Result parts = promptCompactor.compact(req.getDescription(), req.getCode(), overhead);
+
         StringBuilder sb = new StringBuilder();
-        sb.append("You are an expert programmer and tutor. ");
-        sb.append("Given a program and a user's description of what the program should do, ");
-        sb.append("find logical errors (not only syntax) and suggest a corrected version of the code. ");
-        sb.append("If the code has syntax errors, point them out. ");
-        sb.append("If the code is already correct, reply: 'Your code is ready to run' and give a short explanation of what it does. ");
-        sb.append("Always provide corrected code inside a fenced code block with triple backticks and the language if possible.\n\n");
-
-        sb.append("User description:\n").append(req.getDescription() == null ? "" : req.getDescription()).append("\n\n");
-        sb.append("Original code:\n```\n").append(req.getCode() == null ? "" : req.getCode()).append("\n```\n\n");
-        sb.append("Return an explanation and the corrected code (if needed). Keep explanation concise and actionable.");
+        sb.append(PROMPT_INSTRUCTIONS);
+        sb.append("User description:\n").append(parts.getDescription()).append("\n\n");
+        sb.append("Original code:\n```\n").append(parts.getCode()).append("\n```\n\n");
+        if (parts.getDroppedTokens() > 0) {
+            sb.append("Note: about ").append(parts.getDroppedTokens()).append(" of ").append(parts.getOriginalTokens())
+                    .append(" estimated tokens of the code and run output were omitted to keep this request small; ")
+                    .append("omissions are marked in the text and only the code shown should be corrected.\n\n");
+            logger.info("Compacted Gemini prompt from ~{} to ~{} tokens", parts.getOriginalTokens(), parts.getTokens());
+        }
+        sb.append(PROMPT_CLOSING);
+        logger.debug("Gemini prompt: ~{} tokens", parts.getTokens() + overhead);
         return sb.toString();
     }
 }
@@ -0,0 +1,229 @@
+package com.aidebugger.backend.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Compiles Java sources inside the backend JVM using {@link JavaCompiler}.
+ *
+ * Sources and generated class files never touch the disk: a {@link ForwardingJavaFileManager}
+ * serves the source from a string and collects class bytes in memory. Because the compiler
+ * lives in the long-running process it stays JIT-warm across requests, which is much cheaper
+ * than starting a {@code javac} JVM per request.
+ */
+@Component
+public class InMemoryJavaCompiler {
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    // Standard file managers cache the platform class index and are expensive to create,
+    // but are not safe for concurrent use, so keep a small pool of them.
+    private final BlockingQueue<StandardJavaFileManager> fileManagers =
+            new ArrayBlockingQueue<>(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    public static class Result {
+        private final Map<String, byte[]> classes;
+        private final String diagnostics;
+
+        Result(Map<String, byte[]> classes, String diagnostics) {
+            this.classes = classes;
+            this.diagnostics = diagnostics;
+        }
+
+        /** Binary class name to class file bytes; empty when compilation failed. */
+        public Map<String, byte[]> getClasses() { return classes; }
+
+        /** Compiler output in the same format the {@code javac} command line prints. */
+        public String getDiagnostics() { return diagnostics; }
+    }
+
+    public static class ProjectResult {
+        private final Map<String, Map<String, byte[]>> classesBySource;
+        private final String diagnostics;
+
+        ProjectResult(Map<String, Map<String, byte[]>> classesBySource, String diagnostics) {
+            this.classesBySource = classesBySource;
+            this.diagnostics = diagnostics;
+        }
+
+        /** Source name to the classes compiled from it; null when compilation failed. */
+        public Map<String, Map<String, byte[]>> getClassesBySource() { return classesBySource; }
+
+        public String getDiagnostics() { return diagnostics; }
+    }
+
+    /** False when running on a JRE without the compiler module; callers fall back to {@code javac}. */
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    public String version() {
+        return "javax.tools " + Runtime.version();
+    }
+
+    public Result compile(String fileName, String source, List<String> options) {
+        StringWriter out = new StringWriter();
+        StandardJavaFileManager std = borrowFileManager();
+        try {
+            MemoryFileManager fm = new MemoryFileManager(std, Map.of());
+            JavaFileObject src = new SourceFile(fileName, source);
+            // A null diagnostic listener makes javac print diagnostics to 'out' exactly as the CLI does.
+            boolean ok = compiler.getTask(out, fm, null, options, null, List.of(src)).call();
+            return new Result(ok ? fm.classBytes() : Map.of(), out.toString());
+        } finally {
+            fileManagers.offer(std);
+        }
+    }
+
+    /**
+     * Compiles {@code sources} (file name, e.g. {@code shapes/Circle.java}, to source) together,
+     * against {@code classpath}: classes compiled earlier, by binary name, that the sources may
+     * use. This is what lets a project recompile only the files an edit affects.
+     */
+    public ProjectResult compile(Map<String, String> sources, Map<String, byte[]> classpath, List<String> options) {
+        StringWriter out = new StringWriter();
+        StandardJavaFileManager std = borrowFileManager();
+        try {
+            MemoryFileManager fm = new MemoryFileManager(std, classpath);
+            List<JavaFileObject> units = new ArrayList<>();
+            sources.forEach((name, source) -> units.add(new SourceFile(name, source)));
+            boolean ok = compiler.getTask(out, fm, null, options, null, units).call();
+            return new ProjectResult(ok ? fm.classBytesBySource() : null, out.toString());
+        } finally {
+            fileManagers.offer(std);
+        }
+    }
+
+    private StandardJavaFileManager borrowFileManager() {
+        StandardJavaFileManager fm = fileManagers.poll();
+        if (fm != null) return fm;
+        fm = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+        try {
+            // user programs only see the JDK, never the backend's own classpath
+            fm.setLocation(StandardLocation.CLASS_PATH, List.of());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fm;
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String name;
+        private final String source;
+
+        SourceFile(String name, String source) {
+            super(URI.create("string:///" + name), Kind.SOURCE);
+            this.name = name;
+            this.source = source;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) { return source; }
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String binaryName) {
+            super(URI.create("mem:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() { return bytes; }
+    }
+
+    /** A class compiled earlier, on the class path of a project compilation. */
+    private static final class CompiledClass extends SimpleJavaFileObject {
+        private final String binaryName;
+        private final byte[] bytes;
+
+        CompiledClass(String binaryName, byte[] bytes) {
+            super(URI.create("mem:///" + binaryName.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() { return new ByteArrayInputStream(bytes); }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ClassFile> outputs = new LinkedHashMap<>();
+        // class name -> name of the source it was compiled from
+        private final Map<String, String> origins = new HashMap<>();
+        private final Map<String, byte[]> classpath;
+
+        MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classpath) {
+            super(fileManager);
+            this.classpath = classpath;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFile f = new ClassFile(className);
+            outputs.put(className, f);
+            if (sibling != null) origins.put(className, sibling.getName());
+            return f;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                                             boolean recurse) throws IOException {
+            Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+            if (location != StandardLocation.CLASS_PATH || classpath.isEmpty() || !kinds.contains(JavaFileObject.Kind.CLASS)) {
+                return listed;
+            }
+            List<JavaFileObject> all = new ArrayList<>();
+            listed.forEach(all::add);
+            classpath.forEach((name, bytes) -> {
+                int dot = name.lastIndexOf('.');
+                String pkg = dot < 0 ? "" : name.substring(0, dot);
+                if (pkg.equals(packageName) || (recurse && pkg.startsWith(packageName + "."))) {
+                    all.add(new CompiledClass(name, bytes));
+                }
+            });
+            return all;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            if (file instanceof CompiledClass c) return c.binaryName;
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public void close() {
+            // the underlying standard file manager is pooled, never close it here
+        }
+
+        Map<String, byte[]> classBytes() {
+            Map<String, byte[]> m = new LinkedHashMap<>();
+            outputs.forEach((name, f) -> m.put(name, f.bytes.toByteArray()));
+            return m;
+        }
+
+        Map<String, Map<String, byte[]>> classBytesBySource() {
+            Map<String, Map<String, byte[]>> m = new LinkedHashMap<>();
+            outputs.forEach((name, f) -> m.computeIfAbsent(origins.getOrDefault(name, ""), k -> new LinkedHashMap<>())
+                    .put(name, f.bytes.toByteArray()));
+            return m;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeResponse;
+import com.aidebugger.backend.model.JobResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs run/ai-debug requests in the background and keeps their results for polling.
+ *
+ * Pending work is bounded by the worker queue; finished jobs are kept for
+ * {@code executor.jobs.ttl-seconds} and at most {@code executor.jobs.max-finished} of them,
+ * oldest evicted first.
+ */
+@Service
+public class JobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    @Value("${executor.jobs.threads:0}")
+    private int threads;
+
+    @Value("${executor.jobs.max-pending:256}")
+    private int maxPending;
+
+    @Value("${executor.jobs.max-finished:1000}")
+    private int maxFinished;
+
+    @Value("${executor.jobs.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private ThreadPoolExecutor workers;
+    private ScheduledExecutorService janitor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // finished job ids in completion order, for count-based eviction
+    private final ConcurrentLinkedQueue<String> finishedOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger asyncInFlight = new AtomicInteger();
+
+    public static final class Job {
+        private final String id;
+        private final String type;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile Status status = Status.QUEUED;
+        private volatile long finishedAt;
+        private final CompletableFuture<CodeResponse> result = new CompletableFuture<>();
+
+        Job(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public String getId() { return id; }
+
+        /** Completes with the job's response; never completes exceptionally. */
+        public CompletableFuture<CodeResponse> getResult() { return result; }
+
+        public JobResponse toResponse() {
+            JobResponse r = new JobResponse();
+            r.setJobId(id);
+            r.setType(type);
+            r.setStatus(status.name());
+            r.setCreatedAt(createdAt);
+            if (finishedAt > 0) r.setFinishedAt(finishedAt);
+            r.setResult(result.getNow(null));
+            return r;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        int n = threads > 0 ? threads : Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+        workers = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(maxPending), r -> {
+            Thread t = new Thread(r, "job-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        workers.allowCoreThreadTimeOut(true);
+        janitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-janitor");
+            t.setDaemon(true);
+            return t;
+        });
+        janitor.scheduleWithFixedDelay(this::expire, 30, 30, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        janitor.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queues {@code work} and returns its job at once.
+     *
+     * @throws ExecutionRejectedException with 503 when the pending queue is full
+     */
+    public Job submit(String type, Callable<CodeResponse> work) {
+        Job job = new Job(UUID.randomUUID().toString(), type);
+        jobs.put(job.id, job);
+        try {
+            workers.execute(() -> run(job, work));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new ExecutionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many pending jobs. Please try again shortly.", 5);
+        }
+        return job;
+    }
+
+    /**
+     * Starts non-blocking {@code work} and returns its job at once. No pool thread is held while
+     * it runs; the number of such jobs in flight is capped by {@code executor.jobs.max-pending}.
+     *
+     * @throws ExecutionRejectedException with 503 when too many are in flight
+     */
+    public Job submitAsync(String type, Supplier<Mono<CodeResponse>> work) {
+        if (asyncInFlight.incrementAndGet() > maxPending) {
+            asyncInFlight.decrementAndGet();
+            throw new ExecutionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many pending jobs. Please try again shortly.", 5);
+        }
+        Job job = new Job(UUID.randomUUID().toString(), type);
+        jobs.put(job.id, job);
+        job.status = Status.RUNNING;
+        Mono.defer(work)
+                .doFinally(signal -> asyncInFlight.decrementAndGet())
+                .subscribe(resp -> finish(job, resp, Status.DONE),
+                        ex -> finish(job, failure(job, ex), Status.FAILED));
+        return job;
+    }
+
+    public Job get(String id) {
+        return id == null ? null : jobs.get(id);
+    }
+
+    private void run(Job job, Callable<CodeResponse> work) {
+        job.status = Status.RUNNING;
+        try {
+            finish(job, work.call(), Status.DONE);
+        } catch (Exception ex) {
+            finish(job, failure(job, ex), Status.FAILED);
+        }
+    }
+
+    private CodeResponse failure(Job job, Throwable ex) {
+        CodeResponse resp = new CodeResponse();
+        if (ex instanceof ExecutionRejectedException) {
+            resp.setError(ex.getMessage());
+        } else {
+            logger.error("Job {} ({}) failed", job.id, job.type, ex);
+            resp.setError("Server error while processing job: " + ex.getMessage());
+        }
+        return resp;
+    }
+
+    private void finish(Job job, CodeResponse resp, Status status) {
+        job.finishedAt = System.currentTimeMillis();
+        // result first: a poller that sees DONE or FAILED must also see the result
+        job.result.complete(resp);
+        job.status = status;
+        finishedOrder.add(job.id);
+        while (finishedOrder.size() > maxFinished) {
+            String oldest = finishedOrder.poll();
+            if (oldest != null) jobs.remove(oldest);
+        }
+    }
+
+    private void expire() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(ttlSeconds);
+        while (true) {
+            String id = finishedOrder.peek();
+            if (id == null) return;
+            Job job = jobs.get(id);
+            if (job != null && job.finishedAt > cutoff) return;
+            finishedOrder.poll();
+            jobs.remove(id);
+        }
+    }
+}
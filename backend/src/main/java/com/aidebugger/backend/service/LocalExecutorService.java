@@ -1,13 +1,24 @@
 package com.aidebugger.backend.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.concurrent.*;
-import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import com.aidebugger.backend.model.BatchRequest;
+import com.aidebugger.backend.model.BatchResponse;
 import com.aidebugger.backend.model.CodeRequest;
 import com.aidebugger.backend.model.CodeResponse;
 
@@ -15,170 +26,483 @@ import com.aidebugger.backend.model.CodeResponse;
 public class LocalExecutorService {
 
 	private static final long TIMEOUT_SECONDS = 5;
+	private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+	private static final String TIMED_OUT = "Execution timed out after ";
+	private static final long COMPILE_TIMEOUT_SECONDS = 10;
 	private static final int MAX_OUTPUT_CHARS = 20000;
+	// captured program output keeps its beginning and its end, MAX_OUTPUT_CHARS bytes in total
+	private static final int OUTPUT_HEAD_BYTES = MAX_OUTPUT_CHARS * 4 / 5;
+	private static final int OUTPUT_TAIL_BYTES = MAX_OUTPUT_CHARS - OUTPUT_HEAD_BYTES;
+	// how long to wait for the pipes to reach EOF once the process is gone
+	private static final long DRAIN_GRACE_MS = 1000;
+	private static final List<String> C_FLAGS = List.of();
+	private static final List<String> JAVAC_FLAGS = List.of();
+	// run user classes on the same JDK that compiled them
+	private static final String JAVA_BIN = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+	@Autowired
+	private CompileCacheService compileCache;
+
+	@Autowired
+	private InMemoryJavaCompiler javaCompiler;
+
+	@Autowired
+	private ResourceLimiter resourceLimiter;
+
+	@Autowired
+	private WorkspacePool workspacePool;
+
+	@Autowired
+	private PythonRunnerPool pythonRunnerPool;
+
+	@Autowired
+	private Telemetry telemetry;
+
+	@Autowired
+	private ClassDataSharing classDataSharing;
+
+	@Autowired
+	private RunResultCache resultCache;
+
+	@Autowired
+	private ProjectWorkspaces projects;
+
+	// test cases of all batches run here; 0 means one thread per core
+	@Value("${executor.batch.parallelism:0}")
+	private int batchParallelism;
+
+	// concurrent submissions of the same source share one compilation
+	private final SingleFlight<String, Compilation> compileFlights = new SingleFlight<>();
+
+	private ExecutorService batchPool;
+
+	@PostConstruct
+	void init() {
+		int threads = batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors();
+		batchPool = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "batch-case");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@PreDestroy
+	void shutdown() {
+		batchPool.shutdownNow();
+	}
 
 	public CodeResponse executeCode(CodeRequest request) {
+		return executeCode(request, OutputListener.NONE);
+	}
+
+	/**
+	 * Same as {@link #executeCode(CodeRequest)}, reporting compile diagnostics and output to
+	 * {@code listener} while the program runs.
+	 */
+	public CodeResponse executeCode(CodeRequest request, OutputListener listener) {
+		Telemetry.Run run = telemetry.run(request.getLanguage());
+		String resultKey = resultCache.isEnabled() ? resultKey(request) : null;
+		CodeResponse cached = resultCache.get(resultKey);
+		if (cached != null) {
+			run.runner("result-cache");
+			replay(cached, listener);
+			run.finish(cached);
+			return cached;
+		}
+		CodeResponse resp = execute(request, listener, run);
+		resultCache.put(resultKey, resp);
+		run.finish(resp);
+		return resp;
+	}
+
+	/**
+	 * The cached result of this run if there is one, looked up before the run takes a scheduler
+	 * slot; null when it has to run.
+	 */
+	public CodeResponse cachedResult(CodeRequest request) {
+		if (!resultCache.isEnabled()) return null;
+		CodeResponse cached = resultCache.peek(resultKey(request));
+		if (cached != null) {
+			Telemetry.Run run = telemetry.run(request.getLanguage());
+			run.runner("result-cache");
+			run.finish(cached);
+		}
+		return cached;
+	}
+
+	/** Run-result cache key, or null for runs that must not be cached. */
+	private String resultKey(CodeRequest request) {
+		// projects are built incrementally in their session instead
+		if (ProjectWorkspaces.isProject(request)) return null;
+		String lang = request.getLanguage() == null ? "" : request.getLanguage().toLowerCase();
+		String toolchain;
+		if (lang.equals("c")) {
+			toolchain = compileCache.toolchainVersion("gcc");
+		} else if (lang.equals("java")) {
+			toolchain = (javaCompiler.isAvailable() ? javaCompiler.version() : compileCache.toolchainVersion("javac"))
+					+ " " + System.getProperty("java.vm.version");
+		} else if (lang.equals("python") || lang.equals("py")) {
+			lang = "python";
+			toolchain = compileCache.toolchainVersion(pythonRunnerPool.pythonCommand());
+		} else {
+			return null;
+		}
+		String limits = resourceLimiter.settings() + " timeout=" + TIMEOUT_MILLIS + "ms output=" + MAX_OUTPUT_CHARS;
+		return resultCache.key(lang, toolchain, limits, request.getCode(), request.getInput());
+	}
+
+	/** Feeds a cached result to a streaming listener as if the program had just run. */
+	private static void replay(CodeResponse cached, OutputListener listener) {
+		if (cached.getCompileOutput() != null && !cached.getCompileOutput().isBlank()) {
+			listener.onCompileOutput(cached.getCompileOutput());
+			return;
+		}
+		listener.onCompiled();
+		if (cached.getOutput() != null && !cached.getOutput().isEmpty()) listener.onOutput(false, cached.getOutput());
+		if (cached.getError() != null && !cached.getError().isEmpty()) listener.onOutput(true, cached.getError());
+	}
+
+	private CodeResponse execute(CodeRequest request, OutputListener listener, Telemetry.Run run) {
 		CodeResponse resp = new CodeResponse();
 		String lang = request.getLanguage() == null ? "" : request.getLanguage().toLowerCase();
-		try {
-			Path tempDir = Files.createTempDirectory("codeexec_");
+		long start = System.nanoTime();
+		try (WorkspacePool.Workspace workspace = workspacePool.acquire()) {
+			Path tempDir = workspace.path();
+			run.phase("workspace", System.nanoTime() - start);
+			if (ProjectWorkspaces.isProject(request)) {
+				return runProject(request, lang, tempDir, listener, run);
+			} else if (lang.equals("c")) {
+				return runC(request, tempDir, listener, run);
+			} else if (lang.equals("java")) {
+				return runJava(request, tempDir, listener, run);
+			} else if (lang.equals("python") || lang.equals("py")) {
+				return runPython(request, tempDir, listener, run);
+			} else {
+				resp.setError("Unsupported language: " + request.getLanguage());
+				return resp;
+			}
+		} catch (IOException e) {
+			resp.setError("Server filesystem error: " + e.getMessage());
+			return resp;
+		}
+	}
+
+	/**
+	 * Compiles the submission once and runs it against every test case in parallel, each case in
+	 * its own working directory under the per-case timeout (at most the normal run timeout).
+	 * With {@code stopOnFirstFailure}, cases that have not started once one fails are skipped.
+	 */
+	public BatchResponse runBatch(BatchRequest request) {
+		BatchResponse resp = new BatchResponse();
+		long started = System.nanoTime();
+		String lang = request.getLanguage() == null ? "" : request.getLanguage().toLowerCase();
+		List<BatchRequest.TestCase> tests = request.getTests() == null ? List.of() : request.getTests();
+		long timeoutMillis = request.getTimeoutMs() == null ? TIMEOUT_MILLIS : Math.max(1, Math.min(request.getTimeoutMs(), TIMEOUT_MILLIS));
+		boolean stopOnFailure = Boolean.TRUE.equals(request.getStopOnFirstFailure());
+		resp.setTotal(tests.size());
+		Telemetry.Run run = telemetry.untracked();
+		try (WorkspacePool.Workspace workspace = workspacePool.acquire()) {
+			Path tempDir = workspace.path();
+			List<Future<BatchResponse.TestResult>> futures = new ArrayList<>();
 			try {
+				Program program;
 				if (lang.equals("c")) {
-					return runC(request, tempDir);
+					program = prepareC(request.getCode(), tempDir, OutputListener.NONE, run);
 				} else if (lang.equals("java")) {
-					return runJava(request, tempDir);
+					program = prepareJava(request.getCode(), tempDir, OutputListener.NONE, run);
 				} else if (lang.equals("python") || lang.equals("py")) {
-					return runPython(request, tempDir);
+					program = preparePython(request.getCode(), tempDir, OutputListener.NONE, run);
 				} else {
 					resp.setError("Unsupported language: " + request.getLanguage());
 					return resp;
 				}
+				resp.setCompileTimeMillis((System.nanoTime() - started) / 1_000_000);
+				if (program.failure != null) {
+					resp.setCompileOutput(program.failure.getCompileOutput());
+					resp.setError(program.failure.getError());
+					return resp;
+				}
+
+				AtomicBoolean stop = new AtomicBoolean();
+				for (int i = 0; i < tests.size(); i++) {
+					int index = i;
+					Path workDir = tempDir.resolve("case" + i);
+					futures.add(batchPool.submit(() -> runCase(program, index, tests.get(index), timeoutMillis, workDir, stopOnFailure, stop, run)));
+				}
+				List<BatchResponse.TestResult> results = new ArrayList<>();
+				for (Future<BatchResponse.TestResult> f : futures) {
+					BatchResponse.TestResult r = f.get();
+					results.add(r);
+					if (r.getVerdict().equals("PASSED")) resp.setPassed(resp.getPassed() + 1);
+					else if (r.getVerdict().equals("SKIPPED")) resp.setSkipped(resp.getSkipped() + 1);
+					else resp.setFailed(resp.getFailed() + 1);
+				}
+				resp.setResults(results);
 			} finally {
-				try { deleteRecursive(tempDir); } catch (Exception ignored) {}
+				futures.forEach(f -> f.cancel(true));
 			}
 		} catch (IOException e) {
 			resp.setError("Server filesystem error: " + e.getMessage());
-			return resp;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			resp.setError("Batch interrupted");
+		} catch (Exception e) {
+			resp.setError("Execution error: " + e.getMessage());
 		}
+		resp.setTimeMillis((System.nanoTime() - started) / 1_000_000);
+		return resp;
 	}
 
-	private CodeResponse runC(CodeRequest request, Path dir) {
-		CodeResponse resp = new CodeResponse();
-		try {
-			Path src = dir.resolve("main.c");
-			Files.writeString(src, request.getCode(), StandardCharsets.UTF_8);
+	private BatchResponse.TestResult runCase(Program program, int index, BatchRequest.TestCase test, long timeoutMillis,
+			Path workDir, boolean stopOnFailure, AtomicBoolean stop, Telemetry.Run run) throws IOException, InterruptedException {
+		BatchResponse.TestResult result = new BatchResponse.TestResult();
+		result.setIndex(index);
+		if (stop.get()) {
+			result.setVerdict("SKIPPED");
+			return result;
+		}
+		Files.createDirectories(workDir);
+		long start = System.nanoTime();
+		CodeResponse outcome = runProgram(program, test.getInput(), timeoutMillis, workDir, OutputListener.NONE, run);
+		result.setTimeMillis((System.nanoTime() - start) / 1_000_000);
+		result.setOutput(outcome.getOutput());
+		result.setError(outcome.getError());
+		result.setCpuTimeMillis(outcome.getCpuTimeMillis());
+		result.setPeakMemoryKb(outcome.getPeakMemoryKb());
+
+		if (outcome.getError() != null && outcome.getError().startsWith(TIMED_OUT)) {
+			result.setVerdict("TIMEOUT");
+		} else if (outcome.getError() != null && !outcome.getError().isBlank()) {
+			result.setVerdict("RUNTIME_ERROR");
+		} else if (test.getExpectedOutput() != null && !sameOutput(outcome.getOutput(), test.getExpectedOutput())) {
+			result.setVerdict("WRONG_ANSWER");
+		} else {
+			result.setVerdict("PASSED");
+		}
+		if (stopOnFailure && !result.getVerdict().equals("PASSED")) stop.set(true);
+		return result;
+	}
 
-			ProcessBuilder pbCompile = new ProcessBuilder("gcc", src.toString(), "-o", dir.resolve("main").toString());
-			pbCompile.directory(dir.toFile());
-			Process compileProc = pbCompile.start();
+	/** Output comparison that ignores trailing whitespace on each line and trailing blank lines. */
+	private static boolean sameOutput(String actual, String expected) {
+		return normalizeOutput(actual).equals(normalizeOutput(expected));
+	}
 
-			String compileErr = readStream(compileProc.getErrorStream());
-			compileProc.waitFor(10, TimeUnit.SECONDS);
+	private static String normalizeOutput(String s) {
+		if (s == null) return "";
+		StringBuilder sb = new StringBuilder(s.length());
+		for (String line : s.split("\n")) {
+			sb.append(line.stripTrailing()).append('\n');
+		}
+		int end = sb.length();
+		while (end > 0 && sb.charAt(end - 1) == '\n') end--;
+		return sb.substring(0, end);
+	}
 
-			if (compileErr != null && !compileErr.isBlank()) {
-				resp.setCompileOutput(truncate(compileErr));
-				return resp;
-			}
+	private CodeResponse runC(CodeRequest request, Path dir, OutputListener listener, Telemetry.Run run) {
+		try {
+			Program program = prepareC(request.getCode(), dir, listener, run);
+			if (program.failure != null) return program.failure;
+			return runProgram(program, request.getInput(), TIMEOUT_MILLIS, dir, listener, run);
+		} catch (Exception e) {
+			CodeResponse resp = new CodeResponse();
+			resp.setError("Execution error: " + e.getMessage());
+			return resp;
+		}
+	}
 
-			ProcessBuilder pbRun = new ProcessBuilder(dir.resolve("main").toString());
-			pbRun.directory(dir.toFile());
-			Process runProc = pbRun.start();
-			if (request.getInput() != null) {
-				try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(runProc.getOutputStream()))) {
-					w.write(request.getInput());
-					w.flush();
-				}
-			} else {
-				runProc.getOutputStream().close();
-			}
+	private Program prepareC(String code, Path dir, OutputListener listener, Telemetry.Run run) throws Exception {
+		long start = System.nanoTime();
+		String cacheKey = compileCache.key("c", code, C_FLAGS, compileCache.toolchainVersion("gcc"));
+		Compilation compilation = compileFlights.run(cacheKey, () -> compileC(code, cacheKey, dir));
+		run.phase("compile", System.nanoTime() - start);
+		run.cache(compilation.cached ? "hit" : "miss");
+		if (compilation.failed()) {
+			CodeResponse resp = new CodeResponse();
+			resp.setCompileOutput(truncate(compilation.diagnostics));
+			listener.onCompileOutput(resp.getCompileOutput());
+			return Program.failed(resp);
+		}
+		listener.onCompiled();
+		compilation.copyTo(dir);
+		return Program.command(List.of(dir.resolve("main").toString()));
+	}
 
-			boolean finished = runProc.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-			if (!finished) {
-				runProc.destroyForcibly();
-				resp.setError("Execution timed out after " + TIMEOUT_SECONDS + "s");
-				return resp;
-			}
+	private Compilation compileC(String code, String cacheKey, Path dir) throws IOException, InterruptedException {
+		if (compileCache.restore(cacheKey, dir)) {
+			return Compilation.restored(dir, readArtifacts(dir, List.of("main")), true);
+		}
+		Path src = dir.resolve("main.c");
+		Files.writeString(src, code, StandardCharsets.UTF_8);
+
+		// relative to the workspace, so diagnostics name main.c rather than this run's directory
+		List<String> cmd = new ArrayList<>(List.of("gcc", src.getFileName().toString()));
+		cmd.addAll(C_FLAGS);
+		cmd.addAll(List.of("-o", dir.resolve("main").toString()));
+		ProcessBuilder pbCompile = new ProcessBuilder(cmd);
+		pbCompile.directory(dir.toFile());
+		Process compileProc = pbCompile.start();
+		OutputCapture compileCapture = OutputCapture.start(compileProc, OUTPUT_HEAD_BYTES, OUTPUT_TAIL_BYTES);
+		compileCapture.writeInput(null);
+
+		boolean compiled = compileProc.waitFor(COMPILE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		if (!compiled) compileProc.destroyForcibly();
+		compileCapture.await(DRAIN_GRACE_MS);
+		if (!compiled) {
+			return Compilation.failed("Compilation timed out after " + COMPILE_TIMEOUT_SECONDS + "s");
+		}
+		String compileErr = compileCapture.stderr();
 
-			String stdout = readStream(runProc.getInputStream());
-			String stderr = readStream(runProc.getErrorStream());
+		if (compileErr != null && !compileErr.isBlank()) {
+			return Compilation.failed(compileErr);
+		}
+		if (compileProc.exitValue() == 0 && Files.exists(dir.resolve("main"))) {
+			compileCache.store(cacheKey, dir, List.of("main"));
+		}
+		return Compilation.succeeded(dir, readArtifacts(dir, List.of("main")), true);
+	}
 
-			if (stderr != null && !stderr.isBlank()) resp.setError(truncate(stderr));
-			if (stdout != null) resp.setOutput(truncate(stdout));
-			return resp;
+	private CodeResponse runJava(CodeRequest request, Path dir, OutputListener listener, Telemetry.Run run) {
+		try {
+			Program program = prepareJava(request.getCode(), dir, listener, run);
+			if (program.failure != null) return program.failure;
+			return runProgram(program, request.getInput(), TIMEOUT_MILLIS, dir, listener, run);
 		} catch (Exception e) {
+			CodeResponse resp = new CodeResponse();
 			resp.setError("Execution error: " + e.getMessage());
 			return resp;
 		}
 	}
 
-	private CodeResponse runJava(CodeRequest request, Path dir) {
-		CodeResponse resp = new CodeResponse();
-		try {
-			String code = request.getCode();
-			String className = extractPublicClassName(code);
-			if (className == null) {
-				className = "Main";
-			}
-			Path src = dir.resolve(className + ".java");
-			Files.writeString(src, code, StandardCharsets.UTF_8);
-
-			ProcessBuilder pbCompile = new ProcessBuilder("javac", src.toString());
-			pbCompile.directory(dir.toFile());
-			Process compileProc = pbCompile.start();
-
-			String compileErr = readStream(compileProc.getErrorStream());
-			compileProc.waitFor(10, TimeUnit.SECONDS);
+	private Program prepareJava(String code, Path dir, OutputListener listener, Telemetry.Run run) throws Exception {
+		long start = System.nanoTime();
+		String className = extractPublicClassName(code);
+		if (className == null) {
+			className = "Main";
+		}
+		String mainClass = className;
+		String toolchain = javaCompiler.isAvailable() ? javaCompiler.version() : compileCache.toolchainVersion("javac");
+		String cacheKey = compileCache.key("java", code, JAVAC_FLAGS, toolchain);
+		Compilation compilation = compileFlights.run(cacheKey, () -> compileJava(mainClass, code, cacheKey, dir));
+		run.phase("compile", System.nanoTime() - start);
+		run.cache(compilation.cached ? "hit" : "miss");
+		if (compilation.failed()) {
+			CodeResponse resp = new CodeResponse();
+			resp.setCompileOutput(truncate(compilation.diagnostics));
+			listener.onCompileOutput(resp.getCompileOutput());
+			return Program.failed(resp);
+		}
+		listener.onCompiled();
+		compilation.copyTo(dir);
+		List<String> command = new ArrayList<>(List.of(JAVA_BIN));
+		command.addAll(resourceLimiter.jvmOptions());
+		command.addAll(classDataSharing.jvmOptions());
+		command.addAll(List.of("-cp", dir.toString(), className));
+		return Program.java(command, className);
+	}
 
-			if (compileErr != null && !compileErr.isBlank()) {
-				resp.setCompileOutput(truncate(compileErr));
-				return resp;
+	private Compilation compileJava(String className, String code, String cacheKey, Path dir) throws IOException, InterruptedException {
+		if (compileCache.restore(cacheKey, dir)) {
+			return Compilation.restored(dir, readArtifacts(dir, listClassFiles(dir)), false);
+		}
+		if (javaCompiler.isAvailable()) {
+			InMemoryJavaCompiler.Result result = javaCompiler.compile(className + ".java", code, JAVAC_FLAGS);
+			if (!result.getDiagnostics().isBlank()) {
+				return Compilation.failed(result.getDiagnostics());
 			}
-
-			ProcessBuilder pbRun = new ProcessBuilder("java", "-cp", dir.toString(), className);
-			pbRun.directory(dir.toFile());
-			Process runProc = pbRun.start();
-
-			if (request.getInput() != null) {
-				try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(runProc.getOutputStream()))) {
-					w.write(request.getInput());
-					w.flush();
-				}
-			} else {
-				runProc.getOutputStream().close();
+			Map<String, byte[]> artifacts = new LinkedHashMap<>();
+			for (Map.Entry<String, byte[]> e : result.getClasses().entrySet()) {
+				Files.write(dir.resolve(e.getKey() + ".class"), e.getValue());
+				artifacts.put(e.getKey() + ".class", e.getValue());
 			}
-
-			boolean finished = runProc.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-			if (!finished) {
-				runProc.destroyForcibly();
-				resp.setError("Execution timed out after " + TIMEOUT_SECONDS + "s");
-				return resp;
+			if (!artifacts.isEmpty()) {
+				compileCache.store(cacheKey, dir, new ArrayList<>(artifacts.keySet()));
 			}
+			return Compilation.succeeded(dir, artifacts, false);
+		}
 
-			String stdout = readStream(runProc.getInputStream());
-			String stderr = readStream(runProc.getErrorStream());
+		String compileErr = compileJavaWithJavac(className, code, dir);
+		if (compileErr != null && !compileErr.isBlank()) {
+			return Compilation.failed(compileErr);
+		}
+		List<String> classFiles = listClassFiles(dir);
+		if (!classFiles.isEmpty()) {
+			compileCache.store(cacheKey, dir, classFiles);
+		}
+		return Compilation.succeeded(dir, readArtifacts(dir, classFiles), false);
+	}
 
-			if (stderr != null && !stderr.isBlank()) resp.setError(truncate(stderr));
-			if (stdout != null) resp.setOutput(truncate(stdout));
-			return resp;
-		} catch (Exception e) {
-			resp.setError("Execution error: " + e.getMessage());
-			return resp;
+	/**
+	 * Fallback for JREs without the compiler module: spawns {@code javac}.
+	 */
+	private String compileJavaWithJavac(String className, String code, Path dir) throws IOException, InterruptedException {
+		Path src = dir.resolve(className + ".java");
+		Files.writeString(src, code, StandardCharsets.UTF_8);
+
+		List<String> cmd = new ArrayList<>(List.of("javac"));
+		cmd.addAll(JAVAC_FLAGS);
+		cmd.add(src.toString());
+		ProcessBuilder pbCompile = new ProcessBuilder(cmd);
+		pbCompile.directory(dir.toFile());
+		Process compileProc = pbCompile.start();
+		OutputCapture compileCapture = OutputCapture.start(compileProc, OUTPUT_HEAD_BYTES, OUTPUT_TAIL_BYTES);
+		compileCapture.writeInput(null);
+
+		if (!compileProc.waitFor(COMPILE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+			compileProc.destroyForcibly();
+			compileCapture.await(DRAIN_GRACE_MS);
+			return "Compilation timed out after " + COMPILE_TIMEOUT_SECONDS + "s";
 		}
+		compileCapture.await(DRAIN_GRACE_MS);
+		return compileCapture.stderr();
 	}
 
-	private CodeResponse runPython(CodeRequest request, Path dir) {
+	/**
+	 * Builds a multi-file project in its session workspace, recompiling only what changed since
+	 * the session's last build, and runs it in {@code workDir} with the project's data files.
+	 */
+	private CodeResponse runProject(CodeRequest request, String lang, Path workDir, OutputListener listener, Telemetry.Run run) {
 		CodeResponse resp = new CodeResponse();
+		if (lang.equals("py")) lang = "python";
+		if (!lang.equals("c") && !lang.equals("java") && !lang.equals("python")) {
+			resp.setError("Unsupported language: " + request.getLanguage());
+			return resp;
+		}
 		try {
-			Path src = dir.resolve("main.py");
-			Files.writeString(src, request.getCode(), StandardCharsets.UTF_8);
-
-			String pythonCmd = detectPythonCommand();
-
-			ProcessBuilder pbRun = new ProcessBuilder(pythonCmd, src.toString());
-			pbRun.directory(dir.toFile());
-			Process runProc = pbRun.start();
-
-			if (request.getInput() != null) {
-				try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(runProc.getOutputStream()))) {
-					w.write(request.getInput());
-					w.flush();
+			Map<String, String> files = projects.files(request);
+			long start = System.nanoTime();
+			try (ProjectWorkspaces.Session session = projects.open(request.getClientId(), request.getSessionId(), lang)) {
+				ProjectWorkspaces.Build build = projects.build(session, files, request.getEntry());
+				run.phase("compile", System.nanoTime() - start);
+				run.cache(build.getCache());
+				if (build.getDiagnostics() != null) {
+					resp.setCompileOutput(truncate(build.getDiagnostics()));
+					listener.onCompileOutput(resp.getCompileOutput());
+					return resp;
 				}
-			} else {
-				runProc.getOutputStream().close();
-			}
-
-			boolean finished = runProc.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-			if (!finished) {
-				runProc.destroyForcibly();
-				resp.setError("Execution timed out after " + TIMEOUT_SECONDS + "s");
-				return resp;
+				if (build.getError() != null) {
+					resp.setError(build.getError());
+					return resp;
+				}
+				listener.onCompiled();
+				projects.stageData(session, build, workDir);
+				Program program;
+				if (lang.equals("java")) {
+					List<String> command = new ArrayList<>(List.of(JAVA_BIN));
+					command.addAll(resourceLimiter.jvmOptions());
+					command.addAll(classDataSharing.jvmOptions());
+					command.addAll(List.of("-cp", build.getClassesDir().toString(), build.getMainClass()));
+					program = Program.java(command, build.getMainClass());
+				} else if (lang.equals("c")) {
+					program = Program.command(List.of(build.getExecutable().toString()));
+				} else {
+					program = Program.python(List.of(pythonRunnerPool.pythonCommand(), build.getScript().toString()), build.getScript());
+				}
+				// the session stays locked while its build runs
+				return runProgram(program, request.getInput(), TIMEOUT_MILLIS, workDir, listener, run);
 			}
-
-			String stdout = readStream(runProc.getInputStream());
-			String stderr = readStream(runProc.getErrorStream());
-
-			if (stderr != null && !stderr.isBlank()) resp.setError(truncate(stderr));
-			if (stdout != null) resp.setOutput(truncate(stdout));
+		} catch (IllegalArgumentException e) {
+			resp.setError("Invalid project: " + e.getMessage());
 			return resp;
 		} catch (Exception e) {
 			resp.setError("Execution error: " + e.getMessage());
@@ -186,53 +510,137 @@ public class LocalExecutorService {
 		}
 	}
 
-	private String detectPythonCommand() {
-		String[] candidates = new String[] { "python3", "python", "py" };
-		for (String cmd : candidates) {
-			try {
-				ProcessBuilder pb = new ProcessBuilder(cmd, "--version");
-				Process p = pb.start();
-				boolean ok = p.waitFor(2, TimeUnit.SECONDS);
-				if (ok && p.exitValue() == 0) {
-					// found a working python command
-					return cmd;
+	private CodeResponse runPython(CodeRequest request, Path dir, OutputListener listener, Telemetry.Run run) {
+		try {
+			Program program = preparePython(request.getCode(), dir, listener, run);
+			return runProgram(program, request.getInput(), TIMEOUT_MILLIS, dir, listener, run);
+		} catch (Exception e) {
+			CodeResponse resp = new CodeResponse();
+			resp.setError("Execution error: " + e.getMessage());
+			return resp;
+		}
+	}
+
+	private Program preparePython(String code, Path dir, OutputListener listener, Telemetry.Run run) throws IOException {
+		listener.onCompiled();
+		Path src = dir.resolve("main.py");
+		Files.writeString(src, code, StandardCharsets.UTF_8);
+
+		return Program.python(List.of(pythonRunnerPool.pythonCommand(), src.toString()), src);
+	}
+
+
+	/**
+	 * Runs a prepared program once in {@code workDir}, recording wall time and whatever usage
+	 * could be measured. Python programs go to a pre-started interpreter when one is ready and
+	 * fall back to a cold start.
+	 */
+	private CodeResponse runProgram(Program program, String input, long timeoutMillis, Path workDir, OutputListener listener,
+			Telemetry.Run run) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		CodeResponse resp = null;
+		if (program.script != null) {
+			PythonRunnerPool.Warm warm = pythonRunnerPool.take();
+			if (warm != null) {
+				run.runner("python-pool");
+				try (warm) {
+					resp = runProcess(warm.getProcess(), warm.getLaunch(), warm.stdin(scriptPath(program.script, workDir), workDir, input),
+							timeoutMillis, listener, run);
 				}
-			} catch (IOException | InterruptedException ignored) {
-				// try next candidate
 			}
 		}
-		// fallback: return "python" (will likely produce the same error if none found)
-		return "python";
+		if (resp == null) {
+			List<String> command = program.command;
+			if (program.script != null) command = List.of(command.get(0), scriptPath(program.script, workDir));
+			ResourceLimiter.Launch launch = resourceLimiter.wrap(command, program.mainClass != null);
+			ProcessBuilder pb = new ProcessBuilder(launch.getCommand());
+			pb.directory(workDir.toFile());
+			resp = runProcess(pb.start(), launch, input, timeoutMillis, listener, run);
+		}
+		long elapsed = System.nanoTime() - start;
+		run.phase("run", elapsed);
+		resp.setWallTimeMillis(elapsed / 1_000_000);
+		return resp;
 	}
 
+	/**
+	 * How to name a Python script to an interpreter running in {@code workDir}: relative when it
+	 * is inside it, so tracebacks say {@code main.py} instead of the run's workspace path.
+	 */
+	private static String scriptPath(Path script, Path workDir) {
+		return script.startsWith(workDir) ? workDir.relativize(script).toString() : script.toAbsolutePath().toString();
+	}
 
-	private String readStream(InputStream is) throws IOException {
-		if (is == null) return "";
-		StringBuilder sb = new StringBuilder();
-		try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-			int c;
-			while ((c = br.read()) != -1 && sb.length() < MAX_OUTPUT_CHARS) {
-				sb.append((char) c);
-			}
+	/**
+	 * Feeds a started process its input and waits for it under the wall-clock timeout. Output is
+	 * drained while the program runs and is already bounded, so it is not truncated again here.
+	 */
+	private CodeResponse runProcess(Process runProc, ResourceLimiter.Launch launch, String input, long timeoutMillis,
+			OutputListener listener, Telemetry.Run run) throws InterruptedException {
+		CodeResponse resp = new CodeResponse();
+		OutputCapture capture = OutputCapture.start(runProc, OUTPUT_HEAD_BYTES, OUTPUT_TAIL_BYTES, listener);
+		capture.writeInput(input);
+
+		boolean finished;
+		try {
+			finished = runProc.waitFor(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// the caller gave up (e.g. a cancelled batch); do not leave the program running
+			launch.kill(runProc);
+			launch.discard();
+			throw e;
+		}
+		if (!finished) {
+			launch.kill(runProc);
+			launch.discard();
+			capture.await(DRAIN_GRACE_MS);
+			resp.setError(timeoutMessage(timeoutMillis));
+			return resp;
 		}
-		return sb.toString();
+		// output still in the pipes once the program is gone
+		long drainStart = System.nanoTime();
+		capture.await(DRAIN_GRACE_MS);
+		run.phase("capture", System.nanoTime() - drainStart);
+
+		ResourceLimiter.Usage usage = launch.usage(runProc.exitValue());
+		resp.setExitCode(usage.getExitCode());
+		resp.setCpuTimeMillis(usage.getCpuTimeMillis());
+		resp.setPeakMemoryKb(usage.getPeakMemoryKb());
+		String stderr = capture.stderr();
+		String limit = resourceLimiter.limitMessage(usage);
+		if (limit != null) stderr = stderr.isBlank() ? limit : stderr.stripTrailing() + "\n" + limit;
+		if (!stderr.isBlank()) resp.setError(stderr);
+		resp.setOutput(capture.stdout());
+		return resp;
 	}
 
-	private String truncate(String s) {
+	private static String timeoutMessage(long timeoutMillis) {
+		return TIMED_OUT + (timeoutMillis % 1000 == 0 ? (timeoutMillis / 1000) + "s" : timeoutMillis + "ms");
+	}
+
+	static String truncate(String s) {
 		if (s == null) return null;
 		if (s.length() <= MAX_OUTPUT_CHARS) return s;
 		return s.substring(0, MAX_OUTPUT_CHARS) + "\n...[truncated]";
 	}
 
-	private void deleteRecursive(Path path) throws IOException {
-		if (Files.notExists(path)) return;
-		Files.walk(path)
-		.sorted(Comparator.reverseOrder())
-		.map(Path::toFile)
-		.forEach(File::delete);
+	private List<String> listClassFiles(Path dir) throws IOException {
+		List<String> names = new ArrayList<>();
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.class")) {
+			for (Path p : ds) names.add(p.getFileName().toString());
+		}
+		return names;
+	}
+
+	private Map<String, byte[]> readArtifacts(Path dir, List<String> names) throws IOException {
+		Map<String, byte[]> artifacts = new LinkedHashMap<>();
+		for (String name : names) {
+			artifacts.put(name, Files.readAllBytes(dir.resolve(name)));
+		}
+		return artifacts;
 	}
 
-	private String extractPublicClassName(String javaSource) {
+	static String extractPublicClassName(String javaSource) {
 		Pattern p = Pattern.compile("public\\s+class\\s+(\\w+)");
 		Matcher m = p.matcher(javaSource);
 		if (m.find()) {
@@ -240,4 +648,85 @@ public class LocalExecutorService {
 		}
 		return null;
 	}
+
+	/** A submission ready to run, possibly many times; or the response explaining why it is not. */
+	private static final class Program {
+		private final CodeResponse failure;
+		private final List<String> command;
+		// Java only: the class to run
+		private final String mainClass;
+		// Python only: the script, for pre-started interpreters
+		private final Path script;
+
+		private Program(CodeResponse failure, List<String> command, String mainClass, Path script) {
+			this.failure = failure;
+			this.command = command;
+			this.mainClass = mainClass;
+			this.script = script;
+		}
+
+		static Program failed(CodeResponse failure) {
+			return new Program(failure, null, null, null);
+		}
+
+		static Program command(List<String> command) {
+			return new Program(null, command, null, null);
+		}
+
+		static Program java(List<String> command, String mainClass) {
+			return new Program(null, command, mainClass, null);
+		}
+
+		static Program python(List<String> command, Path script) {
+			return new Program(null, command, null, script);
+		}
+	}
+
+	/**
+	 * Result of compiling one source, shared by every request coalesced onto it. Artifacts are
+	 * kept in memory so that followers can copy them after the leader's workspace is gone.
+	 */
+	private static final class Compilation {
+		private final Path dir;
+		private final String diagnostics;
+		// artifact file name -> contents
+		private final Map<String, byte[]> artifacts;
+		private final boolean executable;
+		// restored from the compile cache rather than compiled
+		private final boolean cached;
+
+		private Compilation(Path dir, String diagnostics, Map<String, byte[]> artifacts, boolean executable, boolean cached) {
+			this.dir = dir;
+			this.diagnostics = diagnostics;
+			this.artifacts = artifacts;
+			this.executable = executable;
+			this.cached = cached;
+		}
+
+		static Compilation succeeded(Path dir, Map<String, byte[]> artifacts, boolean executable) {
+			return new Compilation(dir, null, artifacts, executable, false);
+		}
+
+		static Compilation restored(Path dir, Map<String, byte[]> artifacts, boolean executable) {
+			return new Compilation(dir, null, artifacts, executable, true);
+		}
+
+		static Compilation failed(String diagnostics) {
+			return new Compilation(null, diagnostics, Map.of(), false, false);
+		}
+
+		boolean failed() {
+			return diagnostics != null;
+		}
+
+		/** Writes the artifacts into {@code target} unless this request compiled them there. */
+		void copyTo(Path target) throws IOException {
+			if (target.equals(dir)) return;
+			for (Map.Entry<String, byte[]> e : artifacts.entrySet()) {
+				Path f = target.resolve(e.getKey());
+				Files.write(f, e.getValue());
+				if (executable) f.toFile().setExecutable(true, true);
+			}
+		}
+	}
 }
@@ -0,0 +1,95 @@
+package com.aidebugger.backend.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded byte sink for program output.
+ *
+ * Keeps the first {@code headBytes} and the last {@code tailBytes} written (the tail in a ring
+ * buffer) and only counts whatever falls in between, so a caller can keep draining a pipe of any
+ * size in constant memory. When output was dropped, {@link #toString()} joins head and tail with
+ * a marker saying how much is missing.
+ */
+public class OutputBuffer {
+
+    private final byte[] head;
+    private int headLen;
+    private final byte[] tail;
+    private int tailPos;
+    private boolean tailWrapped;
+    private long total;
+
+    public OutputBuffer(int headBytes, int tailBytes) {
+        this.head = new byte[headBytes];
+        this.tail = new byte[tailBytes];
+    }
+
+    public synchronized void write(byte[] b, int off, int len) {
+        total += len;
+        int toHead = Math.min(len, head.length - headLen);
+        if (toHead > 0) {
+            System.arraycopy(b, off, head, headLen, toHead);
+            headLen += toHead;
+            off += toHead;
+            len -= toHead;
+        }
+        if (len == 0 || tail.length == 0) return;
+        if (len >= tail.length) {
+            System.arraycopy(b, off + len - tail.length, tail, 0, tail.length);
+            tailPos = 0;
+            tailWrapped = true;
+            return;
+        }
+        int first = Math.min(len, tail.length - tailPos);
+        System.arraycopy(b, off, tail, tailPos, first);
+        System.arraycopy(b, off + first, tail, 0, len - first);
+        if (tailPos + len >= tail.length) tailWrapped = true;
+        tailPos = (tailPos + len) % tail.length;
+    }
+
+    /** Total number of bytes written, including dropped ones. */
+    public synchronized long size() {
+        return total;
+    }
+
+    public synchronized boolean isTruncated() {
+        return total > (long) head.length + tail.length;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int tailLen = tailWrapped ? tail.length : tailPos;
+        byte[] t = new byte[tailLen];
+        if (tailWrapped) {
+            System.arraycopy(tail, tailPos, t, 0, tail.length - tailPos);
+            System.arraycopy(tail, 0, t, tail.length - tailPos, tailPos);
+        } else {
+            System.arraycopy(tail, 0, t, 0, tailPos);
+        }
+        if (!isTruncated()) {
+            byte[] all = new byte[headLen + tailLen];
+            System.arraycopy(head, 0, all, 0, headLen);
+            System.arraycopy(t, 0, all, headLen, tailLen);
+            return new String(all, StandardCharsets.UTF_8);
+        }
+        // cut on UTF-8 character boundaries so the seams do not show replacement characters
+        int headEnd = headLen;
+        int back = 0;
+        while (back < 3 && headEnd - back > 0 && (head[headEnd - back - 1] & 0xC0) == 0x80) back++;
+        if (headEnd - back > 0 && sequenceLength(head[headEnd - back - 1]) > back + 1) headEnd -= back + 1;
+        int tailStart = 0;
+        while (tailStart < 3 && tailStart < tailLen && (t[tailStart] & 0xC0) == 0x80) tailStart++;
+
+        long dropped = total - head.length - tail.length;
+        return new String(head, 0, headEnd, StandardCharsets.UTF_8)
+                + "\n...[truncated " + dropped + " bytes]...\n"
+                + new String(t, tailStart, tailLen - tailStart, StandardCharsets.UTF_8);
+    }
+
+    private static int sequenceLength(byte lead) {
+        if ((lead & 0x80) == 0) return 1;
+        if ((lead & 0xE0) == 0xC0) return 2;
+        if ((lead & 0xF0) == 0xE0) return 3;
+        return 4;
+    }
+}
@@ -0,0 +1,156 @@
+package com.aidebugger.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+
+/**
+ * Drains a child process's stdout and stderr from the moment it starts.
+ *
+ * Both pipes are read concurrently in large chunks into {@link OutputBuffer}s, and reading
+ * continues past the buffer limits, so a chatty program can never block on a full pipe and
+ * be mistaken for a timeout.
+ */
+public final class OutputCapture {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private static final ExecutorService IO = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "process-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Process process;
+    private final OutputBuffer stdout;
+    private final OutputBuffer stderr;
+    private final Future<?> stdoutDrain;
+    private final Future<?> stderrDrain;
+
+    private OutputCapture(Process process, int headBytes, int tailBytes, OutputListener listener) {
+        this.process = process;
+        this.stdout = new OutputBuffer(headBytes, tailBytes);
+        this.stderr = new OutputBuffer(headBytes, tailBytes);
+        Forwarder outForwarder = new Forwarder(listener, false, headBytes);
+        Forwarder errForwarder = new Forwarder(listener, true, headBytes);
+        this.stdoutDrain = IO.submit(() -> drain(process.getInputStream(), stdout, outForwarder));
+        this.stderrDrain = IO.submit(() -> drain(process.getErrorStream(), stderr, errForwarder));
+    }
+
+    /** Starts draining {@code process}; call right after {@link ProcessBuilder#start()}. */
+    public static OutputCapture start(Process process, int headBytes, int tailBytes) {
+        return new OutputCapture(process, headBytes, tailBytes, OutputListener.NONE);
+    }
+
+    /** Like {@link #start(Process, int, int)}, also forwarding output to {@code listener} as it arrives. */
+    public static OutputCapture start(Process process, int headBytes, int tailBytes, OutputListener listener) {
+        return new OutputCapture(process, headBytes, tailBytes, listener);
+    }
+
+    /**
+     * Feeds {@code input} to the process's stdin and closes it, off the calling thread so a
+     * program that never reads stdin cannot stall the caller.
+     */
+    public void writeInput(String input) {
+        IO.execute(() -> {
+            try (OutputStream os = process.getOutputStream()) {
+                if (input != null) os.write(input.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ignored) {
+                // the program exited without reading all of its input
+            }
+        });
+    }
+
+    /**
+     * Waits for both pipes to reach EOF. Call after the process has exited or been killed; if a
+     * grandchild still holds the pipes open after {@code millis}, the streams are closed.
+     */
+    public void await(long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (Future<?> f : new Future<?>[] { stdoutDrain, stderrDrain }) {
+            try {
+                f.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                closeQuietly(process.getInputStream());
+                closeQuietly(process.getErrorStream());
+            } catch (ExecutionException ignored) {
+                // stream closed underneath the reader
+            }
+        }
+    }
+
+    public String stdout() {
+        return stdout.toString();
+    }
+
+    public String stderr() {
+        return stderr.toString();
+    }
+
+    public boolean isTruncated() {
+        return stdout.isTruncated() || stderr.isTruncated();
+    }
+
+    private static Void drain(InputStream is, OutputBuffer sink, Forwarder forwarder) throws IOException {
+        byte[] buf = new byte[CHUNK_BYTES];
+        try (is) {
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                forwarder.accept(buf, 0, n, sink.size());
+                sink.write(buf, 0, n);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes one stream's chunks for an {@link OutputListener}, keeping partial UTF-8 sequences
+     * for the next chunk, and stops forwarding once {@code limit} bytes have been seen.
+     */
+    static final class Forwarder {
+        private final OutputListener listener;
+        private final boolean stderr;
+        private final long limit;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer pending = ByteBuffer.allocate(8);
+
+        Forwarder(OutputListener listener, boolean stderr, long limit) {
+            this.listener = listener;
+            this.stderr = stderr;
+            this.limit = limit;
+        }
+
+        /** @param seen bytes of this stream already received before this chunk */
+        void accept(byte[] b, int off, int len, long seen) {
+            if (listener == OutputListener.NONE || seen >= limit) return;
+            int n = (int) Math.min(len, limit - seen);
+            ByteBuffer in;
+            if (pending.position() > 0) {
+                in = ByteBuffer.allocate(pending.position() + n);
+                in.put(pending.flip()).put(b, off, n).flip();
+                pending.clear();
+            } else {
+                in = ByteBuffer.wrap(b, off, n);
+            }
+            CharBuffer out = CharBuffer.allocate(in.remaining());
+            decoder.decode(in, out, false);
+            if (in.hasRemaining() && in.remaining() <= pending.capacity()) pending.put(in);
+            if (out.position() > 0) listener.onOutput(stderr, out.flip().toString());
+        }
+    }
+
+    private static void closeQuietly(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.aidebugger.backend.service;
+
+/**
+ * Receives a run's progress while it happens, for streaming clients.
+ *
+ * Output is forwarded only up to the same head limit the captured {@code CodeResponse} keeps;
+ * whatever is dropped after that shows up as the truncation marker in the final response.
+ * Callbacks arrive on executor threads and must not block for long.
+ */
+public interface OutputListener {
+
+    OutputListener NONE = new OutputListener() {
+        @Override
+        public void onOutput(boolean stderr, String text) {
+        }
+    };
+
+    /** Called once compilation has produced diagnostics. */
+    default void onCompileOutput(String compileOutput) {
+    }
+
+    /**
+     * Called once the program is known to compile, just before it starts; interpreted
+     * languages have no compile step, so for them this is the first callback.
+     */
+    default void onCompiled() {
+    }
+
+    void onOutput(boolean stderr, String text);
+}
@@ -0,0 +1,747 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Multi-file project submissions and the per-session workspaces that build them incrementally.
+ *
+ * A session keeps the project's files and build output between requests with the same
+ * {@code sessionId}, so a run recompiles only what the edit affects. Java sources are compiled
+ * in process; a changed file is recompiled together with the files whose classes refer to its
+ * classes (read from the class files, see {@link ClassDependencies}), and so on transitively,
+ * and a changed compile-time constant, which javac inlines, rebuilds the whole project. C sources are compiled one object each, and an object is rebuilt when its
+ * source or a project header it includes (as listed by {@code gcc -MMD}) changes; the binary
+ * is relinked when any object changed. Python needs no build.
+ *
+ * Sessions belong to the client that created them, identified by its server-issued token, not
+ * its address: the same {@code sessionId} from another client, even one behind the same NAT,
+ * is a different session. Requests without a session get a throwaway workspace.
+ * Sessions are evicted least-recently-used
+ * beyond {@code executor.project.max-sessions} and after {@code executor.project.idle-minutes}
+ * without a request. Requests of one session run one at a time.
+ */
+@Component
+public class ProjectWorkspaces {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectWorkspaces.class);
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    // relative, no parent or hidden segments, nothing make-style dependency files cannot spell
+    private static final Pattern FILE_PATH = Pattern.compile("[\\w+-][\\w.+-]*(/[\\w+-][\\w.+-]*)*");
+    private static final long COMPILE_TIMEOUT_SECONDS = 10;
+    private static final int DIAGNOSTICS_HEAD_BYTES = 16000;
+    private static final int DIAGNOSTICS_TAIL_BYTES = 4000;
+    private static final List<String> JAVAC_FLAGS = List.of();
+
+    @Autowired
+    private WorkspacePool workspacePool;
+
+    @Autowired
+    private InMemoryJavaCompiler javaCompiler;
+
+    @Autowired
+    private CompileCacheService compileCache;
+
+    @Value("${executor.project.max-files:200}")
+    private int maxFiles;
+
+    @Value("${executor.project.max-bytes:4194304}")
+    private long maxBytes;
+
+    @Value("${executor.project.max-sessions:100}")
+    private int maxSessions;
+
+    @Value("${executor.project.idle-minutes:30}")
+    private long idleMinutes;
+
+    private Path root;
+    // client, sessionId and language -> session, in access order for LRU eviction
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicInteger anonymous = new AtomicInteger();
+    private ScheduledExecutorService janitor;
+
+    /**
+     * One project's files and build state. Holding it means holding the session's lock; closing
+     * it releases the lock, and deletes the workspace when it belongs to a single request.
+     */
+    public final class Session implements AutoCloseable {
+        private final String key;
+        private final String language;
+        private final Path dir;
+        private final Path src;
+        private final Path build;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private boolean discarded;
+
+        // path -> content hash of what is in src
+        private final Map<String, String> files = new HashMap<>();
+        private String toolchain;
+
+        // Java: source path -> hash it was compiled at, the classes it produced, and all classes
+        private final Map<String, String> compiled = new HashMap<>();
+        private final Map<String, Set<String>> classesBySource = new HashMap<>();
+        private final Map<String, byte[]> classes = new HashMap<>();
+        private final Map<String, ClassDependencies.Info> infos = new HashMap<>();
+
+        // C: source path -> (project file it depends on -> hash it was compiled at)
+        private final Map<String, Map<String, String>> objects = new HashMap<>();
+        private boolean linked;
+
+        private Session(String key, String language, Path dir) {
+            this.key = key;
+            this.language = language;
+            this.dir = dir;
+            this.src = dir.resolve("src");
+            this.build = dir.resolve("build");
+        }
+
+        @Override
+        public void close() {
+            lastUsed = System.currentTimeMillis();
+            if (key == null) deleteQuietly(dir);
+            lock.unlock();
+        }
+    }
+
+    /** What a build produced: something to run, or why there is nothing to run. */
+    public static final class Build {
+        private String diagnostics;
+        private String error;
+        private String cache = "hit";
+        private int compiledFiles;
+        private Path executable;
+        private Path classesDir;
+        private String mainClass;
+        private Path script;
+        private List<String> dataFiles = List.of();
+
+        /** Compiler or linker output when the project does not build. */
+        public String getDiagnostics() { return diagnostics; }
+        /** A problem with the project itself, e.g. no entry point. */
+        public String getError() { return error; }
+        /** hit when nothing was compiled, partial when only some files were, miss when all were. */
+        public String getCache() { return cache; }
+        public int getCompiledFiles() { return compiledFiles; }
+        /** C: the linked program. */
+        public Path getExecutable() { return executable; }
+        /** Java: the class files on disk. */
+        public Path getClassesDir() { return classesDir; }
+        public String getMainClass() { return mainClass; }
+        /** Python: the script to run. */
+        public Path getScript() { return script; }
+        /** Files that are not sources, which the program may open from its working directory. */
+        public List<String> getDataFiles() { return dataFiles; }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        root = workspacePool.projectRoot();
+        Files.createDirectories(root);
+        janitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "project-janitor");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, idleMinutes);
+        janitor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (janitor != null) janitor.shutdownNow();
+    }
+
+    /** True for requests that send a project instead of a single {@code code} string. */
+    public static boolean isProject(CodeRequest request) {
+        return request.getFiles() != null || request.getZip() != null;
+    }
+
+    /**
+     * The project's files, path to content, from either the {@code files} map or the base64
+     * {@code zip}. A zip whose entries all sit in one top-level folder is unwrapped.
+     *
+     * @throws IllegalArgumentException when the project is malformed or over the limits
+     */
+    public Map<String, String> files(CodeRequest request) {
+        if (request.getFiles() != null && request.getZip() != null) {
+            throw new IllegalArgumentException("send either files or zip, not both");
+        }
+        Map<String, String> files = new TreeMap<>();
+        long total = 0;
+        if (request.getFiles() != null) {
+            for (Map.Entry<String, String> e : request.getFiles().entrySet()) {
+                String path = normalizePath(e.getKey());
+                String content = e.getValue() == null ? "" : e.getValue();
+                total += content.getBytes(StandardCharsets.UTF_8).length;
+                if (files.put(path, content) != null) throw new IllegalArgumentException("duplicate file " + path);
+            }
+        } else {
+            total = unzip(request.getZip(), files);
+        }
+        if (files.isEmpty()) throw new IllegalArgumentException("the project has no files");
+        if (files.size() > maxFiles) throw new IllegalArgumentException("too many files, the maximum is " + maxFiles);
+        if (total > maxBytes) throw new IllegalArgumentException("the project is larger than " + maxBytes / 1024 + " KB");
+        return files;
+    }
+
+    /**
+     * Locks and returns the session's workspace, creating it if needed; a null {@code sessionId}
+     * gets a workspace for this request only.
+     *
+     * @param clientId the token of the client that sent the request; one client cannot open
+     *        another's session, and a request without a client has no session to open
+     */
+    public Session open(String clientId, String sessionId, String language) throws IOException {
+        if (sessionId == null || sessionId.isBlank()) {
+            Session s = new Session(null, language, root.resolve("request_" + anonymous.incrementAndGet()));
+            Files.createDirectories(s.src);
+            s.lock.lock();
+            return s;
+        }
+        if (!SESSION_ID.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("sessionId must be 1-64 letters, digits, '-' or '_'");
+        }
+        if (clientId == null || clientId.isEmpty()) {
+            // every session would be shared by all such requests
+            throw new IllegalArgumentException("sessions are not available for this request");
+        }
+        String key = clientId + "\n" + sessionId + "\n" + language;
+        while (true) {
+            Session s;
+            List<Session> evicted = new ArrayList<>();
+            synchronized (this) {
+                s = sessions.get(key);
+                if (s == null) {
+                    // the client is part of the name, but tokens are no file names
+                    s = new Session(key, language, root.resolve(hash(key).substring(0, 24) + "_" + language));
+                    sessions.put(key, s);
+                    Iterator<Session> it = sessions.values().iterator();
+                    while (sessions.size() > maxSessions && it.hasNext()) {
+                        Session eldest = it.next();
+                        if (eldest == s) continue;
+                        it.remove();
+                        evicted.add(eldest);
+                    }
+                }
+            }
+            // the evicted may be in use; wait for them off the request path
+            evicted.forEach(e -> janitor.execute(() -> discard(e)));
+            s.lock.lock();
+            if (!s.discarded) {
+                Files.createDirectories(s.src);
+                return s;
+            }
+            // evicted between lookup and lock; start over
+            s.lock.unlock();
+        }
+    }
+
+    /** Writes the files into the session and builds them. The caller holds the session. */
+    public Build build(Session session, Map<String, String> files, String entry) throws IOException, InterruptedException {
+        sync(session, files);
+        return switch (session.language) {
+            case "java" -> buildJava(session, files, entry);
+            case "c" -> buildC(session, files);
+            default -> buildPython(session, files, entry);
+        };
+    }
+
+    /** Copies the project's data files into a run's working directory. */
+    public void stageData(Session session, Build build, Path workDir) throws IOException {
+        for (String path : build.dataFiles) {
+            Path target = workDir.resolve(path);
+            Files.createDirectories(target.getParent());
+            Files.copy(session.src.resolve(path), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Brings {@code src} in line with {@code files}, writing only what changed. */
+    private void sync(Session s, Map<String, String> files) throws IOException {
+        for (Iterator<String> it = s.files.keySet().iterator(); it.hasNext(); ) {
+            String path = it.next();
+            if (!files.containsKey(path)) {
+                Files.deleteIfExists(s.src.resolve(path));
+                it.remove();
+            }
+        }
+        for (Map.Entry<String, String> e : files.entrySet()) {
+            String hash = hash(e.getValue());
+            if (hash.equals(s.files.get(e.getKey()))) continue;
+            Path target = s.src.resolve(e.getKey());
+            Files.createDirectories(target.getParent());
+            Files.writeString(target, e.getValue(), StandardCharsets.UTF_8);
+            s.files.put(e.getKey(), hash);
+        }
+    }
+
+    private Build buildJava(Session s, Map<String, String> files, String entry) throws IOException {
+        Build b = new Build();
+        Map<String, String> sources = select(files, ".java");
+        b.dataFiles = dataFiles(files, ".java");
+        if (sources.isEmpty()) return fail(b, "The project has no .java files.");
+        if (!javaCompiler.isAvailable()) return fail(b, "Java projects need the backend to run on a JDK with the compiler.");
+        if (!javaCompiler.version().equals(s.toolchain)) {
+            clearJava(s);
+            s.toolchain = javaCompiler.version();
+        }
+
+        Set<String> changed = new TreeSet<>();
+        sources.keySet().forEach(path -> {
+            if (!s.files.get(path).equals(s.compiled.get(path))) changed.add(path);
+        });
+        Set<String> removed = new TreeSet<>(s.classesBySource.keySet());
+        removed.addAll(s.compiled.keySet());
+        removed.removeAll(sources.keySet());
+
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            Set<String> recompile = affectedSources(s.classesBySource, s.infos, changed, removed);
+            Map<String, String> oldConstants = new HashMap<>();
+            String diagnostics = compileJava(s, sources, recompile, removed, oldConstants);
+            if (diagnostics == null && recompile.size() < sources.size() && constantsChanged(s, oldConstants)) {
+                // a constant may have been inlined anywhere; only a full rebuild is safe
+                recompile = new TreeSet<>(sources.keySet());
+                clearJava(s);
+                diagnostics = compileJava(s, sources, recompile, Set.of(), new HashMap<>());
+            }
+            b.compiledFiles = recompile.size();
+            b.cache = recompile.size() == sources.size() ? "miss" : "partial";
+            if (diagnostics != null) {
+                b.diagnostics = diagnostics;
+                return b;
+            }
+        }
+
+        chooseMainClass(s, entry, b);
+        if (b.error != null) return b;
+        b.classesDir = s.build.resolve("classes");
+        return b;
+    }
+
+    /**
+     * Sources to recompile for an edit: the changed ones, and then, until nothing more is added,
+     * every source with a class that refers to a class of a source being recompiled or removed
+     * (which covers subclasses and implementations, whose supertypes are references too). A
+     * class compiled against a recompiled one may itself no longer compile or link, so callers
+     * of it are recompiled as well.
+     *
+     * @param classesBySource source path to the binary names of the classes it produced
+     * @param infos           binary name to what the class refers to
+     */
+    static Set<String> affectedSources(Map<String, Set<String>> classesBySource, Map<String, ClassDependencies.Info> infos,
+            Set<String> changed, Set<String> removed) {
+        Set<String> recompile = new TreeSet<>(changed);
+        Set<String> touched = new HashSet<>();
+        for (String path : union(changed, removed)) touched.addAll(classesBySource.getOrDefault(path, Set.of()));
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (Map.Entry<String, Set<String>> e : classesBySource.entrySet()) {
+                if (recompile.contains(e.getKey()) || removed.contains(e.getKey())) continue;
+                for (String cls : e.getValue()) {
+                    if (!Collections.disjoint(infos.get(cls).references(), touched)) {
+                        recompile.add(e.getKey());
+                        touched.addAll(e.getValue());
+                        grew = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return recompile;
+    }
+
+    /**
+     * Drops the classes of {@code recompile} and {@code removed}, noting their constants in
+     * {@code oldConstants}, then compiles {@code recompile} against the rest. Returns the
+     * diagnostics when it fails, leaving those sources to be compiled again next time.
+     */
+    private String compileJava(Session s, Map<String, String> sources, Set<String> recompile, Set<String> removed,
+            Map<String, String> oldConstants) throws IOException {
+        Path classesDir = s.build.resolve("classes");
+        for (String path : union(recompile, removed)) {
+            for (String cls : s.classesBySource.getOrDefault(path, Set.of())) {
+                oldConstants.put(cls, s.infos.get(cls).constants());
+                s.classes.remove(cls);
+                s.infos.remove(cls);
+                Files.deleteIfExists(classFile(classesDir, cls));
+            }
+            s.classesBySource.remove(path);
+            s.compiled.remove(path);
+        }
+
+        Map<String, String> units = new LinkedHashMap<>();
+        for (String path : recompile) units.put(path, sources.get(path));
+        InMemoryJavaCompiler.ProjectResult result = javaCompiler.compile(units, s.classes, JAVAC_FLAGS);
+        if (result.getClassesBySource() == null) {
+            String diagnostics = result.getDiagnostics();
+            return diagnostics.isBlank() ? "Compilation failed." : diagnostics;
+        }
+        for (String path : recompile) {
+            Map<String, byte[]> produced = result.getClassesBySource().getOrDefault(path, Map.of());
+            for (Map.Entry<String, byte[]> e : produced.entrySet()) {
+                s.classes.put(e.getKey(), e.getValue());
+                s.infos.put(e.getKey(), ClassDependencies.read(e.getValue()));
+                Path f = classFile(classesDir, e.getKey());
+                Files.createDirectories(f.getParent());
+                Files.write(f, e.getValue());
+            }
+            s.classesBySource.put(path, produced.keySet());
+            s.compiled.put(path, s.files.get(path));
+        }
+        return null;
+    }
+
+    /** Whether a class that declared constants before recompiling now has different ones, or is gone. */
+    private static boolean constantsChanged(Session s, Map<String, String> oldConstants) {
+        for (Map.Entry<String, String> e : oldConstants.entrySet()) {
+            if (e.getValue().isEmpty()) continue;
+            ClassDependencies.Info now = s.infos.get(e.getKey());
+            if (now == null || !now.constants().equals(e.getValue())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The class to run: {@code entry} by binary or simple name, otherwise the only class with a
+     * main method, or Main if there are several.
+     */
+    private static void chooseMainClass(Session s, String entry, Build b) {
+        List<String> mains = s.infos.values().stream().filter(ClassDependencies.Info::hasMain)
+                .map(ClassDependencies.Info::name).sorted().collect(Collectors.toList());
+        if (entry != null && !entry.isBlank()) {
+            String wanted = entry.endsWith(".java") ? entry.substring(0, entry.length() - 5).replace('/', '.') : entry;
+            for (String m : mains) {
+                if (m.equals(wanted) || m.substring(m.lastIndexOf('.') + 1).equals(wanted)) {
+                    b.mainClass = m;
+                    return;
+                }
+            }
+            fail(b, "Entry " + entry + " is not a class with a public static void main(String[] args) method.");
+        } else if (mains.size() == 1) {
+            b.mainClass = mains.get(0);
+        } else if (mains.isEmpty()) {
+            fail(b, "No class has a public static void main(String[] args) method.");
+        } else {
+            b.mainClass = mains.stream().filter(m -> m.equals("Main") || m.endsWith(".Main")).findFirst().orElse(null);
+            if (b.mainClass == null) {
+                fail(b, "Several classes have a main method (" + String.join(", ", mains) + "); set entry to the one to run.");
+            }
+        }
+    }
+
+    private static void clearJava(Session s) {
+        s.compiled.clear();
+        s.classesBySource.clear();
+        s.classes.clear();
+        s.infos.clear();
+        deleteQuietly(s.build.resolve("classes"));
+    }
+
+    private Build buildC(Session s, Map<String, String> files) throws IOException, InterruptedException {
+        Build b = new Build();
+        Map<String, String> sources = select(files, ".c");
+        b.dataFiles = dataFiles(files, ".c", ".h");
+        if (sources.isEmpty()) return fail(b, "The project has no .c files.");
+        String toolchain = compileCache.toolchainVersion("gcc");
+        if (!toolchain.equals(s.toolchain)) {
+            s.objects.clear();
+            s.linked = false;
+            deleteQuietly(s.build);
+            s.toolchain = toolchain;
+        }
+        Path objDir = s.build.resolve("obj");
+
+        boolean relink = !s.linked;
+        for (Iterator<String> it = s.objects.keySet().iterator(); it.hasNext(); ) {
+            String path = it.next();
+            if (!sources.containsKey(path)) {
+                Files.deleteIfExists(objDir.resolve(path + ".o"));
+                Files.deleteIfExists(objDir.resolve(path + ".d"));
+                it.remove();
+                relink = true;
+            }
+        }
+
+        List<String> stale = new ArrayList<>();
+        for (String path : sources.keySet()) {
+            if (isStale(s.objects.get(path), s.files)) stale.add(path);
+        }
+        StringBuilder diagnostics = new StringBuilder();
+        for (String path : stale) {
+            Path obj = objDir.resolve(path + ".o");
+            Path depFile = objDir.resolve(path + ".d");
+            Files.createDirectories(obj.getParent());
+            s.objects.remove(path);
+            String err = gcc(s.src, List.of("gcc", "-c", path, "-o", obj.toString(), "-MMD", "-MF", depFile.toString(), "-I", "."));
+            if (err != null) {
+                diagnostics.append(err);
+                continue;
+            }
+            String rule = Files.exists(depFile) ? Files.readString(depFile) : "";
+            s.objects.put(path, dependencies(rule, s.src, s.files, path));
+            relink = true;
+        }
+        b.compiledFiles = stale.size();
+        b.cache = stale.isEmpty() ? "hit" : stale.size() == sources.size() ? "miss" : "partial";
+        if (diagnostics.length() > 0) {
+            s.linked = false;
+            b.diagnostics = diagnostics.toString();
+            return b;
+        }
+
+        Path binary = s.build.resolve("main");
+        if (relink || !Files.exists(binary)) {
+            s.linked = false;
+            Path tmp = s.build.resolve("main.tmp");
+            List<String> cmd = new ArrayList<>(List.of("gcc"));
+            for (String path : sources.keySet()) cmd.add(objDir.resolve(path + ".o").toString());
+            cmd.addAll(List.of("-o", tmp.toString()));
+            String err = gcc(s.src, cmd);
+            if (err != null) {
+                b.diagnostics = err;
+                return b;
+            }
+            // a program from the previous build may still be running from the old file
+            Files.move(tmp, binary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            s.linked = true;
+        }
+        b.executable = binary;
+        return b;
+    }
+
+    /** Runs gcc in {@code dir}; returns its diagnostics if it printed any or failed, otherwise null. */
+    private static String gcc(Path dir, List<String> cmd) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(cmd).directory(dir.toFile()).start();
+        OutputCapture capture = OutputCapture.start(p, DIAGNOSTICS_HEAD_BYTES, DIAGNOSTICS_TAIL_BYTES);
+        capture.writeInput(null);
+        boolean finished = p.waitFor(COMPILE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!finished) p.destroyForcibly();
+        capture.await(1000);
+        String err = capture.stderr();
+        // warnings fail the build, as they do for single-file submissions
+        if (err != null && !err.isBlank()) return err;
+        if (!finished) return "Compilation timed out after " + COMPILE_TIMEOUT_SECONDS + "s\n";
+        return p.exitValue() == 0 ? null : "gcc exited with status " + p.exitValue() + "\n";
+    }
+
+    /**
+     * The project files an object was built from, with their hashes at the time, from the
+     * make rule gcc wrote: {@code obj: source header...}. System headers are left out.
+     *
+     * @param src    the directory gcc ran in, which the rule's paths are relative to
+     * @param hashes project path to content hash
+     */
+    static Map<String, String> dependencies(String rule, Path src, Map<String, String> hashes, String source) {
+        Map<String, String> deps = new HashMap<>();
+        deps.put(source, hashes.get(source));
+        rule = rule.replace("\\\n", " ");
+        int colon = rule.indexOf(": ");
+        if (colon < 0) return deps;
+        for (String token : rule.substring(colon + 2).trim().split("\\s+")) {
+            if (token.isEmpty()) continue;
+            Path p = src.resolve(token).normalize();
+            if (!p.startsWith(src)) continue;
+            String rel = src.relativize(p).toString().replace(File.separatorChar, '/');
+            String hash = hashes.get(rel);
+            if (hash != null) deps.put(rel, hash);
+        }
+        return deps;
+    }
+
+    /** Whether an object must be rebuilt: never built, or one of the files it was built from changed. */
+    static boolean isStale(Map<String, String> dependencies, Map<String, String> hashes) {
+        if (dependencies == null) return true;
+        for (Map.Entry<String, String> d : dependencies.entrySet()) {
+            if (!d.getValue().equals(hashes.get(d.getKey()))) return true;
+        }
+        return false;
+    }
+
+    private Build buildPython(Session s, Map<String, String> files, String entry) {
+        Build b = new Build();
+        b.cache = "none";
+        Map<String, String> scripts = select(files, ".py");
+        b.dataFiles = dataFiles(files, ".py");
+        String script;
+        if (entry != null && !entry.isBlank()) {
+            script = entry.endsWith(".py") ? entry : entry + ".py";
+            if (!scripts.containsKey(script)) return fail(b, "Entry " + entry + " is not a .py file of the project.");
+        } else if (scripts.containsKey("main.py")) {
+            script = "main.py";
+        } else if (scripts.containsKey("__main__.py")) {
+            script = "__main__.py";
+        } else if (scripts.size() == 1) {
+            script = scripts.keySet().iterator().next();
+        } else {
+            return fail(b, scripts.isEmpty() ? "The project has no .py files." : "No main.py; set entry to the script to run.");
+        }
+        b.script = s.src.resolve(script);
+        return b;
+    }
+
+    private static Build fail(Build b, String error) {
+        b.error = error;
+        return b;
+    }
+
+    private static Map<String, String> select(Map<String, String> files, String suffix) {
+        Map<String, String> selected = new TreeMap<>();
+        files.forEach((path, content) -> {
+            if (path.endsWith(suffix)) selected.put(path, content);
+        });
+        return selected;
+    }
+
+    private static List<String> dataFiles(Map<String, String> files, String... sourceSuffixes) {
+        List<String> data = new ArrayList<>();
+        for (String path : files.keySet()) {
+            if (Arrays.stream(sourceSuffixes).noneMatch(path::endsWith)) data.add(path);
+        }
+        return data;
+    }
+
+    private static String normalizePath(String path) {
+        String p = path == null ? "" : path.replace('\\', '/');
+        while (p.startsWith("./")) p = p.substring(2);
+        if (!FILE_PATH.matcher(p).matches() || p.length() > 200) {
+            throw new IllegalArgumentException("invalid file path '" + path + "'");
+        }
+        return p;
+    }
+
+    /** Reads a base64 zip into {@code files}, returning the uncompressed size. */
+    private long unzip(String base64, Map<String, String> files) {
+        byte[] zip;
+        try {
+            zip = Base64.getMimeDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("zip is not valid base64");
+        }
+        Map<String, String> read = new TreeMap<>();
+        long total = 0;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip), StandardCharsets.UTF_8)) {
+            ZipEntry e;
+            while ((e = in.getNextEntry()) != null) {
+                String name = e.getName();
+                if (e.isDirectory() || name.startsWith("__MACOSX/") || name.contains("/.") || name.startsWith(".")) continue;
+                if (read.size() >= maxFiles) throw new IllegalArgumentException("too many files, the maximum is " + maxFiles);
+                byte[] content = readAtMost(in, maxBytes - total);
+                total += content.length;
+                read.put(name, new String(content, StandardCharsets.UTF_8));
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("zip cannot be read: " + ex.getMessage());
+        }
+        // "project/src/Main.java" and "project/README" -> "src/Main.java" and "README"
+        String prefix = commonFolder(read.keySet());
+        for (Map.Entry<String, String> f : read.entrySet()) {
+            files.put(normalizePath(f.getKey().substring(prefix.length())), f.getValue());
+        }
+        return total;
+    }
+
+    private byte[] readAtMost(InputStream in, long budget) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+            if (out.size() > budget) throw new IllegalArgumentException("the project is larger than " + maxBytes / 1024 + " KB");
+        }
+        return out.toByteArray();
+    }
+
+    private static String commonFolder(Set<String> names) {
+        String first = names.isEmpty() ? "" : names.iterator().next();
+        int slash = first.indexOf('/');
+        if (slash < 0) return "";
+        String prefix = first.substring(0, slash + 1);
+        for (String name : names) {
+            if (!name.startsWith(prefix)) return "";
+        }
+        return prefix;
+    }
+
+    private static Path classFile(Path classesDir, String binaryName) {
+        return classesDir.resolve(binaryName.replace('.', '/') + ".class");
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> all = new TreeSet<>(a);
+        all.addAll(b);
+        return all;
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        List<Session> idle = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+                Session s = it.next();
+                if (s.lastUsed < cutoff && !s.lock.isLocked()) {
+                    it.remove();
+                    idle.add(s);
+                }
+            }
+        }
+        idle.forEach(this::discard);
+        if (!idle.isEmpty()) logger.info("Removed {} idle project sessions", idle.size());
+    }
+
+    /** Deletes a session already removed from the map, once no request is using it. */
+    private void discard(Session s) {
+        s.lock.lock();
+        try {
+            s.discarded = true;
+            deleteQuietly(s.dir);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (!Files.exists(path)) return;
+        try (Stream<Path> s = Files.walk(path)) {
+            s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+        }
+    }
+}
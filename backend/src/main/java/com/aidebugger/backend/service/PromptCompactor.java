@@ -0,0 +1,211 @@
+package com.aidebugger.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps Gemini prompts within a token budget.
+ *
+ * Runs of identical output lines are always collapsed. When the description (which carries the
+ * collected run output) and the code together still exceed {@code gemini.prompt.max-tokens},
+ * the description is cut to its head and tail, and the code is reduced to the regions around
+ * line numbers mentioned in compiler errors or stack traces, falling back to head and tail.
+ * Every omission is marked in the text so the model knows context is missing.
+ */
+@Component
+public class PromptCompactor {
+
+    // gcc "main.c:12:5:", javac and stack frames "Main.java:12", CPython "line 12"
+    private static final Pattern LINE_REF = Pattern.compile("\\w+\\.(?:c|h|java|py):(\\d+)|\\bline (\\d+)");
+
+    @Value("${gemini.prompt.max-tokens:12000}")
+    private int maxTokens;
+
+    @Value("${gemini.prompt.chars-per-token:3.5}")
+    private double charsPerToken;
+
+    /** Lines of code kept on each side of a referenced line. */
+    @Value("${gemini.prompt.context-lines:8}")
+    private int contextLines;
+
+    /** Share of the budget the description may use when both parts are too large. */
+    @Value("${gemini.prompt.description-share:0.3}")
+    private double descriptionShare;
+
+    private final AtomicLong prompts = new AtomicLong();
+    private final AtomicLong compactedPrompts = new AtomicLong();
+    private final AtomicLong droppedTokens = new AtomicLong();
+
+    public static class Result {
+        private final String description;
+        private final String code;
+        private final int originalTokens;
+        private final int tokens;
+
+        Result(String description, String code, int originalTokens, int tokens) {
+            this.description = description;
+            this.code = code;
+            this.originalTokens = originalTokens;
+            this.tokens = tokens;
+        }
+
+        public String getDescription() { return description; }
+        public String getCode() { return code; }
+        public int getOriginalTokens() { return originalTokens; }
+        public int getTokens() { return tokens; }
+        public int getDroppedTokens() { return Math.max(0, originalTokens - tokens); }
+    }
+
+    public static class Stats {
+        private final int maxTokens;
+        private final long prompts;
+        private final long compactedPrompts;
+        private final long droppedTokens;
+
+        Stats(int maxTokens, long prompts, long compactedPrompts, long droppedTokens) {
+            this.maxTokens = maxTokens;
+            this.prompts = prompts;
+            this.compactedPrompts = compactedPrompts;
+            this.droppedTokens = droppedTokens;
+        }
+
+        public int getMaxTokens() { return maxTokens; }
+        public long getPrompts() { return prompts; }
+        public long getCompactedPrompts() { return compactedPrompts; }
+        public long getDroppedTokens() { return droppedTokens; }
+    }
+
+    /** Rough token count for Gemini-family tokenizers; good enough for budgeting. */
+    public int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        return (int) Math.ceil(text.length() / charsPerToken);
+    }
+
+    /**
+     * @param overheadTokens tokens taken by the fixed instructions around the two parts
+     */
+    public Result compact(String description, String code, int overheadTokens) {
+        description = description == null ? "" : description;
+        code = code == null ? "" : code;
+        int originalTokens = estimateTokens(description) + estimateTokens(code);
+        int available = Math.max(256, maxTokens - overheadTokens);
+
+        String desc = collapseRepeats(description);
+        String focused = code;
+        if (estimateTokens(desc) + estimateTokens(code) > available) {
+            int descBudget = Math.max(available - estimateTokens(code), (int) (available * descriptionShare));
+            if (estimateTokens(desc) > descBudget) desc = headTail(desc, descBudget);
+            int codeBudget = available - estimateTokens(desc);
+            if (estimateTokens(code) > codeBudget) focused = focusCode(code, referencedLines(description), codeBudget);
+        }
+
+        int tokens = estimateTokens(desc) + estimateTokens(focused);
+        prompts.incrementAndGet();
+        if (tokens < originalTokens) {
+            compactedPrompts.incrementAndGet();
+            droppedTokens.addAndGet(originalTokens - tokens);
+        }
+        return new Result(desc, focused, originalTokens, tokens);
+    }
+
+    public Stats stats() {
+        return new Stats(maxTokens, prompts.get(), compactedPrompts.get(), droppedTokens.get());
+    }
+
+    /** Replaces runs of identical lines with the line and a repeat count. */
+    static String collapseRepeats(String text) {
+        String[] lines = text.split("\n", -1);
+        StringBuilder out = new StringBuilder(text.length());
+        int i = 0;
+        while (i < lines.length) {
+            int j = i + 1;
+            while (j < lines.length && lines[j].equals(lines[i])) j++;
+            if (out.length() > 0) out.append('\n');
+            out.append(lines[i]);
+            int repeats = j - i - 1;
+            if (repeats > 2 && !lines[i].isEmpty()) {
+                out.append("\n... [previous line repeated ").append(repeats).append(" more times] ...");
+            } else {
+                for (int k = 0; k < repeats; k++) out.append('\n').append(lines[i]);
+            }
+            i = j;
+        }
+        return out.toString();
+    }
+
+    /** Line numbers cited by diagnostics or stack traces in {@code text}, in ascending order. */
+    static TreeSet<Integer> referencedLines(String text) {
+        TreeSet<Integer> lines = new TreeSet<>();
+        Matcher m = LINE_REF.matcher(text);
+        while (m.find()) {
+            String n = m.group(1) != null ? m.group(1) : m.group(2);
+            try {
+                lines.add(Integer.parseInt(n));
+            } catch (NumberFormatException ignored) {
+                // absurdly long digit run
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Keeps the top of the file (includes, imports, declarations) and a window around each
+     * referenced line, then trims to the budget if that is still too much.
+     */
+    String focusCode(String code, TreeSet<Integer> referenced, int budgetTokens) {
+        String[] lines = code.split("\n");
+        boolean[] keep = new boolean[lines.length];
+        boolean any = false;
+        for (int ref : referenced) {
+            if (ref < 1 || ref > lines.length) continue;
+            any = true;
+            for (int l = Math.max(0, ref - 1 - contextLines); l <= Math.min(lines.length - 1, ref - 1 + contextLines); l++) {
+                keep[l] = true;
+            }
+        }
+        if (!any) return headTail(code, budgetTokens);
+        for (int l = 0; l < Math.min(lines.length, contextLines); l++) keep[l] = true;
+
+        StringBuilder out = new StringBuilder();
+        int l = 0;
+        while (l < lines.length) {
+            if (keep[l]) {
+                out.append(lines[l]).append('\n');
+                l++;
+                continue;
+            }
+            int start = l;
+            while (l < lines.length && !keep[l]) l++;
+            out.append("... [lines ").append(start + 1).append('-').append(l).append(" omitted] ...\n");
+        }
+        String focused = out.toString();
+        return estimateTokens(focused) > budgetTokens ? headTail(focused, budgetTokens) : focused;
+    }
+
+    /** Keeps whole lines from the start (about 60%) and the end of {@code text}. */
+    String headTail(String text, int budgetTokens) {
+        int budgetChars = (int) (Math.max(0, budgetTokens) * charsPerToken);
+        if (text.length() <= budgetChars) return text;
+        String[] lines = text.split("\n", -1);
+        int headChars = budgetChars * 3 / 5;
+        int tailChars = budgetChars - headChars;
+
+        int head = 0;
+        int used = 0;
+        while (head < lines.length && used + lines[head].length() + 1 <= headChars) used += lines[head++].length() + 1;
+        int tail = lines.length;
+        used = 0;
+        while (tail > head && used + lines[tail - 1].length() + 1 <= tailChars) used += lines[--tail].length() + 1;
+
+        StringBuilder out = new StringBuilder(budgetChars + 64);
+        for (int i = 0; i < head; i++) out.append(lines[i]).append('\n');
+        out.append("... [").append(tail - head).append(" lines omitted] ...");
+        for (int i = tail; i < lines.length; i++) out.append('\n').append(lines[i]);
+        return out.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.aidebugger.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the Python interpreter once and, optionally, keeps interpreters started ahead of time.
+ *
+ * A pooled interpreter runs {@code python/warm_runner.py}: it has already booted and imported
+ * the common stdlib modules, and waits for the script and working directory on stdin. Each one
+ * runs a single program and exits, so runs stay as isolated as a cold start, and it has its own
+ * pipes and runs under the same limits launcher, so capture, timeouts and accounting are
+ * unchanged (its CPU time includes the warm-up imports). A taken interpreter is replaced in the
+ * background once its run is closed, so the replacement does not compete with the run for CPU;
+ * when none is ready the caller starts one cold.
+ */
+@Component
+public class PythonRunnerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(PythonRunnerPool.class);
+
+    @Autowired
+    private ResourceLimiter resourceLimiter;
+
+    /** Interpreter to use; found by probing python3, python and py when empty. */
+    @Value("${executor.python.command:}")
+    private String commandProperty;
+
+    @Value("${executor.python-pool.enabled:false}")
+    private boolean enabled;
+
+    @Value("${executor.python-pool.size:4}")
+    private int size;
+
+    private String pythonCommand;
+    private Path runnerDir;
+    private Path runner;
+    private final BlockingQueue<Warm> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger starting = new AtomicInteger();
+    // interpreter starts, which must not delay requests
+    private ExecutorService background;
+    private volatile boolean closed;
+
+    /** A started interpreter waiting for its script; close it once the run is over. */
+    public final class Warm implements AutoCloseable {
+        private final Process process;
+        private final ResourceLimiter.Launch launch;
+
+        Warm(Process process, ResourceLimiter.Launch launch) {
+            this.process = process;
+            this.launch = launch;
+        }
+
+        public Process getProcess() { return process; }
+        public ResourceLimiter.Launch getLaunch() { return launch; }
+
+        /**
+         * What to write to the interpreter's stdin to run {@code script} (absolute, or relative to
+         * {@code workDir}) in {@code workDir} on {@code input}.
+         */
+        public String stdin(String script, Path workDir, String input) {
+            return script + "\n" + workDir.toAbsolutePath() + "\n" + (input == null ? "" : input);
+        }
+
+        @Override
+        public void close() {
+            replenish();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        pythonCommand = commandProperty == null || commandProperty.isBlank() ? detectPythonCommand() : commandProperty;
+        logger.info("Python programs run with {}", pythonCommand);
+        if (!enabled || size <= 0) {
+            enabled = false;
+            return;
+        }
+        try {
+            runnerDir = Files.createTempDirectory("pypool_");
+            runner = runnerDir.resolve("warm_runner.py");
+            try (InputStream is = PythonRunnerPool.class.getResourceAsStream("/python/warm_runner.py")) {
+                if (is == null) throw new IOException("missing python/warm_runner.py");
+                Files.copy(is, runner);
+            }
+        } catch (IOException e) {
+            logger.warn("Python runner pool disabled, cannot stage the runner: {}", e.getMessage());
+            enabled = false;
+            return;
+        }
+        background = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "python-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < size; i++) replenish();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        closed = true;
+        if (background != null) background.shutdownNow();
+        Warm w;
+        while ((w = idle.poll()) != null) {
+            w.process.destroyForcibly();
+            w.launch.discard();
+        }
+        if (runnerDir != null) {
+            try (Stream<Path> s = Files.walk(runnerDir)) {
+                s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public String pythonCommand() {
+        return pythonCommand;
+    }
+
+    /** A ready interpreter, now owned by the caller, or null when none is ready. */
+    public Warm take() {
+        if (!enabled) return null;
+        Warm w;
+        while ((w = idle.poll()) != null) {
+            if (w.process.isAlive()) return w;
+            w.launch.discard();
+            replenish();
+        }
+        return null;
+    }
+
+    private void replenish() {
+        if (closed || idle.size() + starting.get() >= size) return;
+        starting.incrementAndGet();
+        try {
+            background.execute(() -> {
+                try {
+                    ResourceLimiter.Launch launch = resourceLimiter.wrap(List.of(pythonCommand, runner.toString()), false);
+                    ProcessBuilder pb = new ProcessBuilder(launch.getCommand());
+                    pb.directory(runnerDir.toFile());
+                    Process p = pb.start();
+                    if (closed) {
+                        p.destroyForcibly();
+                        launch.discard();
+                        return;
+                    }
+                    idle.offer(new Warm(p, launch));
+                } catch (IOException e) {
+                    logger.warn("Could not start Python interpreter: {}", e.getMessage());
+                } finally {
+                    starting.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            starting.decrementAndGet();
+        }
+    }
+
+    private static String detectPythonCommand() {
+        String[] candidates = new String[] { "python3", "python", "py" };
+        for (String cmd : candidates) {
+            try {
+                ProcessBuilder pb = new ProcessBuilder(cmd, "--version");
+                Process p = pb.start();
+                boolean ok = p.waitFor(2, TimeUnit.SECONDS);
+                if (ok && p.exitValue() == 0) {
+                    // found a working python command
+                    return cmd;
+                }
+            } catch (IOException ignored) {
+                // try next candidate
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // fallback: return "python" (will likely produce the same error if none found)
+        return "python";
+    }
+}
@@ -0,0 +1,399 @@
+package com.aidebugger.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Runs user programs under per-run resource limits and measures what they used.
+ *
+ * Programs are started through a small launcher ({@code native/runlimit.c}, compiled with gcc
+ * at startup) that sets RLIMIT_CPU, RLIMIT_AS and RLIMIT_FSIZE for the program, waits for it
+ * with {@code wait4} and reports exit status, CPU time and peak RSS. Without gcc,
+ * {@code prlimit} still enforces the limits but nothing is measured; without either, programs
+ * run as before under the wall-clock timeout only.
+ *
+ * Processes are capped with a pids cgroup per run rather than RLIMIT_NPROC, which counts every
+ * process of the backend's user and does not apply to root. The per-run groups are created
+ * under {@code executor.limits.cgroup}, or under the backend's own pids cgroup, which must be
+ * writable (cgroup v1, or a delegated v2 subtree). When
+ * {@code executor.limits.max-processes} is set and no such cgroup can be used, the service
+ * refuses to start rather than run programs that can fork without bound. The address-space
+ * cap is skipped for JVMs, whose heap is bounded with {@code -Xmx} instead.
+ */
+@Component
+public class ResourceLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceLimiter.class);
+
+    private static final int SIGKILL = 9;
+    private static final int SIGXCPU = 24;
+    private static final int SIGXFSZ = 25;
+    // how long a launcher asked to stop gets to kill and reap the program before it is killed
+    private static final long STOP_GRACE_MS = 1000;
+
+    @Value("${executor.limits.enabled:true}")
+    private boolean enabled;
+
+    @Value("${executor.limits.cpu-seconds:5}")
+    private long cpuSeconds;
+
+    @Value("${executor.limits.memory-mb:256}")
+    private long memoryMb;
+
+    @Value("${executor.limits.max-file-mb:16}")
+    private long maxFileMb;
+
+    /** Tasks (processes and threads) a run may have at once; 0 runs programs without a cap. */
+    @Value("${executor.limits.max-processes:256}")
+    private long maxProcesses;
+
+    /** Writable pids cgroup directory to create per-run groups in; the backend's own when empty. */
+    @Value("${executor.limits.cgroup:}")
+    private String cgroupProperty;
+
+    private Path dir;
+    private String launcher;
+    private boolean prlimit;
+    private Path cgroups;
+    private final AtomicLong statsFiles = new AtomicLong();
+
+    /** What a finished run used; fields are null when they could not be measured. */
+    public static class Usage {
+        private final Integer exitCode;
+        private final Integer signal;
+        private final Long cpuTimeMillis;
+        private final Long peakMemoryKb;
+
+        Usage(Integer exitCode, Integer signal, Long cpuTimeMillis, Long peakMemoryKb) {
+            this.exitCode = exitCode;
+            this.signal = signal;
+            this.cpuTimeMillis = cpuTimeMillis;
+            this.peakMemoryKb = peakMemoryKb;
+        }
+
+        public Integer getExitCode() { return exitCode; }
+        public Integer getSignal() { return signal; }
+        public Long getCpuTimeMillis() { return cpuTimeMillis; }
+        public Long getPeakMemoryKb() { return peakMemoryKb; }
+    }
+
+    /** A command to start, and where its usage will be reported once it exits. */
+    public static class Launch {
+        private final List<String> command;
+        private final Path statsFile;
+        private final Path cgroup;
+
+        Launch(List<String> command, Path statsFile, Path cgroup) {
+            this.command = command;
+            this.statsFile = statsFile;
+            this.cgroup = cgroup;
+        }
+
+        public List<String> getCommand() { return command; }
+
+        /** Reads and removes the usage report; exit status only when the launcher did not measure. */
+        public Usage usage(int exitValue) {
+            if (statsFile == null) return new Usage(exitValue, null, null, null);
+            try {
+                Integer exit = null, signal = null;
+                Long cpu = null, rss = null;
+                for (String line : Files.readAllLines(statsFile, StandardCharsets.UTF_8)) {
+                    String[] kv = line.split(" ", 2);
+                    if (kv.length < 2) continue;
+                    switch (kv[0]) {
+                        case "exit" -> exit = Integer.parseInt(kv[1].trim());
+                        case "signal" -> signal = Integer.parseInt(kv[1].trim());
+                        case "cpu_ms" -> cpu = Long.parseLong(kv[1].trim());
+                        case "maxrss_kb" -> rss = Long.parseLong(kv[1].trim());
+                        default -> { }
+                    }
+                }
+                return new Usage(exit != null ? exit : exitValue, signal, cpu, rss);
+            } catch (IOException | NumberFormatException e) {
+                return new Usage(exitValue, null, null, null);
+            } finally {
+                discard();
+            }
+        }
+
+        /**
+         * Kills a run started from this launch and everything it started. The launcher is asked to
+         * stop first, so it kills the program's cgroup and reaps what was reparented to it.
+         */
+        public void kill(Process process) {
+            if (statsFile != null) {
+                process.destroy();
+                try {
+                    if (process.waitFor(STOP_GRACE_MS, TimeUnit.MILLISECONDS)) return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        /** For runs that were killed before reporting; also kills what they left in their cgroup. */
+        public void discard() {
+            if (statsFile != null) {
+                try { Files.deleteIfExists(statsFile); } catch (IOException ignored) {}
+            }
+            if (cgroup != null) removeCgroup(cgroup);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            logger.info("Per-run resource limits disabled");
+            return;
+        }
+        try {
+            dir = Files.createTempDirectory("runlimit_");
+            Path src = dir.resolve("runlimit.c");
+            try (InputStream is = ResourceLimiter.class.getResourceAsStream("/native/runlimit.c")) {
+                if (is == null) throw new IOException("missing native/runlimit.c");
+                Files.copy(is, src);
+            }
+            Path bin = dir.resolve("runlimit");
+            Process gcc = new ProcessBuilder("gcc", "-O2", "-o", bin.toString(), src.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (gcc.waitFor(30, TimeUnit.SECONDS) && gcc.exitValue() == 0 && Files.isExecutable(bin)) {
+                launcher = bin.toString();
+            } else {
+                gcc.destroyForcibly();
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot build the run launcher: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (launcher == null) prlimit = commandWorks("prlimit", "--version");
+        if (maxProcesses > 0) {
+            if (launcher != null) cgroups = createCgroups();
+            if (cgroups == null) {
+                shutdown();
+                throw new IllegalStateException("Cannot limit the processes of user programs: "
+                        + (launcher == null ? "the run launcher could not be built (gcc is needed)" : "no writable pids cgroup")
+                        + ". Set executor.limits.cgroup to a writable pids cgroup directory, executor.limits.max-processes=0"
+                        + " to run without a process limit, or executor.limits.enabled=false.");
+            }
+        }
+
+        if (launcher != null) {
+            logger.info("Per-run limits: cpu {}s, memory {} MB, files {} MB, {}", cpuSeconds, memoryMb, maxFileMb,
+                    cgroups != null ? maxProcesses + " tasks in " + cgroups : "no process limit");
+        } else if (prlimit) {
+            logger.warn("Per-run limits enforced with prlimit; CPU time and memory use will not be reported");
+        } else {
+            logger.warn("Per-run limits disabled: neither gcc nor prlimit is available");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (cgroups != null) {
+            try (Stream<Path> s = Files.list(cgroups)) {
+                s.filter(Files::isDirectory).forEach(ResourceLimiter::removeCgroup);
+            } catch (IOException ignored) {
+            }
+            removeCgroup(cgroups);
+        }
+        if (dir == null) return;
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Wraps {@code command} so it runs under the configured limits.
+     *
+     * @param jvm the program is a JVM, which reserves far more address space than it uses
+     */
+    public Launch wrap(List<String> command, boolean jvm) {
+        long as = jvm ? 0 : memoryMb * 1024 * 1024;
+        long fsize = maxFileMb * 1024 * 1024;
+        if (launcher != null) {
+            long id = statsFiles.incrementAndGet();
+            Path stats = dir.resolve("run-" + id + ".stats");
+            Path cgroup = cgroups != null ? cgroups.resolve("run-" + id) : null;
+            List<String> cmd = new ArrayList<>(List.of(launcher, stats.toString(),
+                    Long.toString(cpuSeconds), Long.toString(as), Long.toString(fsize),
+                    Long.toString(cgroup != null ? maxProcesses : 0), cgroup != null ? cgroup.toString() : "-", "--"));
+            cmd.addAll(command);
+            return new Launch(cmd, stats, cgroup);
+        }
+        if (prlimit) {
+            List<String> cmd = new ArrayList<>(List.of("prlimit"));
+            if (cpuSeconds > 0) cmd.add("--cpu=" + cpuSeconds + ":" + (cpuSeconds + 1));
+            if (as > 0) cmd.add("--as=" + as);
+            if (fsize > 0) cmd.add("--fsize=" + fsize);
+            cmd.add("--core=0");
+            cmd.add("--");
+            cmd.addAll(command);
+            return new Launch(cmd, null, null);
+        }
+        return new Launch(command, null, null);
+    }
+
+    /** Explains a run that a limit or a signal stopped, or returns null when it exited normally. */
+    public String limitMessage(Usage usage) {
+        Integer signal = usage.getSignal();
+        if (signal == null || signal == 0) return null;
+        if (signal == SIGXCPU || (signal == SIGKILL && usage.getCpuTimeMillis() != null
+                && usage.getCpuTimeMillis() >= TimeUnit.SECONDS.toMillis(cpuSeconds))) {
+            return "CPU time limit exceeded (" + cpuSeconds + "s)";
+        }
+        if (signal == SIGXFSZ) return "File size limit exceeded (" + maxFileMb + " MB)";
+        return "Program terminated by signal " + signal;
+    }
+
+    /** The limits runs are started under, e.g. for keying results that depend on them. */
+    public String settings() {
+        if (!isActive()) return "off";
+        return "cpu=" + cpuSeconds + "s mem=" + memoryMb + "MB file=" + maxFileMb + "MB"
+                + (cgroups != null ? " procs=" + maxProcesses : "");
+    }
+
+    /** Whether programs are actually started under limits (enabled, with a launcher or prlimit). */
+    public boolean isActive() {
+        return launcher != null || prlimit;
+    }
+
+    /** Options for JVMs started for user programs, which run without an address-space cap. */
+    public List<String> jvmOptions() {
+        return enabled ? List.of("-Xmx" + memoryMb + "m") : List.of();
+    }
+
+    /**
+     * Creates the cgroup this backend's per-run groups go in and checks that a run's group can
+     * be given a pids.max, or returns null when there is no usable pids cgroup.
+     */
+    private Path createCgroups() {
+        Path parent = cgroupProperty == null || cgroupProperty.isBlank() ? ownPidsCgroup() : Path.of(cgroupProperty);
+        if (parent == null) return null;
+        if (!Files.exists(parent.resolve("cgroup.procs"))) {
+            logger.warn("{} is not a cgroup", parent);
+            return null;
+        }
+        Path root = parent.resolve("aidebugger-" + ProcessHandle.current().pid());
+        try {
+            Files.createDirectory(root);
+            if (Files.exists(parent.resolve("cgroup.subtree_control"))) {
+                // cgroup v2: the pids controller has to be enabled down to the run groups
+                writeControl(parent.resolve("cgroup.subtree_control"), "+pids");
+                writeControl(root.resolve("cgroup.subtree_control"), "+pids");
+            }
+            Path probe = Files.createDirectory(root.resolve("probe"));
+            try {
+                writeControl(probe.resolve("pids.max"), Long.toString(maxProcesses));
+            } finally {
+                Files.delete(probe);
+            }
+            return root;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot use pids cgroup {}: {}", parent, e.getMessage());
+            removeCgroup(root);
+            return null;
+        }
+    }
+
+    private static void writeControl(Path file, String value) throws IOException {
+        Files.writeString(file, value, StandardOpenOption.WRITE);
+    }
+
+    /** The directory of the pids cgroup this process is in, from /proc, or null when there is none. */
+    private static Path ownPidsCgroup() {
+        try {
+            String v1 = null, v2 = null;
+            for (String line : Files.readAllLines(Path.of("/proc/self/cgroup"))) {
+                String[] f = line.split(":", 3);
+                if (f.length < 3) continue;
+                if (f[0].equals("0") && f[1].isEmpty()) v2 = f[2];
+                else if (List.of(f[1].split(",")).contains("pids")) v1 = f[2];
+            }
+            Path v2Mount = null;
+            for (String line : Files.readAllLines(Path.of("/proc/self/mountinfo"))) {
+                // id parent major:minor root mount-point options ... - type source super-options
+                String[] f = line.split(" ");
+                int dash = List.of(f).indexOf("-");
+                if (dash < 5 || dash + 3 >= f.length) continue;
+                Path mountRoot = Path.of(f[3]), mountPoint = Path.of(f[4]);
+                String type = f[dash + 1];
+                if (type.equals("cgroup") && v1 != null && List.of(f[dash + 3].split(",")).contains("pids")) {
+                    return under(mountPoint, mountRoot, v1);
+                }
+                if (type.equals("cgroup2") && v2 != null) v2Mount = under(mountPoint, mountRoot, v2);
+            }
+            if (v2Mount != null && Files.readString(v2Mount.resolve("cgroup.controllers")).contains("pids")) return v2Mount;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Cannot find the pids cgroup: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static Path under(Path mountPoint, Path mountRoot, String cgroup) {
+        Path path = Path.of(cgroup);
+        // a cgroup outside what is mounted is not reachable from here
+        return path.startsWith(mountRoot) ? mountPoint.resolve(mountRoot.relativize(path).toString()) : null;
+    }
+
+    /** Kills whatever is still in a run's cgroup and removes it; a no-op once the launcher has. */
+    private static void removeCgroup(Path cgroup) {
+        Path procs = cgroup.resolve("cgroup.procs");
+        for (int i = 0; i < 100 && Files.exists(procs); i++) {
+            List<String> pids;
+            try {
+                pids = Files.readAllLines(procs);
+            } catch (IOException e) {
+                break;
+            }
+            if (pids.isEmpty()) break;
+            for (String pid : pids) ProcessHandle.of(Long.parseLong(pid.trim())).ifPresent(ProcessHandle::destroyForcibly);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            Files.deleteIfExists(cgroup);
+        } catch (IOException e) {
+            logger.debug("Cannot remove cgroup {}: {}", cgroup, e.getMessage());
+        }
+    }
+
+    private static boolean commandWorks(String... cmd) {
+        try {
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            return p.waitFor(2, TimeUnit.SECONDS) && p.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
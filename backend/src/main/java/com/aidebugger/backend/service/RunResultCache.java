@@ -0,0 +1,593 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cache of complete run results, so a resubmission of the same program with the same input is
+ * answered without compiling or running anything.
+ *
+ * The key is a SHA-256 over the language, the toolchain, the resource limits and timeout, the
+ * code and the input. Only results that can be trusted to repeat are stored: sources using
+ * clocks, randomness, the environment, files, processes or threads are never cached, nor are
+ * runs that timed out, hit a limit or failed in the service, or printed an identity hash or a
+ * pointer. Anything else that ran is stored right away, so a resubmission is a hit; with
+ * {@code executor.result-cache.confirmations} set, only once that many more runs produced
+ * exactly the same result, and a key whose runs disagree is remembered as unstable and always
+ * runs.
+ *
+ * Entries expire after {@code executor.result-cache.ttl-minutes} and are evicted
+ * least-recently-used beyond {@code max-entries} or {@code max-memory-mb}. If
+ * {@code executor.result-cache.dir} is set, entries are also written there, one JSON file each,
+ * bounded by {@code max-disk-mb}; memory misses are looked up on disk, which also survives
+ * restarts. The cache is off unless {@code executor.result-cache.enabled} is set.
+ */
+@Service
+public class RunResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunResultCache.class);
+
+    // rough per-entry cost of the map, the entry and the key beyond the strings it holds
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private static final Pattern NONDETERMINISTIC_C = Pattern.compile(
+            "\\b(time|clock|rand|random|rand_r|srand|srandom|drand48|lrand48|mrand48|arc4random|getrandom|gettimeofday"
+                    + "|clock_gettime|timespec_get|getpid|getppid|getenv|fork|vfork|system|popen|exec[lv]p?e?|pthread_create"
+                    + "|fopen|freopen|open|opendir|tmpnam|tmpfile|mkstemp|sleep|usleep|nanosleep)\\s*\\("
+                    + "|/dev/u?random|/proc/|__(DATE|TIME|TIMESTAMP)__|%p");
+    private static final Pattern NONDETERMINISTIC_JAVA = Pattern.compile(
+            "\\bSystem\\s*\\.\\s*(currentTimeMillis|nanoTime|getenv|getProperty|getProperties|identityHashCode)\\b"
+                    + "|\\bMath\\s*\\.\\s*random\\b"
+                    + "|\\b(Random|SecureRandom|ThreadLocalRandom|SplittableRandom|RandomGenerator|UUID|Instant|Clock"
+                    + "|LocalDate|LocalTime|LocalDateTime|ZonedDateTime|OffsetDateTime|Date|Calendar|TimeZone|Thread"
+                    + "|ExecutorService|Executors|CompletableFuture|ForkJoinPool|Timer|ProcessBuilder|ProcessHandle|Runtime"
+                    + "|File|Files|Paths|Path|FileReader|FileInputStream|RandomAccessFile|Socket|ServerSocket|URL|URI"
+                    + "|HttpClient|InetAddress|ClassLoader)\\b"
+                    + "|\\bparallel(Stream)?\\s*\\(|\\bClass\\s*\\.\\s*forName\\b"
+                    // Collections.shuffle with its own Random
+                    + "|\\bshuffle\\s*\\(");
+    private static final Pattern JAVA_STRINGS_AND_COMMENTS = Pattern.compile(
+            "(?s)\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'|//[^\n]*|/\\*.*?\\*/");
+    // hashCode() called, or used by a hash table, other than where one is declared
+    private static final Pattern JAVA_HASH_USE = Pattern.compile(
+            "(?<!\\bint\\s{1,8})\\bhashCode\\s*\\(\\s*\\)|\\b(HashMap|HashSet|Hashtable)\\b");
+    // hash codes that are always the identity: Object's own, and enums'
+    private static final Pattern JAVA_IDENTITY_HASH = Pattern.compile(
+            "\\bsuper\\s*\\.\\s*hashCode\\s*\\(|\\bnew\\s+Object\\s*\\(|\\benum\\s+\\w+");
+    private static final Pattern JAVA_CLASS = Pattern.compile("\\bclass\\s+(\\w+)[^{;]*\\{");
+    private static final Pattern JAVA_HASH_CODE_OVERRIDE = Pattern.compile("\\bint\\s+hashCode\\s*\\(\\s*\\)");
+    private static final Pattern INNERMOST_BLOCK = Pattern.compile("\\{[^{}]*\\}");
+    private static final Pattern NONDETERMINISTIC_PYTHON = Pattern.compile(
+            "(?m)^\\s*(import|from)\\s+(random|time|datetime|uuid|secrets|os|platform|socket|threading|multiprocessing"
+                    + "|subprocess|asyncio|concurrent|tempfile|glob|pathlib|shutil|signal|resource|urllib|http|ssl"
+                    + "|importlib|ctypes|gc|tracemalloc)\\b"
+                    + "|\\b(__import__|importlib|open|id|hash|set|frozenset|eval|exec|compile|globals|vars)\\s*\\("
+                    + "|\\bsys\\s*\\.\\s*(argv|flags|getrefcount|getsizeof|_getframe)\\b");
+    // default toString of Java objects and pointers printed by C: both change from run to run
+    private static final Pattern UNSTABLE_OUTPUT = Pattern.compile("\\b[A-Za-z_$][\\w$.]*@[0-9a-f]{5,8}\\b|\\b0x[0-9a-f]{8,16}\\b");
+
+    @Value("${executor.result-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${executor.result-cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${executor.result-cache.max-memory-mb:64}")
+    private long maxMemoryMb;
+
+    @Value("${executor.result-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    // identical results needed beyond the first run before a result is served from the cache
+    @Value("${executor.result-cache.confirmations:0}")
+    private int confirmations;
+
+    @Value("${executor.result-cache.dir:}")
+    private String dirProperty;
+
+    @Value("${executor.result-cache.max-disk-mb:512}")
+    private long maxDiskMb;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+    // results of runs not yet confirmed; a null fingerprint marks a key whose runs disagreed
+    private final LinkedHashMap<String, Observation> observations = new LinkedHashMap<>(256, 0.75f, true);
+    // key -> file size in bytes, kept in access order for LRU eviction
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(64, 0.75f, true);
+    private long diskBytes;
+    private Path dir;
+    private ExecutorService writer;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unstable = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Persistent form of an entry; also the disk file format. */
+    public static class Entry {
+        public String key;
+        public long createdAt;
+        public String output;
+        public String error;
+        public String compileOutput;
+        public Integer exitCode;
+        public Long cpuTimeMillis;
+        public Long peakMemoryKb;
+        public Long wallTimeMillis;
+    }
+
+    private static class Observation {
+        String fingerprint;
+        int matches;
+    }
+
+    public static class Stats {
+        private final int size;
+        private final long memoryBytes;
+        private final int diskEntries;
+        private final long diskBytes;
+        private final long hits;
+        private final long diskHits;
+        private final long misses;
+        private final long bypassed;
+        private final long rejected;
+        private final long unstable;
+        private final long evictions;
+
+        Stats(int size, long memoryBytes, int diskEntries, long diskBytes, long hits, long diskHits, long misses,
+                long bypassed, long rejected, long unstable, long evictions) {
+            this.size = size;
+            this.memoryBytes = memoryBytes;
+            this.diskEntries = diskEntries;
+            this.diskBytes = diskBytes;
+            this.hits = hits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.bypassed = bypassed;
+            this.rejected = rejected;
+            this.unstable = unstable;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public long getMemoryBytes() { return memoryBytes; }
+        public int getDiskEntries() { return diskEntries; }
+        public long getDiskBytes() { return diskBytes; }
+        /** Lookups answered from memory or disk. */
+        public long getHits() { return hits; }
+        /** The part of {@link #getHits()} that had to be read from disk. */
+        public long getDiskHits() { return diskHits; }
+        public long getMisses() { return misses; }
+        /** Runs not looked up because the source looks non-deterministic or the key is unstable. */
+        public long getBypassed() { return bypassed; }
+        /** Results not stored because of their outcome or output (timeouts, limits, service errors). */
+        public long getRejected() { return rejected; }
+        /** Keys whose runs produced different results. */
+        public long getUnstable() { return unstable; }
+        public long getEvictions() { return evictions; }
+        public double getHitRate() { return hits + misses == 0 ? 0 : (double) hits / (hits + misses); }
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled || dirProperty == null || dirProperty.isBlank()) return;
+        try {
+            dir = Paths.get(dirProperty);
+            Files.createDirectories(dir);
+            loadIndex();
+        } catch (IOException e) {
+            logger.warn("Run-result cache kept in memory only, cannot use directory {}: {}", dirProperty, e.getMessage());
+            dir = null;
+            return;
+        }
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "run-cache-write");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writer == null) return;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds the key for a run, or returns null when the program should always run: its source
+     * uses something whose result changes between runs.
+     *
+     * @param language   c, java or python
+     * @param toolchain  version of the compiler or interpreter
+     * @param limits     resource limits and timeout the run is under
+     */
+    public String key(String language, String toolchain, String limits, String code, String input) {
+        if (!enabled || !isDeterministic(language, code)) return null;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { language, toolchain, limits, code, input }) {
+                byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+                md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                md.update((byte) ':');
+                md.update(bytes);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Returns a copy of the cached result marked as such, or null on a miss. A null key, from a
+     * run that must not be cached, counts as bypassing the cache.
+     */
+    public CodeResponse get(String key) {
+        if (!enabled) return null;
+        CodeResponse resp = lookup(key);
+        if (resp == null) {
+            if (key == null || isUnstable(key)) {
+                bypassed.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+        }
+        return resp;
+    }
+
+    /**
+     * Like {@link #get(String)}, but a miss is not counted; for a quick look before the run is
+     * admitted, which is followed by a {@code get} if it misses.
+     */
+    public CodeResponse peek(String key) {
+        if (!enabled) return null;
+        return lookup(key);
+    }
+
+    private synchronized boolean isUnstable(String key) {
+        Observation o = observations.get(key);
+        return o != null && o.fingerprint == null;
+    }
+
+    private CodeResponse lookup(String key) {
+        if (key == null) return null;
+        Entry e;
+        synchronized (this) {
+            Observation o = observations.get(key);
+            if (o != null && o.fingerprint == null) return null;
+            e = entries.get(key);
+            if (e != null && isExpired(e)) {
+                removeEntry(key);
+                evictions.incrementAndGet();
+                e = null;
+            }
+        }
+        if (e == null && dir != null) {
+            e = readFromDisk(key);
+            if (e != null) {
+                diskHits.incrementAndGet();
+                synchronized (this) {
+                    putEntry(e);
+                }
+            }
+        }
+        if (e == null) return null;
+        hits.incrementAndGet();
+        return toResponse(e);
+    }
+
+    /**
+     * Offers the result of a run. It is stored once it is confirmed, unless its outcome or output
+     * shows it cannot be repeated.
+     */
+    public void put(String key, CodeResponse resp) {
+        if (!enabled || key == null || resp == null) return;
+        String outcome = Telemetry.outcome(resp);
+        boolean compileError = outcome.equals("compile_error");
+        if (!compileError && !outcome.equals("ok") && !outcome.equals("runtime_error")) {
+            rejected.incrementAndGet();
+            return;
+        }
+        if (!compileError && (unstableOutput(resp.getOutput()) || unstableOutput(resp.getError()))) {
+            rejected.incrementAndGet();
+            return;
+        }
+        Entry e = toEntry(key, resp);
+        synchronized (this) {
+            if (entries.containsKey(key)) return;
+            // diagnostics only depend on the source and the compiler, so there is nothing to confirm
+            if (!compileError && confirmations > 0 && !confirmed(key, fingerprint(e))) return;
+            putEntry(e);
+        }
+        if (writer != null) writer.execute(() -> writeToDisk(e));
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), memoryBytes, diskIndex.size(), diskBytes, hits.get(), diskHits.get(),
+                misses.get(), bypassed.get(), rejected.get(), unstable.get(), evictions.get());
+    }
+
+    /**
+     * Conservative check for sources whose result may differ between runs of the same input.
+     * False positives only cost a cache miss; whatever slips through is caught by confirmation.
+     */
+    static boolean isDeterministic(String language, String code) {
+        if (code == null) return true;
+        Pattern p = switch (language) {
+            case "c" -> NONDETERMINISTIC_C;
+            case "java" -> NONDETERMINISTIC_JAVA;
+            case "python" -> NONDETERMINISTIC_PYTHON;
+            default -> null;
+        };
+        if (p == null || p.matcher(code).find()) return false;
+        return !language.equals("java") || !usesIdentityHash(code);
+    }
+
+    /**
+     * Whether a Java source may depend on identity hash codes, which differ between runs: it
+     * calls {@code hashCode()} or uses a hash table, and hashes an enum, a plain Object, or one
+     * of its own classes that it instantiates without overriding {@code hashCode}. Hash codes of
+     * strings, boxed numbers and classes that override it are deterministic.
+     */
+    static boolean usesIdentityHash(String code) {
+        String s = JAVA_STRINGS_AND_COMMENTS.matcher(code).replaceAll(" ");
+        if (!JAVA_HASH_USE.matcher(s).find()) return false;
+        if (JAVA_IDENTITY_HASH.matcher(s).find()) return true;
+        Matcher m = JAVA_CLASS.matcher(s);
+        while (m.find()) {
+            if (!Pattern.compile("\\bnew\\s+" + m.group(1) + "\\s*[(<]").matcher(s).find()) continue;
+            if (!JAVA_HASH_CODE_OVERRIDE.matcher(members(s, m.end() - 1)).find()) return true;
+        }
+        return false;
+    }
+
+    /** The text of the class body opening at {@code open}, without method bodies and nested classes. */
+    private static String members(String s, int open) {
+        int depth = 0, end = open;
+        while (end < s.length()) {
+            char c = s.charAt(end++);
+            if (c == '{') depth++;
+            else if (c == '}' && --depth == 0) break;
+        }
+        String body = s.substring(open + 1, Math.max(open + 1, end - 1));
+        String flat;
+        while (!(flat = INNERMOST_BLOCK.matcher(body).replaceAll(" ")).equals(body)) body = flat;
+        return body;
+    }
+
+    static boolean unstableOutput(String s) {
+        return s != null && UNSTABLE_OUTPUT.matcher(s).find();
+    }
+
+    /** Records one run's result and tells whether enough runs have agreed on it. Caller holds the lock. */
+    private boolean confirmed(String key, String fingerprint) {
+        Observation o = observations.get(key);
+        if (o == null) {
+            o = new Observation();
+            o.fingerprint = fingerprint;
+            observations.put(key, o);
+            Iterator<Observation> it = observations.values().iterator();
+            while (observations.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+            return false;
+        }
+        if (o.fingerprint == null) return false;
+        if (!o.fingerprint.equals(fingerprint)) {
+            o.fingerprint = null;
+            unstable.incrementAndGet();
+            logger.debug("Run results for {} differ between runs; not caching it", key);
+            return false;
+        }
+        if (++o.matches < confirmations) return false;
+        observations.remove(key);
+        return true;
+    }
+
+    private static String fingerprint(Entry e) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { e.output, e.error, e.compileOutput, String.valueOf(e.exitCode) }) {
+                // runs of the same program get different workspaces
+                part = WorkspacePool.normalizePaths(part);
+                byte[] bytes = (part == null ? "\u0000" : part).getBytes(StandardCharsets.UTF_8);
+                md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                md.update((byte) ':');
+                md.update(bytes);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static Entry toEntry(String key, CodeResponse resp) {
+        Entry e = new Entry();
+        e.key = key;
+        e.createdAt = System.currentTimeMillis();
+        e.output = resp.getOutput();
+        e.error = resp.getError();
+        e.compileOutput = resp.getCompileOutput();
+        e.exitCode = resp.getExitCode();
+        e.cpuTimeMillis = resp.getCpuTimeMillis();
+        e.peakMemoryKb = resp.getPeakMemoryKb();
+        e.wallTimeMillis = resp.getWallTimeMillis();
+        return e;
+    }
+
+    private static CodeResponse toResponse(Entry e) {
+        CodeResponse resp = new CodeResponse();
+        resp.setOutput(e.output);
+        resp.setError(e.error);
+        resp.setCompileOutput(e.compileOutput);
+        resp.setExitCode(e.exitCode);
+        resp.setCpuTimeMillis(e.cpuTimeMillis);
+        resp.setPeakMemoryKb(e.peakMemoryKb);
+        resp.setWallTimeMillis(e.wallTimeMillis);
+        resp.setFromCache(true);
+        return resp;
+    }
+
+    private static long sizeOf(Entry e) {
+        long chars = length(e.key) + length(e.output) + length(e.error) + length(e.compileOutput);
+        return ENTRY_OVERHEAD_BYTES + 2 * chars;
+    }
+
+    private static long length(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    private boolean isExpired(Entry e) {
+        return System.currentTimeMillis() - e.createdAt > TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    /** Caller holds the lock. */
+    private void putEntry(Entry e) {
+        Entry old = entries.put(e.key, e);
+        if (old != null) memoryBytes -= sizeOf(old);
+        memoryBytes += sizeOf(e);
+        long maxBytes = maxMemoryMb * 1024 * 1024;
+        Iterator<Entry> it = entries.values().iterator();
+        while ((entries.size() > maxEntries || memoryBytes > maxBytes) && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            memoryBytes -= sizeOf(eldest);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** Caller holds the lock. */
+    private void removeEntry(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) memoryBytes -= sizeOf(old);
+        Long size = diskIndex.remove(key);
+        if (size != null) {
+            diskBytes -= size;
+            deleteQuietly(dir.resolve(key + ".json"));
+        }
+    }
+
+    private Entry readFromDisk(String key) {
+        synchronized (this) {
+            if (diskIndex.get(key) == null) return null;
+        }
+        try {
+            Entry e = mapper.readValue(dir.resolve(key + ".json").toFile(), Entry.class);
+            if (!key.equals(e.key) || isExpired(e)) {
+                synchronized (this) {
+                    removeEntry(key);
+                }
+                evictions.incrementAndGet();
+                return null;
+            }
+            return e;
+        } catch (IOException ex) {
+            // evicted or half-written by another instance; treat as a miss
+            synchronized (this) {
+                removeEntry(key);
+            }
+            return null;
+        }
+    }
+
+    private void writeToDisk(Entry e) {
+        synchronized (this) {
+            if (diskIndex.containsKey(e.key)) return;
+        }
+        try {
+            Path tmp = Files.createTempFile(dir, ".run-cache", ".tmp");
+            mapper.writeValue(tmp.toFile(), e);
+            long size = Files.size(tmp);
+            Files.move(tmp, dir.resolve(e.key + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                diskIndex.put(e.key, size);
+                diskBytes += size;
+                evictDiskIfNeeded();
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not write run-result cache entry {}: {}", e.key, ex.getMessage());
+        }
+    }
+
+    /** Caller holds the lock. */
+    private void evictDiskIfNeeded() {
+        long maxBytes = maxDiskMb * 1024 * 1024;
+        Iterator<Map.Entry<String, Long>> it = diskIndex.entrySet().iterator();
+        while (diskBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            diskBytes -= eldest.getValue();
+            deleteQuietly(dir.resolve(eldest.getKey() + ".json"));
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            s.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(p -> p.toFile().lastModified()));
+        long ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        int expired = 0;
+        synchronized (this) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                if (name.startsWith(".run-cache")) {
+                    deleteQuietly(p);
+                } else if (name.endsWith(".json")) {
+                    // written once, so the modification time is the creation time
+                    if (System.currentTimeMillis() - p.toFile().lastModified() > ttlMillis) {
+                        deleteQuietly(p);
+                        expired++;
+                        continue;
+                    }
+                    long size = p.toFile().length();
+                    diskIndex.put(name.substring(0, name.length() - ".json".length()), size);
+                    diskBytes += size;
+                }
+            }
+            evictDiskIfNeeded();
+        }
+        logger.info("Run-result cache has {} entries on disk in {} ({} expired ones removed)", diskIndex.size(), dir, expired);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.aidebugger.backend.service;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key into one computation.
+ *
+ * The first caller for a key (the leader) does the work; callers arriving while it is in
+ * flight wait for and share its result or exception. Nothing is remembered once the
+ * computation finishes, so this complements rather than replaces the caches.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code work} on the calling thread unless an identical call is in flight, in which
+     * case this blocks until that one finishes.
+     */
+    public V run(K key, Callable<V> work) throws Exception {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            try {
+                return leader.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) throw (Exception) cause;
+                throw (Error) cause;
+            }
+        }
+        try {
+            V v = work.call();
+            mine.complete(v);
+            return v;
+        } catch (Exception | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Asynchronous variant: starts {@code work} unless an identical call is in flight and
+     * returns the shared future. Cancelling the returned future does not affect other callers.
+     */
+    public CompletableFuture<V> runAsync(K key, Supplier<CompletableFuture<V>> work) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) return leader.thenApply(v -> v);
+        try {
+            work.get().whenComplete((v, e) -> {
+                inFlight.remove(key, mine);
+                if (e != null) mine.completeExceptionally(e); else mine.complete(v);
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine.thenApply(v -> v);
+    }
+
+    /** Number of distinct computations currently running. */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,281 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Latency and outcome metrics for runs and Gemini calls, plus one structured log line per request.
+ *
+ * Runs record {@code aidebugger.execution} (whole request) and {@code aidebugger.execution.phase}
+ * (workspace, compile, run, and within run the capture drain after exit) tagged by language
+ * (c, java, python or other), outcome and compile-cache result;
+ * Gemini calls record {@code aidebugger.gemini.request} and {@code aidebugger.gemini.phase}
+ * (prompt, upstream). All timers publish histograms for the Prometheus endpoint. The log line is
+ * {@code key=value} pairs; failures and slow requests are always logged, the rest are sampled at
+ * {@code telemetry.log.sample-rate}. The numbers behind the JSON stats endpoints (scheduler
+ * lanes, response and run-result caches, Gemini client, prompt compaction) are exported as gauges and counters
+ * as well, so one scrape has everything.
+ */
+@Component
+public class Telemetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(Telemetry.class);
+
+    private static final String TRUNCATION_MARKER = "...[truncated ";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private GeminiResponseCache responseCache;
+
+    @Autowired
+    private RunResultCache runResultCache;
+
+    @Autowired
+    private GeminiClient geminiClient;
+
+    @Autowired
+    private PromptCompactor promptCompactor;
+
+    @Value("${telemetry.log.sample-rate:0.05}")
+    private double sampleRate;
+
+    @Value("${telemetry.log.slow-ms:3000}")
+    private long slowMs;
+
+    /** Phases of one run, recorded together once its outcome is known. */
+    public final class Run {
+        private final String language;
+        private final boolean tracked;
+        private final long started = System.nanoTime();
+        // batch cases add to the same phase from several threads
+        private final Map<String, Long> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+        private String cache = "none";
+        private String runner = "process";
+
+        private Run(String language, boolean tracked) {
+            this.language = language;
+            this.tracked = tracked;
+        }
+
+        /** Adds {@code nanos} to {@code phase}. */
+        public void phase(String phase, long nanos) {
+            phases.merge(phase, nanos, Long::sum);
+        }
+
+        /**
+         * Compile-cache result: hit, miss or none for interpreted languages; projects report
+         * partial when only some of their files were recompiled.
+         */
+        public void cache(String cache) {
+            this.cache = cache;
+        }
+
+        /** Where the program ran: process, python-pool or result-cache. */
+        public void runner(String runner) {
+            this.runner = runner;
+        }
+
+        public void finish(CodeResponse resp) {
+            if (tracked) finishRun(this, outcome(resp), resp);
+        }
+    }
+
+    @PostConstruct
+    void bindStats() {
+        for (ExecutionScheduler.LaneStats lane : executionScheduler.stats()) {
+            String language = lane.getLanguage();
+            laneGauge("aidebugger.scheduler.running", "Runs executing", language, ExecutionScheduler.LaneStats::getRunning);
+            laneGauge("aidebugger.scheduler.queued", "Runs waiting for a slot", language, ExecutionScheduler.LaneStats::getQueued);
+            laneCounter("aidebugger.scheduler.admitted", "Runs given a slot", language, ExecutionScheduler.LaneStats::getAdmitted);
+            laneCounter("aidebugger.scheduler.rejected", "Runs turned away by admission control", language, ExecutionScheduler.LaneStats::getRejected);
+        }
+        Gauge.builder("aidebugger.ai_cache.size", responseCache, c -> c.stats().getSize())
+                .description("Cached Gemini answers").register(registry);
+        FunctionCounter.builder("aidebugger.ai_cache.requests", responseCache, c -> c.stats().getHits())
+                .description("Gemini answer cache lookups").tag("result", "hit").register(registry);
+        FunctionCounter.builder("aidebugger.ai_cache.requests", responseCache, c -> c.stats().getMisses())
+                .description("Gemini answer cache lookups").tag("result", "miss").register(registry);
+        Gauge.builder("aidebugger.run_cache.size", runResultCache, c -> c.stats().getSize())
+                .description("Cached run results in memory").register(registry);
+        FunctionCounter.builder("aidebugger.run_cache.requests", runResultCache, c -> c.stats().getHits())
+                .description("Run-result cache lookups").tag("result", "hit").register(registry);
+        FunctionCounter.builder("aidebugger.run_cache.requests", runResultCache, c -> c.stats().getMisses())
+                .description("Run-result cache lookups").tag("result", "miss").register(registry);
+        FunctionCounter.builder("aidebugger.run_cache.requests", runResultCache, c -> c.stats().getBypassed())
+                .description("Run-result cache lookups").tag("result", "bypass").register(registry);
+        Gauge.builder("aidebugger.gemini.rate_limit.tokens", geminiClient, c -> c.stats().getAvailableTokens())
+                .description("Requests the client-side rate limiter would admit right now").register(registry);
+        Gauge.builder("aidebugger.gemini.circuit.open", geminiClient, c -> "CLOSED".equals(c.stats().getCircuit()) ? 0 : 1)
+                .description("1 while the circuit breaker is open or half-open").register(registry);
+        FunctionCounter.builder("aidebugger.gemini.hedged", geminiClient, c -> c.stats().getHedgedRequests())
+                .description("Hedged duplicate requests sent").register(registry);
+        FunctionCounter.builder("aidebugger.prompt.compacted", promptCompactor, c -> c.stats().getCompactedPrompts())
+                .description("Prompts cut down to the token budget").register(registry);
+        FunctionCounter.builder("aidebugger.prompt.dropped_tokens", promptCompactor, c -> c.stats().getDroppedTokens())
+                .description("Estimated prompt tokens removed by compaction").register(registry);
+    }
+
+    private void laneGauge(String name, String description, String language, ToDoubleFunction<ExecutionScheduler.LaneStats> value) {
+        Gauge.builder(name, executionScheduler, s -> laneValue(s, language, value))
+                .description(description).tag("language", language).register(registry);
+    }
+
+    private void laneCounter(String name, String description, String language, ToDoubleFunction<ExecutionScheduler.LaneStats> value) {
+        FunctionCounter.builder(name, executionScheduler, s -> laneValue(s, language, value))
+                .description(description).tag("language", language).register(registry);
+    }
+
+    private static double laneValue(ExecutionScheduler scheduler, String language, ToDoubleFunction<ExecutionScheduler.LaneStats> value) {
+        for (ExecutionScheduler.LaneStats lane : scheduler.stats()) {
+            if (lane.getLanguage().equals(language)) return value.applyAsDouble(lane);
+        }
+        return Double.NaN;
+    }
+
+    public Run run(String language) {
+        return new Run(languageTag(language), true);
+    }
+
+    /** The language as a metric tag: c, java, python or other, so requests cannot mint new series. */
+    static String languageTag(String language) {
+        if (language == null) return "other";
+        return switch (language.trim().toLowerCase()) {
+            case "c" -> "c";
+            case "java" -> "java";
+            case "python", "py" -> "python";
+            default -> "other";
+        };
+    }
+
+    /** A run whose phases are not recorded, for work that is not a single run request. */
+    public Run untracked() {
+        return new Run("unknown", false);
+    }
+
+    /**
+     * ok, compile_error, timeout, limit (a resource limit or signal stopped it), runtime_error,
+     * or error when the service itself failed.
+     */
+    public static String outcome(CodeResponse resp) {
+        if (resp.getCompileOutput() != null && !resp.getCompileOutput().isBlank()) return "compile_error";
+        String error = resp.getError();
+        if (error == null || error.isBlank()) return "ok";
+        if (error.startsWith("Execution timed out")) return "timeout";
+        if (error.startsWith("Server filesystem error") || error.startsWith("Execution error")
+                || error.startsWith("Unsupported language")) return "error";
+        if (error.contains("limit exceeded") || error.contains("Program terminated by signal")) return "limit";
+        return "runtime_error";
+    }
+
+    private void finishRun(Run run, String outcome, CodeResponse resp) {
+        long total = System.nanoTime() - run.started;
+        timer("aidebugger.execution", "Whole run request, workspace to response",
+                "language", run.language, "outcome", outcome, "cache", run.cache).record(total, TimeUnit.NANOSECONDS);
+        run.phases.forEach((phase, nanos) -> timer("aidebugger.execution.phase", "One phase of a run request",
+                "phase", phase, "language", run.language, "outcome", outcome, "cache", run.cache).record(nanos, TimeUnit.NANOSECONDS));
+
+        boolean truncated = resp != null && (contains(resp.getOutput(), TRUNCATION_MARKER) || contains(resp.getError(), TRUNCATION_MARKER));
+        if (outcome.equals("timeout")) counter("aidebugger.execution.timeouts", "Runs stopped by the wall-clock timeout", "language", run.language).increment();
+        if (truncated) counter("aidebugger.execution.truncations", "Runs whose output exceeded the capture limit", "language", run.language).increment();
+
+        long totalMs = TimeUnit.NANOSECONDS.toMillis(total);
+        if (!shouldLog(outcome, totalMs)) return;
+        StringBuilder line = new StringBuilder("run");
+        field(line, "language", run.language);
+        field(line, "outcome", outcome);
+        field(line, "cache", run.cache);
+        field(line, "runner", run.runner);
+        field(line, "total_ms", totalMs);
+        run.phases.forEach((phase, nanos) -> field(line, phase + "_ms", TimeUnit.NANOSECONDS.toMillis(nanos)));
+        if (resp != null) {
+            field(line, "exit", resp.getExitCode());
+            field(line, "cpu_ms", resp.getCpuTimeMillis());
+            field(line, "rss_kb", resp.getPeakMemoryKb());
+            if (truncated) field(line, "truncated", true);
+        }
+        log(outcome, line);
+    }
+
+    public void geminiPhase(String mode, String phase, long nanos) {
+        timer("aidebugger.gemini.phase", "One phase of a Gemini request", "mode", mode, "phase", phase)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param mode batch, speculative or stream
+     */
+    public void geminiRequest(String mode, CodeResponse resp, boolean cacheHit, long nanos) {
+        String outcome = resp.getError() == null || resp.getError().isBlank() ? "ok" : "error";
+        String cache = cacheHit ? "hit" : "miss";
+        timer("aidebugger.gemini.request", "Gemini debug request, cache lookup to parsed answer",
+                "mode", mode, "outcome", outcome, "cache", cache).record(nanos, TimeUnit.NANOSECONDS);
+
+        long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (!shouldLog(outcome, ms)) return;
+        StringBuilder line = new StringBuilder("gemini");
+        field(line, "mode", mode);
+        field(line, "outcome", outcome);
+        field(line, "cache", cache);
+        field(line, "total_ms", ms);
+        log(outcome, line);
+    }
+
+    /**
+     * @param reason http_&lt;status&gt;, timeout, rejected, empty or other
+     */
+    public void geminiError(String reason) {
+        counter("aidebugger.gemini.errors", "Gemini requests that failed after retries", "reason", reason).increment();
+    }
+
+    private boolean shouldLog(String outcome, long millis) {
+        if (outcome.equals("error") || outcome.equals("timeout") || millis >= slowMs) return true;
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private static void log(String outcome, StringBuilder line) {
+        if (outcome.equals("error")) {
+            logger.warn(line.toString());
+        } else {
+            logger.info(line.toString());
+        }
+    }
+
+    private static void field(StringBuilder line, String key, Object value) {
+        if (value == null) return;
+        line.append(' ').append(key).append('=').append(value);
+    }
+
+    private static boolean contains(String s, String marker) {
+        return s != null && s.contains(marker);
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name).description(description).tags(tags).publishPercentileHistogram().register(registry);
+    }
+
+    private Counter counter(String name, String description, String... tags) {
+        return Counter.builder(name).description(description).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,237 @@
+package com.aidebugger.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Reusable working directories for runs, kept on a memory-backed filesystem when one is usable.
+ *
+ * A released workspace is emptied on a background thread and goes back to the pool, so the
+ * request path neither creates nor scans directories. Each backend process keeps its
+ * workspaces under {@code <root>/aidebugger-workspaces/<pid>}; a janitor removes the trees of
+ * processes that are gone (e.g. after a crash) and old {@code codeexec_} directories in the
+ * system temp directory, at startup and every {@code executor.workspace.janitor-interval-ms}.
+ */
+@Component
+public class WorkspacePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkspacePool.class);
+
+    private static final String PREFIX = "codeexec_";
+
+    // a run's or a project session's directory, under any root and process id
+    private static final Pattern PATH = Pattern.compile(
+            "(?:/[^/\\s\"':]+)*/aidebugger-workspaces/\\d+/(?:codeexec_\\d+|projects/[^/\\s\"':]+)|\\b" + PREFIX + "\\d+");
+
+    /** Parent of the per-process trees; defaults to /dev/shm when programs can run from it. */
+    @Value("${executor.workspace.root:}")
+    private String rootProperty;
+
+    /** Clean workspaces kept for reuse; more are created on demand and deleted on release. */
+    @Value("${executor.workspace.pool-size:16}")
+    private int poolSize;
+
+    @Value("${executor.workspace.janitor-interval-ms:300000}")
+    private long janitorIntervalMs;
+
+    /** Age after which a leftover {@code codeexec_} directory in the system temp dir is removed. */
+    @Value("${executor.workspace.stale-minutes:30}")
+    private long staleMinutes;
+
+    private Path base;
+    private Path root;
+    private final BlockingQueue<Path> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    // cleaning and the janitor; one thread, off the request path
+    private ScheduledExecutorService cleaner;
+
+    /** A checked-out workspace; closing it hands it back for cleaning. */
+    public final class Workspace implements AutoCloseable {
+        private final Path dir;
+        private boolean released;
+
+        private Workspace(Path dir) {
+            this.dir = dir;
+        }
+
+        public Path path() {
+            return dir;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            release(dir);
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        base = chooseBase().resolve("aidebugger-workspaces");
+        root = base.resolve(Long.toString(ProcessHandle.current().pid()));
+        // a previous process with our pid left this behind
+        deleteQuietly(root);
+        Files.createDirectories(root);
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "workspace-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        cleaner.execute(this::collectGarbage);
+        if (janitorIntervalMs > 0) {
+            cleaner.scheduleWithFixedDelay(this::collectGarbage, janitorIntervalMs, janitorIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Run workspaces under {}", root);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (cleaner != null) cleaner.shutdownNow();
+        idle.clear();
+        if (root != null) deleteQuietly(root);
+    }
+
+    /** Hands out an empty directory for one run. */
+    public Workspace acquire() throws IOException {
+        Path dir = idle.poll();
+        if (dir != null && Files.isDirectory(dir)) {
+            return new Workspace(dir);
+        }
+        dir = root.resolve(PREFIX + created.incrementAndGet());
+        Files.createDirectory(dir);
+        return new Workspace(dir);
+    }
+
+    /** Where project sessions keep their sources and builds; removed with the rest of this process's tree. */
+    public Path projectRoot() {
+        return root.resolve("projects");
+    }
+
+    /**
+     * Replaces workspace directories in compiler messages, tracebacks and the like with a fixed
+     * placeholder, so that the same program gives the same text whichever workspace and backend
+     * process ran it.
+     */
+    public static String normalizePaths(String text) {
+        return text == null ? null : PATH.matcher(text).replaceAll("<workspace>");
+    }
+
+    private void release(Path dir) {
+        try {
+            cleaner.execute(() -> {
+                if (idle.size() < poolSize && emptyDirectory(dir)) {
+                    idle.offer(dir);
+                } else {
+                    deleteQuietly(dir);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down; the whole tree goes away with it
+        }
+    }
+
+    private void collectGarbage() {
+        try (DirectoryStream<Path> owners = Files.newDirectoryStream(base)) {
+            for (Path owner : owners) {
+                if (owner.equals(root)) continue;
+                Long pid = parsePid(owner.getFileName().toString());
+                if (pid == null || ProcessHandle.of(pid).isEmpty()) {
+                    logger.info("Removing workspaces of stopped process {}", owner.getFileName());
+                    deleteQuietly(owner);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Workspace janitor cannot scan {}: {}", base, e.getMessage());
+        }
+
+        // per-request temp directories from earlier versions and crashed runs
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(staleMinutes));
+        int removed = 0;
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(tmp, PREFIX + "*")) {
+            for (Path dir : leftovers) {
+                if (!dir.startsWith(root) && Files.getLastModifiedTime(dir).compareTo(cutoff) < 0) {
+                    deleteQuietly(dir);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Workspace janitor cannot scan {}: {}", tmp, e.getMessage());
+        }
+        if (removed > 0) logger.info("Removed {} stale {} directories from {}", removed, PREFIX, tmp);
+    }
+
+    /**
+     * /dev/shm when it exists and lets us run binaries placed there (some systems mount it
+     * noexec), otherwise the system temp directory.
+     */
+    private Path chooseBase() {
+        if (rootProperty != null && !rootProperty.isBlank()) return Paths.get(rootProperty);
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        Path shm = Paths.get("/dev/shm");
+        if (!Files.isDirectory(shm) || !Files.isWritable(shm)) return tmp;
+        Path probe = null;
+        try {
+            probe = Files.createTempFile(shm, "aidebugger-exec", ".sh");
+            Files.writeString(probe, "#!/bin/sh\nexit 0\n");
+            probe.toFile().setExecutable(true, true);
+            Process p = new ProcessBuilder(probe.toString()).start();
+            if (p.waitFor(5, TimeUnit.SECONDS) && p.exitValue() == 0) return shm;
+            p.destroyForcibly();
+        } catch (IOException e) {
+            // noexec or not a shell-capable system
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (probe != null) probe.toFile().delete();
+        }
+        logger.info("/dev/shm is not usable for runs, keeping workspaces in {}", tmp);
+        return tmp;
+    }
+
+    private static Long parsePid(String name) {
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Deletes everything inside {@code dir}; false if something could not be removed. */
+    private static boolean emptyDirectory(Path dir) {
+        try (Stream<Path> s = Files.walk(dir)) {
+            s.sorted(Comparator.reverseOrder()).filter(p -> !p.equals(dir)).forEach(p -> p.toFile().delete());
+        } catch (IOException | UncheckedIOException e) {
+            return false;
+        }
+        try (DirectoryStream<Path> left = Files.newDirectoryStream(dir)) {
+            return !left.iterator().hasNext();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (Files.notExists(path)) return;
+        try (Stream<Path> s = Files.walk(path)) {
+            s.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException | UncheckedIOException ignored) {
+        }
+    }
+}
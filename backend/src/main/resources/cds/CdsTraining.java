@@ -0,0 +1,181 @@
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Training run for the JDK class-data-sharing archive built by ClassDataSharing. It touches the
+ * library surface typical student programs use (stdin parsing, formatting, collections, streams,
+ * lambdas, string concatenation, records, exceptions), so those classes are in the archive.
+ */
+public class CdsTraining {
+
+    record Student(String name, int score) implements Comparable<Student> {
+        public int compareTo(Student o) {
+            return Integer.compare(o.score, score);
+        }
+    }
+
+    enum Grade { A, B, C, F }
+
+    interface Shape {
+        double area();
+    }
+
+    static final class Circle implements Shape {
+        private final double r;
+        Circle(double r) { this.r = r; }
+        public double area() { return Math.PI * r * r; }
+    }
+
+    static abstract class Account {
+        protected double balance;
+        abstract void deposit(double amount);
+    }
+
+    static class Savings extends Account {
+        void deposit(double amount) {
+            if (amount <= 0) throw new IllegalArgumentException("amount must be positive: " + amount);
+            balance += amount;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Scanner sc = new Scanner(System.in);
+        int n = sc.nextInt();
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < n; i++) students.add(new Student(sc.next(), sc.nextInt()));
+        double factor = sc.nextDouble();
+        sc.nextLine();
+        String line = sc.hasNextLine() ? sc.nextLine() : "";
+        long big = sc.hasNextLong() ? sc.nextLong() : 0L;
+
+        Collections.sort(students);
+        students.sort(Comparator.comparing(Student::name).thenComparingInt(Student::score));
+        Map<Grade, List<String>> byGrade = new EnumMap<>(Grade.class);
+        for (Student s : students) {
+            Grade g = switch (s.score() / 10) {
+                case 10, 9 -> Grade.A;
+                case 8 -> Grade.B;
+                case 7 -> Grade.C;
+                default -> Grade.F;
+            };
+            byGrade.computeIfAbsent(g, k -> new ArrayList<>()).add(s.name());
+            System.out.printf("%-10s %5d %6.2f%%%n", s.name(), s.score(), s.score() * factor);
+        }
+        System.out.println("Grades: " + byGrade + " " + students.get(0) + " " + line.toUpperCase().trim());
+
+        int[] arr = students.stream().mapToInt(Student::score).toArray();
+        Arrays.sort(arr);
+        System.out.println(Arrays.toString(arr) + " sum=" + IntStream.of(arr).sum() + " max=" + Arrays.stream(arr).max().orElse(-1));
+        int[][] grid = new int[4][5];
+        for (int[] row : grid) Arrays.fill(row, 1);
+        System.out.println(Arrays.deepToString(grid));
+        Integer[] boxed = { 3, 1, 2 };
+        Arrays.sort(boxed, Collections.reverseOrder());
+        System.out.println(Arrays.asList(boxed));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (String w : "the quick brown fox jumps over the lazy dog the end".split("\\s+")) counts.merge(w, 1, Integer::sum);
+        TreeMap<String, Integer> sorted = new TreeMap<>(counts);
+        LinkedHashMap<String, Integer> ordered = new LinkedHashMap<>(sorted);
+        System.out.println(sorted.firstKey() + " " + ordered.entrySet().iterator().next().getValue());
+        Set<Integer> seen = new HashSet<>(List.of(1, 2, 3));
+        TreeSet<String> names = new TreeSet<>(counts.keySet());
+        LinkedList<Integer> linked = new LinkedList<>(seen);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Queue<int[]> bfs = new LinkedList<>();
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.reverseOrder());
+        for (int i = 0; i < 10; i++) { stack.push(i); heap.offer(i * 7 % 10); bfs.add(new int[] { i, i }); }
+        Iterator<Integer> it = linked.iterator();
+        while (it.hasNext()) if (it.next() % 2 == 0) it.remove();
+        System.out.println(stack.pop() + " " + heap.poll() + " " + bfs.poll()[0] + " " + names.first() + " " + linked);
+
+        String joined = counts.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .sorted()
+                .collect(Collectors.joining(", ", "[", "]"));
+        Map<Boolean, Long> parts = IntStream.rangeClosed(1, 100).boxed()
+                .collect(Collectors.partitioningBy(i -> i % 3 == 0, Collectors.counting()));
+        Map<Integer, List<String>> byLength = counts.keySet().stream().collect(Collectors.groupingBy(String::length, TreeMap::new, Collectors.toList()));
+        Optional<String> longest = counts.keySet().stream().max(Comparator.comparingInt(String::length));
+        double avg = IntStream.of(arr).average().orElse(0);
+        List<Integer> squares = Stream.iterate(1, x -> x + 1).limit(10).map(x -> x * x).collect(Collectors.toList());
+        Function<Integer, Integer> twice = x -> 2 * x;
+        BiFunction<Integer, Integer, Integer> add = Integer::sum;
+        Supplier<List<String>> fresh = ArrayList::new;
+        Predicate<String> empty = String::isEmpty;
+        UnaryOperator<String> up = String::toUpperCase;
+        Runnable r = () -> System.out.print("");
+        r.run();
+        System.out.println(joined + parts + byLength + longest.orElse("") + String.format("%.3f", avg) + squares
+                + twice.andThen(x -> x + 1).apply(4) + add.apply(2, 3) + fresh.get() + empty.negate().test("") + up.apply("x"));
+
+        StringBuilder sb = new StringBuilder();
+        for (char c : "Hello, World".toCharArray()) {
+            if (Character.isLetter(c)) sb.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        sb.reverse().insert(0, '>').append(String.valueOf(3.5)).append(Integer.toBinaryString(42)).append(Long.toHexString(big));
+        String s = sb.toString();
+        System.out.println(s + s.length() + s.indexOf('l') + s.substring(1, 3) + s.replace("l", "L") + s.chars().filter(Character::isDigit).count()
+                + String.join("-", List.of("a", "b")) + "  x ".strip() + "ab".repeat(2) + s.contains("W") + s.compareTo("abc")
+                + s.matches(".*\\d.*") + Integer.parseInt("123") + Double.parseDouble("2.5") + Integer.valueOf(7).equals(7)
+                + Integer.MAX_VALUE + Long.MIN_VALUE + Character.getNumericValue('7') + (char) ('a' + 1) + Objects.hash(1, "a"));
+
+        System.out.println(Math.sqrt(2) + Math.pow(2, 10) + Math.abs(-3) + Math.max(1, 2) + Math.floor(2.7) + Math.ceil(2.1)
+                + Math.round(2.5) + Math.floorMod(-7, 3) + Math.hypot(3, 4) + Math.log10(1000) + Math.random() * 0
+                + new Random(42).nextInt(100) + new Circle(2).area());
+        BigInteger fact = BigInteger.ONE;
+        for (int i = 2; i <= 30; i++) fact = fact.multiply(BigInteger.valueOf(i));
+        System.out.println(fact + " " + fact.mod(BigInteger.valueOf(1_000_000_007)) + " "
+                + new BigDecimal("10").divide(new BigDecimal("3"), 5, RoundingMode.HALF_UP));
+
+        Account acct = new Savings();
+        try {
+            acct.deposit(-1);
+        } catch (IllegalArgumentException e) {
+            System.out.println("caught " + e.getMessage());
+        }
+        try {
+            Object o = List.of(1).get(2);
+        } catch (IndexOutOfBoundsException e) {
+            e.printStackTrace(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        try {
+            int[] small = new int[1];
+            small[arr.length + 1] = 1 / (arr.length - arr.length);
+        } catch (ArithmeticException | ArrayIndexOutOfBoundsException e) {
+            System.out.println(e);
+        }
+        try {
+            String nothing = null;
+            nothing.length();
+        } catch (NullPointerException e) {
+            System.out.println(e.getMessage());
+        }
+        try {
+            Integer.parseInt("x1");
+        } catch (NumberFormatException e) {
+            System.out.println(e.getMessage());
+        }
+
+        BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream("1 2 3\n4\n".getBytes())));
+        StringTokenizer st = new StringTokenizer(br.readLine());
+        int total = 0;
+        while (st.hasMoreTokens()) total += Integer.parseInt(st.nextToken());
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        out.println(total + br.lines().mapToInt(Integer::parseInt).sum());
+        out.flush();
+        System.err.println("done");
+
+        Thread t = new Thread(() -> System.out.println("thread " + Thread.currentThread().getName()));
+        t.start();
+        t.join();
+        // an uncaught exception with a stack trace, as most failing submissions end
+        throw new IllegalStateException("training run finished");
+    }
+}
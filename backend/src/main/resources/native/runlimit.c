@@ -0,0 +1,160 @@
+/*
+ * Launcher for user programs, compiled at startup by ResourceLimiter.
+ *
+ *   runlimit STATS CPU_SECONDS AS_BYTES FSIZE_BYTES PIDS_MAX CGROUP -- COMMAND [ARGS...]
+ *
+ * Applies the given rlimits (0 leaves a limit alone), runs COMMAND in its own process group,
+ * waits for it with wait4() and writes its exit status, CPU time and peak RSS to STATS.
+ * Exits with the program's exit code, or 128 + signal when it was killed. SIGTERM to the
+ * launcher (wall-clock timeout) kills the program and cleans up as if it had exited; when the
+ * launcher itself is killed the program is killed with it.
+ *
+ * With PIDS_MAX > 0 the program runs in CGROUP, a pids cgroup created for this run with
+ * pids.max = PIDS_MAX, so a fork bomb stops at that many tasks (processes and threads). The
+ * launcher refuses to run the program when the cgroup cannot be set up. Once the program
+ * exits, whatever it left in the cgroup is killed and reaped, and the cgroup is removed.
+ */
+#define _GNU_SOURCE
+#include <errno.h>
+#include <fcntl.h>
+#include <signal.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/prctl.h>
+#include <sys/resource.h>
+#include <sys/stat.h>
+#include <sys/time.h>
+#include <sys/wait.h>
+#include <unistd.h>
+
+static void limit(int resource, unsigned long long value, unsigned long long slack) {
+    if (value == 0) return;
+    struct rlimit rl;
+    rl.rlim_cur = value;
+    rl.rlim_max = value + slack;
+    if (setrlimit(resource, &rl) != 0 && getrlimit(resource, &rl) == 0) {
+        // the inherited hard limit is lower and cannot be raised: keep it
+        if (rl.rlim_max == RLIM_INFINITY || rl.rlim_max > value) rl.rlim_cur = value;
+        setrlimit(resource, &rl);
+    }
+}
+
+static int write_file(const char *dir, const char *name, const char *value) {
+    char path[4096];
+    snprintf(path, sizeof path, "%s/%s", dir, name);
+    int fd = open(path, O_WRONLY | O_CLOEXEC);
+    if (fd < 0) return -1;
+    ssize_t n = write(fd, value, strlen(value));
+    close(fd);
+    return n == (ssize_t) strlen(value) ? 0 : -1;
+}
+
+/* Kills the tasks in the cgroup and reaps the ones that were reparented here; true when none is left. */
+static int kill_cgroup(const char *cgroup) {
+    char path[4096];
+    snprintf(path, sizeof path, "%s/cgroup.procs", cgroup);
+    FILE *procs = fopen(path, "re");
+    if (procs == NULL) return 1;
+    int left = 0;
+    long pid;
+    while (fscanf(procs, "%ld", &pid) == 1) {
+        kill((pid_t) pid, SIGKILL);
+        left = 1;
+    }
+    fclose(procs);
+    while (waitpid(-1, NULL, WNOHANG) > 0) {
+    }
+    return !left;
+}
+
+static volatile pid_t child;
+
+static void stop(int sig) {
+    (void) sig;
+    if (child > 0) {
+        kill(-child, SIGKILL);
+        kill(child, SIGKILL);
+    }
+}
+
+static long long millis(struct timeval tv) {
+    return (long long) tv.tv_sec * 1000 + tv.tv_usec / 1000;
+}
+
+int main(int argc, char **argv) {
+    if (argc < 9 || strcmp(argv[7], "--") != 0) {
+        fprintf(stderr, "usage: runlimit STATS CPU_SECONDS AS_BYTES FSIZE_BYTES PIDS_MAX CGROUP -- COMMAND [ARGS...]\n");
+        return 125;
+    }
+    int stats = open(argv[1], O_WRONLY | O_CREAT | O_TRUNC | O_CLOEXEC, 0600);
+    if (stats < 0) {
+        perror("runlimit: stats file");
+        return 125;
+    }
+    unsigned long long cpu = strtoull(argv[2], NULL, 10);
+    unsigned long long as = strtoull(argv[3], NULL, 10);
+    unsigned long long fsize = strtoull(argv[4], NULL, 10);
+    unsigned long long pids = strtoull(argv[5], NULL, 10);
+    const char *cgroup = pids > 0 ? argv[6] : NULL;
+    if (cgroup != NULL) {
+        if ((mkdir(cgroup, 0755) != 0 && errno != EEXIST) || write_file(cgroup, "pids.max", argv[5]) != 0) {
+            fprintf(stderr, "runlimit: cannot set up pids cgroup %s: %s\n", cgroup, strerror(errno));
+            return 125;
+        }
+        // orphaned descendants are reparented to the launcher, which reaps them
+        prctl(PR_SET_CHILD_SUBREAPER, 1);
+    }
+    pid_t parent = getpid();
+
+    struct sigaction sa;
+    memset(&sa, 0, sizeof sa);
+    sa.sa_handler = stop;
+    sigaction(SIGTERM, &sa, NULL);
+    child = fork();
+    if (child < 0) {
+        perror("runlimit: fork");
+        return 125;
+    }
+    if (child == 0) {
+        signal(SIGTERM, SIG_DFL);
+        prctl(PR_SET_PDEATHSIG, SIGKILL);
+        if (getppid() != parent) _exit(137);
+        setpgid(0, 0);
+        if (cgroup != NULL && write_file(cgroup, "cgroup.procs", "0") != 0) {
+            fprintf(stderr, "runlimit: cannot join pids cgroup %s: %s\n", cgroup, strerror(errno));
+            _exit(125);
+        }
+        // SIGXCPU at the soft limit, SIGKILL a second later if the program handles it
+        limit(RLIMIT_CPU, cpu, 1);
+        limit(RLIMIT_AS, as, 0);
+        limit(RLIMIT_FSIZE, fsize, 0);
+        struct rlimit nocore = { 0, 0 };
+        setrlimit(RLIMIT_CORE, &nocore);
+        execvp(argv[8], &argv[8]);
+        fprintf(stderr, "runlimit: cannot run %s: %s\n", argv[8], strerror(errno));
+        _exit(127);
+    }
+
+    int status;
+    struct rusage usage;
+    while (wait4(child, &status, 0, &usage) < 0) {
+        if (errno != EINTR) {
+            perror("runlimit: wait4");
+            return 125;
+        }
+    }
+    // background processes the program left behind
+    kill(-child, SIGKILL);
+    if (cgroup != NULL) {
+        for (int i = 0; i < 100 && !kill_cgroup(cgroup); i++) usleep(10000);
+        rmdir(cgroup);
+    }
+
+    int code = WIFEXITED(status) ? WEXITSTATUS(status) : 128 + WTERMSIG(status);
+    int sig = WIFSIGNALED(status) ? WTERMSIG(status) : 0;
+    dprintf(stats, "exit %d\nsignal %d\ncpu_ms %lld\nmaxrss_kb %ld\n",
+            code, sig, millis(usage.ru_utime) + millis(usage.ru_stime), usage.ru_maxrss);
+    close(stats);
+    return code;
+}
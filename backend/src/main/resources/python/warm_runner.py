@@ -0,0 +1,65 @@
+"""Pre-started interpreter for one user program, started by PythonRunnerPool.
+
+Imports the modules student programs use most, then blocks until the backend writes the
+path of the script and the working directory as the first two lines of stdin. Everything
+after them is the program's own stdin. The script runs as __main__, and errors are reported
+the way `python main.py` would report them.
+"""
+import atexit
+import os
+import runpy
+import sys
+import traceback
+
+import bisect, collections, copy, datetime, decimal, fractions, functools, heapq  # noqa: E401,F401
+import itertools, json, math, operator, random, re, statistics, string, typing  # noqa: E401,F401
+
+
+def main():
+    script = sys.stdin.buffer.readline().decode("utf-8").rstrip("\n")
+    workdir = sys.stdin.buffer.readline().decode("utf-8").rstrip("\n")
+    if not script:
+        return 0
+    os.chdir(workdir or os.path.dirname(script))
+    sys.argv = [script]
+    # the script may be given relative to the working directory
+    sys.path[0] = os.path.dirname(os.path.abspath(script))
+    try:
+        runpy.run_path(script, run_name="__main__")
+    except SystemExit as e:
+        if e.code is None:
+            return 0
+        if isinstance(e.code, int):
+            return e.code
+        print(e.code, file=sys.stderr)
+        return 1
+    except BaseException as e:
+        # drop this file's and runpy's frames, as if the script had been run directly
+        tb = e.__traceback__
+        while tb is not None and tb.tb_frame.f_code.co_filename != script:
+            tb = tb.tb_next
+        traceback.print_exception(type(e), e, tb)
+        return 1
+    return 0
+
+
+def finish(code):
+    # skip interpreter teardown, which with the preloaded modules takes longer than most programs,
+    # but first do what it does for the program: wait for its non-daemon threads, then atexit
+    threading = sys.modules.get("threading")
+    if threading is not None:
+        try:
+            threading._shutdown()
+        except Exception:
+            pass
+    atexit._run_exitfuncs()
+    for stream in (sys.stdout, sys.stderr):
+        try:
+            stream.flush()
+        except Exception:
+            pass
+    os._exit(code & 0xFF)
+
+
+if __name__ == "__main__":
+    finish(main())
@@ -0,0 +1,65 @@
+package com.aidebugger.backend.controller;
+
+import com.aidebugger.backend.service.Client;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientIdentityTest {
+
+    private static ClientIdentity identity(String secret) {
+        ClientIdentity identity = new ClientIdentity();
+        ReflectionTestUtils.setField(identity, "secret", secret);
+        identity.init();
+        return identity;
+    }
+
+    private static Client identify(ClientIdentity identity, String token, String address, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(address);
+        if (token != null) request.addHeader(ClientIdentity.HEADER, token);
+        return identity.identify(request, response);
+    }
+
+    @Test
+    void issuesATokenAndKeepsIt() {
+        ClientIdentity identity = identity("");
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        Client client = identify(identity, null, "10.0.0.1", first);
+        assertEquals(client.getId(), first.getHeader(ClientIdentity.HEADER));
+        assertEquals("10.0.0.1", client.getAddress());
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertEquals(client.getId(), identify(identity, client.getId(), "10.0.0.1", second).getId());
+        assertEquals(client.getId(), second.getHeader(ClientIdentity.HEADER));
+    }
+
+    @Test
+    void clientsBehindOneAddressGetTheirOwnTokens() {
+        ClientIdentity identity = identity("");
+        Client a = identify(identity, null, "10.0.0.1", new MockHttpServletResponse());
+        Client b = identify(identity, null, "10.0.0.1", new MockHttpServletResponse());
+        assertNotEquals(a.getId(), b.getId());
+    }
+
+    @Test
+    void replacesTokensItDidNotIssue() {
+        ClientIdentity identity = identity("secret");
+        String issued = identity.issue();
+        assertTrue(identity.isValid(issued));
+        assertTrue(identity("secret").isValid(issued));
+        assertFalse(identity("other").isValid(issued));
+
+        String forged = "hw1" + issued.substring(issued.indexOf('.'));
+        assertFalse(identity.isValid(forged));
+        assertFalse(identity.isValid("hw1"));
+        assertFalse(identity.isValid(".x"));
+        assertNotEquals(forged, identify(identity, forged, "10.0.0.1", new MockHttpServletResponse()).getId());
+    }
+}
@@ -0,0 +1,94 @@
+package com.aidebugger.backend.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassDependenciesTest {
+
+    private static Map<String, byte[]> classes;
+
+    @BeforeAll
+    static void compile() {
+        Map<String, String> sources = Map.of(
+                "shapes/Shape.java", "package shapes;\n"
+                        + "public abstract class Shape implements Comparable<Shape> {\n"
+                        + "    public abstract double area();\n"
+                        + "    public int compareTo(Shape o) { return Double.compare(area(), o.area()); }\n"
+                        + "}\n",
+                "shapes/Tag.java", "package shapes;\npublic class Tag { }\n",
+                "shapes/Circle.java", "package shapes;\n"
+                        + "import java.util.List;\n"
+                        + "public class Circle extends Shape {\n"
+                        + "    public static final int SIDES = 0;\n"
+                        + "    public static final String NAME = \"circle\";\n"
+                        + "    private List<Tag> tags;\n"
+                        + "    public double area() { return 3.0; }\n"
+                        + "    public static void main(String[] args) { }\n"
+                        + "    static class Builder { }\n"
+                        + "}\n",
+                "Instance.java", "public class Instance { public void main(String[] args) { } }\n");
+        InMemoryJavaCompiler.ProjectResult result = new InMemoryJavaCompiler().compile(sources, Map.of(), List.of());
+        assertNotNull(result.getClassesBySource(), result.getDiagnostics());
+        classes = new HashMap<>();
+        result.getClassesBySource().values().forEach(classes::putAll);
+    }
+
+    private static ClassDependencies.Info read(String name) throws Exception {
+        return ClassDependencies.read(classes.get(name));
+    }
+
+    @Test
+    void readsNameAndSupertypes() throws Exception {
+        ClassDependencies.Info circle = read("shapes.Circle");
+        assertEquals("shapes.Circle", circle.name());
+        assertEquals(List.of("shapes.Shape"), circle.supertypes());
+
+        ClassDependencies.Info shape = read("shapes.Shape");
+        assertTrue(shape.supertypes().contains("java.lang.Comparable"));
+        assertTrue(shape.supertypes().contains("java.lang.Object"));
+
+        assertEquals("shapes.Circle$Builder", read("shapes.Circle$Builder").name());
+    }
+
+    @Test
+    void findsClassesNamedOnlyInGenericSignatures() throws Exception {
+        ClassDependencies.Info circle = read("shapes.Circle");
+        assertTrue(circle.references().contains("shapes.Circle"));
+        assertTrue(circle.references().contains("shapes.Shape"));
+        // List<Tag> erases to List; Tag is only in the field's Signature attribute
+        assertTrue(circle.references().contains("shapes.Tag"));
+        assertTrue(circle.references().contains("java.util.List"));
+    }
+
+    @Test
+    void recordsCompileTimeConstants() throws Exception {
+        String constants = read("shapes.Circle").constants();
+        assertTrue(constants.contains("SIDES=0;"), constants);
+        assertTrue(constants.contains("NAME=circle;"), constants);
+        assertEquals("", read("shapes.Tag").constants());
+    }
+
+    @Test
+    void detectsPublicStaticMain() throws Exception {
+        assertTrue(read("shapes.Circle").hasMain());
+        assertFalse(read("shapes.Shape").hasMain());
+        assertFalse(read("Instance").hasMain());
+    }
+
+    @Test
+    void rejectsWhatIsNotAClassFile() {
+        assertThrows(IOException.class,
+                () -> ClassDependencies.read(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+    }
+}
@@ -0,0 +1,100 @@
+package com.aidebugger.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectWorkspacesTest {
+
+    private final Map<String, Set<String>> classesBySource = new HashMap<>();
+    private final Map<String, ClassDependencies.Info> infos = new HashMap<>();
+
+    private void source(String file, String name, String superName, String... references) {
+        Set<String> refs = new HashSet<>(List.of(references));
+        refs.add(name);
+        refs.add(superName);
+        classesBySource.put(file, Set.of(name));
+        infos.put(name, new ClassDependencies.Info(name, superName, List.of(), refs, "", false));
+    }
+
+    @Test
+    void rebuildsDependentsTransitively() {
+        source("Base.java", "Base", "java.lang.Object");
+        source("Mid.java", "Mid", "Base");
+        source("User.java", "User", "java.lang.Object", "Mid");
+        source("Other.java", "Other", "java.lang.Object");
+
+        // User only names Mid, but Mid's inherited members come from Base
+        assertEquals(Set.of("Base.java", "Mid.java", "User.java"),
+                ProjectWorkspaces.affectedSources(classesBySource, infos, Set.of("Base.java"), Set.of()));
+    }
+
+    @Test
+    void rebuildsImplementationsOfAChangedInterface() {
+        classesBySource.put("Api.java", Set.of("Api"));
+        infos.put("Api", new ClassDependencies.Info("Api", "java.lang.Object", List.of(), Set.of("Api"), "", false));
+        classesBySource.put("Impl.java", Set.of("Impl"));
+        infos.put("Impl", new ClassDependencies.Info("Impl", "java.lang.Object", List.of("Api"),
+                Set.of("Impl", "Api"), "", false));
+        source("Lone.java", "Lone", "java.lang.Object");
+
+        assertEquals(Set.of("Api.java", "Impl.java"),
+                ProjectWorkspaces.affectedSources(classesBySource, infos, Set.of("Api.java"), Set.of()));
+    }
+
+    @Test
+    void rebuildsUsersOfARemovedSource() {
+        source("Gone.java", "Gone", "java.lang.Object");
+        source("Caller.java", "Caller", "java.lang.Object", "Gone");
+        source("Other.java", "Other", "java.lang.Object");
+
+        assertEquals(Set.of("Caller.java"),
+                ProjectWorkspaces.affectedSources(classesBySource, infos, Set.of(), Set.of("Gone.java")));
+    }
+
+    @Test
+    void leavesUnrelatedSourcesAlone() {
+        source("A.java", "A", "java.lang.Object");
+        source("B.java", "B", "java.lang.Object", "A");
+
+        assertEquals(Set.of("B.java"),
+                ProjectWorkspaces.affectedSources(classesBySource, infos, Set.of("B.java"), Set.of()));
+    }
+
+    @Test
+    void readsProjectHeadersFromAMakeRule() {
+        Path src = Path.of("/ws/src");
+        Map<String, String> hashes = Map.of("main.c", "m1", "util.h", "u1", "lib/x.h", "x1", "other.c", "o1");
+        String rule = "/ws/obj/main.c.o: main.c util.h \\\n /usr/include/stdio.h lib/../lib/x.h\n";
+
+        assertEquals(Map.of("main.c", "m1", "util.h", "u1", "lib/x.h", "x1"),
+                ProjectWorkspaces.dependencies(rule, src, hashes, "main.c"));
+        assertEquals(Map.of("other.c", "o1"), ProjectWorkspaces.dependencies("", src, hashes, "other.c"));
+    }
+
+    @Test
+    void changedHeaderMakesItsIncludersStale() {
+        Path src = Path.of("/ws/src");
+        Map<String, String> before = Map.of("main.c", "m1", "util.c", "c1", "util.h", "u1");
+        Map<String, String> mainDeps = ProjectWorkspaces.dependencies("main.o: main.c util.h\n", src, before, "main.c");
+        Map<String, String> utilDeps = ProjectWorkspaces.dependencies("util.o: util.c\n", src, before, "util.c");
+        assertFalse(ProjectWorkspaces.isStale(mainDeps, before));
+
+        Map<String, String> after = Map.of("main.c", "m1", "util.c", "c1", "util.h", "u2");
+        assertTrue(ProjectWorkspaces.isStale(mainDeps, after));
+        assertFalse(ProjectWorkspaces.isStale(utilDeps, after));
+        assertTrue(ProjectWorkspaces.isStale(null, after));
+
+        Map<String, String> headerRemoved = Map.of("main.c", "m1", "util.c", "c1");
+        assertTrue(ProjectWorkspaces.isStale(mainDeps, headerRemoved));
+    }
+}
@@ -0,0 +1,94 @@
+package com.aidebugger.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunResultCacheTest {
+
+    @Test
+    void plainProgramsAreDeterministic() {
+        assertTrue(RunResultCache.isDeterministic("c",
+                "#include <stdio.h>\nint main() { int n; scanf(\"%d\", &n); printf(\"%d\\n\", n * 2); }"));
+        assertTrue(RunResultCache.isDeterministic("java",
+                "import java.util.*;\npublic class Main { public static void main(String[] a) {"
+                        + " List<Integer> l = new ArrayList<>(List.of(3, 1, 2)); Collections.sort(l); System.out.println(l); } }"));
+        assertTrue(RunResultCache.isDeterministic("python",
+                "import math\nn = int(input())\nprint(sorted([n, 1, 2]), math.sqrt(n))"));
+    }
+
+    @Test
+    void clocksAndRandomnessAreNot() {
+        assertFalse(RunResultCache.isDeterministic("c", "int main() { srand(time(NULL)); return rand() % 2; }"));
+        assertFalse(RunResultCache.isDeterministic("c", "int main() { int x; printf(\"%p\\n\", &x); }"));
+        assertFalse(RunResultCache.isDeterministic("java", "class Main { void f() { long t = System.nanoTime(); } }"));
+        assertFalse(RunResultCache.isDeterministic("java", "class Main { void f() { double d = Math.random(); } }"));
+        assertFalse(RunResultCache.isDeterministic("java", "class Main { void f() { new Thread(() -> {}).start(); } }"));
+        assertFalse(RunResultCache.isDeterministic("python", "import random\nprint(random.randint(1, 6))"));
+        assertFalse(RunResultCache.isDeterministic("python", "from time import time\nprint(time())"));
+        assertFalse(RunResultCache.isDeterministic("python", "print(set(['a', 'b', 'c']))"));
+    }
+
+    @Test
+    void shuffleIsNot() {
+        assertFalse(RunResultCache.isDeterministic("java",
+                "import java.util.*;\nclass Main { void f(List<Integer> l) { Collections.shuffle(l); } }"));
+    }
+
+    @Test
+    void identityHashesAreNot() {
+        assertFalse(RunResultCache.isDeterministic("java",
+                "class Main { public static void main(String[] a) { System.out.println(new Object().hashCode()); } }"));
+        assertFalse(RunResultCache.isDeterministic("java",
+                "class Main { public static void main(String[] a) { System.out.println(System.identityHashCode(a)); } }"));
+        assertFalse(RunResultCache.isDeterministic("java",
+                "enum Color { RED, GREEN }\nclass Main { public static void main(String[] a) { System.out.println(Color.RED.hashCode()); } }"));
+        // iteration order of a HashSet of objects without hashCode follows their identity hashes
+        assertFalse(RunResultCache.isDeterministic("java",
+                "import java.util.*;\nclass Point { int x; Point(int x) { this.x = x; } }\n"
+                        + "class Main { public static void main(String[] a) { Set<Point> s = new HashSet<>();"
+                        + " s.add(new Point(1)); s.add(new Point(2)); for (Point p : s) System.out.println(p.x); } }"));
+        assertFalse(RunResultCache.isDeterministic("java",
+                "class Node { int v; public int hashCode() { return 31 * super.hashCode() + v; } }\n"
+                        + "class Main { public static void main(String[] a) { System.out.println(new Node().hashCode()); } }"));
+    }
+
+    @Test
+    void valueHashesAre() {
+        assertTrue(RunResultCache.isDeterministic("java",
+                "class Main { public static void main(String[] a) { System.out.println(\"abc\".hashCode() + Integer.valueOf(7).hashCode()); } }"));
+        assertTrue(RunResultCache.isDeterministic("java",
+                "import java.util.*;\nclass Main { public static void main(String[] a) {"
+                        + " Map<String, Integer> m = new HashMap<>(); m.put(\"x\", 1); System.out.println(m); } }"));
+        assertTrue(RunResultCache.isDeterministic("java",
+                "import java.util.*;\nclass Point { final int x; Point(int x) { this.x = x; }\n"
+                        + "  @Override public boolean equals(Object o) { return o instanceof Point p && p.x == x; }\n"
+                        + "  @Override public int hashCode() { return Integer.hashCode(x); } }\n"
+                        + "class Main { public static void main(String[] a) { Set<Point> s = new HashSet<>();"
+                        + " s.add(new Point(1)); System.out.println(s.size() + new Point(2).hashCode()); } }"));
+        // a class that is declared but never instantiated has no identity hash to leak
+        assertTrue(RunResultCache.isDeterministic("java",
+                "class Main { public static void main(String[] a) { System.out.println(a.length + \"hashCode()\".hashCode()); } }"));
+    }
+
+    @Test
+    void unknownLanguagesAreNeverCached() {
+        assertFalse(RunResultCache.isDeterministic("rust", "fn main() { println!(\"hi\"); }"));
+    }
+
+    @Test
+    void identityHashesAndPointersAreUnstable() {
+        assertTrue(RunResultCache.unstableOutput("[I@1b6d3586\n"));
+        assertTrue(RunResultCache.unstableOutput("Node@7852e922 -> Node@4e25154f"));
+        assertTrue(RunResultCache.unstableOutput("address 0x7ffd5e8c1a2c\n"));
+    }
+
+    @Test
+    void ordinaryOutputIsStable() {
+        assertFalse(RunResultCache.unstableOutput(null));
+        assertFalse(RunResultCache.unstableOutput("42\nhello world\n"));
+        assertFalse(RunResultCache.unstableOutput("mail me at someone@example.com"));
+        assertFalse(RunResultCache.unstableOutput("0x1F"));
+    }
+}
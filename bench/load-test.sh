@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Offline load test: starts the Gemini stub and the backend on this machine, runs LoadTest
+# against them, and stops both. Arguments are passed to LoadTest (e.g. --duration-s=120 --rate=20).
+#
+# Environment:
+#   APP_PORT, STUB_PORT            ports for the backend and the stub (8080, 8099)
+#   STUB_ARGS                      e.g. "--latency-ms=1200 --jitter-ms=800 --error-rate=0.05"
+#   BACKEND_ARGS                   extra backend properties, e.g. "--executor.python-pool.enabled=true"
+#   MVN_FLAGS                      set to -o once dependencies are in ~/.m2 to build without network
+#   SKIP_BUILD=1                   reuse the jars from the last build
+set -euo pipefail
+
+BENCH_DIR="$(cd "$(dirname "$0")" && pwd)"
+BACKEND_DIR="$BENCH_DIR/../backend"
+APP_PORT="${APP_PORT:-8080}"
+STUB_PORT="${STUB_PORT:-8099}"
+
+if [ -z "${SKIP_BUILD:-}" ]; then
+    mvn -B -q ${MVN_FLAGS:-} -f "$BACKEND_DIR/pom.xml" install -DskipTests
+    mvn -B -q ${MVN_FLAGS:-} -f "$BENCH_DIR/pom.xml" package
+fi
+
+# the backend reads its key from ./.env; the stub accepts any key
+WORK_DIR="$(mktemp -d)"
+printf 'GEMINI_API_KEY=offline-load-test\nGEMINI_MODEL=stub-model\n' > "$WORK_DIR/.env"
+
+STUB_PID=""
+APP_PID=""
+cleanup() {
+    [ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null && wait "$APP_PID" 2>/dev/null || true
+    [ -n "$STUB_PID" ] && kill "$STUB_PID" 2>/dev/null && wait "$STUB_PID" 2>/dev/null || true
+    rm -rf "$WORK_DIR"
+}
+trap cleanup EXIT
+
+java -cp "$BENCH_DIR/target/benchmarks.jar" com.aidebugger.bench.GeminiStub --port="$STUB_PORT" ${STUB_ARGS:-} \
+    > "$BENCH_DIR/target/gemini-stub.log" 2>&1 &
+STUB_PID=$!
+
+# the stub is not rate limited, so lift the client-side Gemini limit to measure the backend itself;
+# every virtual user comes from this host, whose queued runs the scheduler caps per address
+(cd "$WORK_DIR" && exec java -jar "$BACKEND_DIR"/target/ai-debugger-backend-*-exec.jar \
+    --server.port="$APP_PORT" \
+    --executor.scheduler.max-queued-per-address=1000 \
+    --gemini.base-url="http://127.0.0.1:$STUB_PORT/v1beta/models" \
+    --gemini.client.requests-per-minute=100000 \
+    --gemini.client.burst=1000 \
+    ${BACKEND_ARGS:-}) > "$BENCH_DIR/target/backend.log" 2>&1 &
+APP_PID=$!
+
+for _ in $(seq 120); do
+    if curl -sf "http://127.0.0.1:$APP_PORT/actuator/health" > /dev/null; then break; fi
+    if ! kill -0 "$APP_PID" 2>/dev/null; then
+        echo "Backend exited during startup; see $BENCH_DIR/target/backend.log" >&2
+        exit 1
+    fi
+    sleep 0.5
+done
+
+java -cp "$BENCH_DIR/target/benchmarks.jar" com.aidebugger.bench.LoadTest --url="http://127.0.0.1:$APP_PORT" "$@"
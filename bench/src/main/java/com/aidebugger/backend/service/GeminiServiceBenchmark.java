@@ -0,0 +1,103 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.backend.model.CodeRequest;
+import com.aidebugger.bench.Submissions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gemini request and response handling outside the network call: building the prompt (with
+ * and without compaction to the token budget) and pulling the answer text out of a
+ * {@code generateContent} response, both from the decoded map and including the JSON decode.
+ * The services are wired by hand with their default settings, without a Spring context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeminiServiceBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private GeminiService geminiService;
+    private CodeRequest smallRequest;
+    private CodeRequest largeRequest;
+    private String responseJson;
+    private Map<?, ?> response;
+
+    @Setup
+    public void setUp() throws Exception {
+        PromptCompactor compactor = new PromptCompactor();
+        set(compactor, "maxTokens", 12000);
+        set(compactor, "charsPerToken", 3.5);
+        set(compactor, "contextLines", 8);
+        set(compactor, "descriptionShare", 0.3);
+        geminiService = new GeminiService();
+        set(geminiService, "promptCompactor", compactor);
+
+        Submissions.Submission sample = Submissions.get("Inventory.java");
+        smallRequest = request(sample.getCode(), sample.getDescription()
+                + "\n\nRun output:\napples left: 2\nException in thread \"main\" java.lang.NullPointerException\n"
+                + "\tat Inventory.remove(Inventory.java:12)\n\tat Inventory.main(Inventory.java:22)\n");
+
+        // a long program and a run that printed the same line thousands of times before failing
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 150; i++) code.append(sample.getCode().replace("Inventory", "Inventory" + i));
+        StringBuilder output = new StringBuilder("Track stock for every store.\n\nRun output:\n");
+        for (int i = 0; i < 5000; i++) output.append("restocking...\n");
+        for (int i = 0; i < 400; i++) output.append("apples left in store ").append(i).append(": ").append(i % 7).append('\n');
+        output.append("Exception in thread \"main\" java.lang.NullPointerException\n\tat Inventory42.remove(Main.java:1520)\n");
+        largeRequest = request(code.toString(), output.toString());
+
+        String answer = "The crash happens because `stock.get(item)` returns null for an item that was never added, "
+                + "and unboxing null throws a NullPointerException.\n\n```java\n"
+                + sample.getCode().replace("stock.get(item) - qty", "stock.getOrDefault(item, 0) - qty") + "```\n";
+        responseJson = mapper.writeValueAsString(Map.of(
+                "candidates", List.of(Map.of(
+                        "content", Map.of("parts", List.of(Map.of("text", answer)), "role", "model"),
+                        "finishReason", "STOP")),
+                "usageMetadata", Map.of("promptTokenCount", 612, "candidatesTokenCount", 388)));
+        response = mapper.readValue(responseJson, Map.class);
+    }
+
+    @Benchmark
+    public String buildPromptSmall() {
+        return geminiService.buildPrompt(smallRequest);
+    }
+
+    @Benchmark
+    public String buildPromptCompacted() {
+        return geminiService.buildPrompt(largeRequest);
+    }
+
+    @Benchmark
+    public String extractTextFromResponse() {
+        return GeminiService.extractTextFromResponse(response);
+    }
+
+    @Benchmark
+    public String decodeAndExtractText() throws Exception {
+        return GeminiService.extractTextFromResponse(mapper.readValue(responseJson, Map.class));
+    }
+
+    private static CodeRequest request(String code, String description) {
+        CodeRequest r = new CodeRequest();
+        r.setLanguage("java");
+        r.setCode(code);
+        r.setDescription(description);
+        return r;
+    }
+
+    private static void set(Object target, String field, Object value) throws ReflectiveOperationException {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
@@ -0,0 +1,63 @@
+package com.aidebugger.backend.service;
+
+import com.aidebugger.bench.Submissions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request string work in {@link LocalExecutorService}: finding the class to run in a
+ * Java submission, and truncating compiler diagnostics. The large source has the public class
+ * after a few hundred lines of helpers, which is where the regex scan costs the most.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalExecutorBenchmark {
+
+    private String smallSource;
+    private String largeSource;
+    private String shortDiagnostics;
+    private String longDiagnostics;
+
+    @Setup
+    public void setUp() {
+        smallSource = Submissions.get("Grades.java").getCode();
+        StringBuilder helpers = new StringBuilder("import java.util.*;\n\n");
+        for (int i = 0; i < 60; i++) {
+            helpers.append("class Helper").append(i).append(" {\n")
+                    .append("    static int apply(int x) {\n")
+                    .append("        return x * ").append(i).append(" + 1; // not a public class\n")
+                    .append("    }\n}\n\n");
+        }
+        largeSource = helpers + smallSource.substring(smallSource.indexOf("public class"));
+
+        shortDiagnostics = "Main.java:3: error: ';' expected\n        int x = 1\n                 ^\n1 error\n";
+        StringBuilder many = new StringBuilder();
+        while (many.length() < 200_000) many.append(shortDiagnostics);
+        longDiagnostics = many.toString();
+    }
+
+    @Benchmark
+    public String extractPublicClassNameSmall() {
+        return LocalExecutorService.extractPublicClassName(smallSource);
+    }
+
+    @Benchmark
+    public String extractPublicClassNameLarge() {
+        return LocalExecutorService.extractPublicClassName(largeSource);
+    }
+
+    @Benchmark
+    public String truncateShort() {
+        return LocalExecutorService.truncate(shortDiagnostics);
+    }
+
+    @Benchmark
+    public String truncateLong() {
+        return LocalExecutorService.truncate(longDiagnostics);
+    }
+}
@@ -0,0 +1,61 @@
+package com.aidebugger.backend.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output capture, which replaced the old line-by-line {@code readStream}: one pipe's worth of
+ * output pushed through {@link OutputBuffer} (and, for streaming runs, the UTF-8 forwarder) in
+ * the 64 KiB chunks {@link OutputCapture} reads, then rendered as the response string.
+ * Sizes cover a typical short run, one chunk, and a chatty program far past the capture limit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputCaptureBenchmark {
+
+    // LocalExecutorService keeps 16000 + 4000 bytes of each stream
+    private static final int HEAD_BYTES = 16000;
+    private static final int TAIL_BYTES = 4000;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    @Param({ "1024", "65536", "4194304" })
+    public int outputBytes;
+
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        // mixed ASCII and multi-byte text, like printed results with the odd accented name
+        byte[] line = "value[42] = 3.14159 résumé ✓\n".getBytes(StandardCharsets.UTF_8);
+        output = new byte[outputBytes];
+        for (int i = 0; i < outputBytes; i++) output[i] = line[i % line.length];
+    }
+
+    @Benchmark
+    public String capture() {
+        OutputBuffer buffer = new OutputBuffer(HEAD_BYTES, TAIL_BYTES);
+        for (int off = 0; off < output.length; off += CHUNK_BYTES) {
+            buffer.write(output, off, Math.min(CHUNK_BYTES, output.length - off));
+        }
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String captureAndForward(Blackhole bh) {
+        OutputBuffer buffer = new OutputBuffer(HEAD_BYTES, TAIL_BYTES);
+        OutputCapture.Forwarder forwarder = new OutputCapture.Forwarder((stderr, text) -> bh.consume(text), false, HEAD_BYTES);
+        for (int off = 0; off < output.length; off += CHUNK_BYTES) {
+            int n = Math.min(CHUNK_BYTES, output.length - off);
+            forwarder.accept(output, off, n, buffer.size());
+            buffer.write(output, off, n);
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.aidebugger.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@code --key=value} command-line options. */
+final class Args {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Args(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+    }
+
+    String get(String key, String def) {
+        return values.getOrDefault(key, def);
+    }
+
+    int getInt(String key, int def) {
+        String v = values.get(key);
+        return v == null ? def : Integer.parseInt(v);
+    }
+
+    long getLong(String key, long def) {
+        String v = values.get(key);
+        return v == null ? def : Long.parseLong(v);
+    }
+
+    double getDouble(String key, double def) {
+        String v = values.get(key);
+        return v == null ? def : Double.parseDouble(v);
+    }
+}
@@ -0,0 +1,174 @@
+package com.aidebugger.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Gemini {@code generateContent} and {@code streamGenerateContent?alt=sse}
+ * endpoints, so the load test needs no network or API key. Point the backend at it with
+ * {@code --gemini.base-url=http://127.0.0.1:<port>/v1beta/models}.
+ *
+ * The answer is a short explanation plus the submitted code in a fenced block, which is the
+ * shape the backend parses. Latency is {@code latency-ms} plus a uniform {@code jitter-ms}; a
+ * share of requests fails with 503 ({@code error-rate}) or 429 ({@code throttle-rate}) so the
+ * client's retries and circuit breaker are exercised. Streamed answers are sent in
+ * {@code stream-chunks} events spread over the same latency.
+ *
+ * <pre>java -cp target/benchmarks.jar com.aidebugger.bench.GeminiStub --port=8099 --latency-ms=800</pre>
+ */
+public class GeminiStub {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CODE_START = "Original code:\n```\n";
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final double throttleRate;
+    private final int streamChunks;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public GeminiStub(long latencyMs, long jitterMs, double errorRate, double throttleRate, int streamChunks) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.streamChunks = Math.max(1, streamChunks);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Args a = new Args(args);
+        GeminiStub stub = new GeminiStub(a.getLong("latency-ms", 800), a.getLong("jitter-ms", 400),
+                a.getDouble("error-rate", 0.0), a.getDouble("throttle-rate", 0.0), a.getInt("stream-chunks", 8));
+        int port = stub.start(a.get("host", "127.0.0.1"), a.getInt("port", 8099));
+        System.out.println("Gemini stub listening on port " + port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Gemini stub served " + stub.requests.get() + " requests, "
+                    + stub.injectedErrors.get() + " injected errors");
+            stub.stop();
+        }));
+    }
+
+    /** Starts serving; returns the bound port, which is useful with port 0. */
+    public int start(String host, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 256);
+        // requests mostly sleep, so one thread each
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "gemini-stub");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            if (!"POST".equals(exchange.getRequestMethod()) || !path.contains(":")) {
+                send(exchange, 404, "application/json", "{\"error\":{\"code\":404,\"message\":\"not found\"}}");
+                return;
+            }
+
+            long latency = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < errorRate + throttleRate) {
+                injectedErrors.incrementAndGet();
+                sleep(latency / 4);
+                boolean throttled = roll >= errorRate;
+                send(exchange, throttled ? 429 : 503, "application/json", throttled
+                        ? "{\"error\":{\"code\":429,\"message\":\"Resource has been exhausted\",\"status\":\"RESOURCE_EXHAUSTED\"}}"
+                        : "{\"error\":{\"code\":503,\"message\":\"The model is overloaded\",\"status\":\"UNAVAILABLE\"}}");
+                return;
+            }
+
+            String answer = answer(promptText(body));
+            if (path.endsWith(":streamGenerateContent")) {
+                stream(exchange, answer, latency);
+            } else {
+                sleep(latency);
+                send(exchange, 200, "application/json", MAPPER.writeValueAsString(response(answer)));
+            }
+        }
+    }
+
+    private void stream(HttpExchange exchange, String answer, long latency) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int size = (answer.length() + streamChunks - 1) / streamChunks;
+        for (int i = 0; i < streamChunks && i * size < answer.length(); i++) {
+            sleep(latency / streamChunks);
+            String chunk = answer.substring(i * size, Math.min(answer.length(), (i + 1) * size));
+            out.write(("data: " + MAPPER.writeValueAsString(response(chunk)) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private static Map<String, Object> response(String text) {
+        return Map.of("candidates", List.of(Map.of(
+                "content", Map.of("parts", List.of(Map.of("text", text)), "role", "model"),
+                "finishReason", "STOP")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String promptText(byte[] body) {
+        try {
+            Map<String, Object> request = MAPPER.readValue(body, Map.class);
+            Map<String, Object> content = ((List<Map<String, Object>>) request.get("contents")).get(0);
+            return (String) ((List<Map<String, Object>>) content.get("parts")).get(0).get("text");
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /** Explanation plus the code from the prompt, so fix verification has something to run. */
+    private static String answer(String prompt) {
+        int start = prompt.indexOf(CODE_START);
+        int end = start < 0 ? -1 : prompt.indexOf("\n```", start + CODE_START.length());
+        String code = end < 0 ? "" : prompt.substring(start + CODE_START.length(), end);
+        return "The program fails on the path the description exercises: a value is used before it is checked. "
+                + "Guard the lookup and handle the empty case explicitly.\n\n```\n" + code + "\n```\n";
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,328 @@
+package com.aidebugger.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the REST API with a weighted mix of sample submissions and reports throughput and
+ * latency percentiles per scenario.
+ *
+ * Scenarios: {@code run-c}, {@code run-java}, {@code run-python} ({@code /api/run}),
+ * {@code ai-debug} ({@code /api/ai-debug}) and {@code ai-stream} ({@code /api/ai-debug/stream},
+ * also reported as {@code ai-stream:first-event}). With {@code --rate} requests are started on a
+ * fixed schedule and latency is measured from the scheduled start, so a stalled server shows up
+ * in the percentiles instead of slowing the load down; without it, {@code --concurrency}
+ * virtual users send back to back. Requests carry no client token, so the backend counts each
+ * one as a new client, but all of them come from one address; raise
+ * {@code executor.scheduler.max-queued-per-address} on the backend under test to at least the
+ * concurrency. A share of AI requests
+ * ({@code --ai-unique}) gets a unique comment appended, so the answer cache sees misses too.
+ *
+ * <pre>java -cp target/benchmarks.jar com.aidebugger.bench.LoadTest --url=http://127.0.0.1:8080 \
+ *     --duration-s=60 --warmup-s=10 --concurrency=8 --mix=run-c:3,run-java:3,run-python:4,ai-debug:1</pre>
+ */
+public class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String FIRST_EVENT = ":first-event";
+
+    private final String url;
+    private final Map<String, Integer> mix;
+    private final double aiUnique;
+    private final Duration timeout;
+    private final HttpClient http;
+    private final Map<String, Recorder> recorders = new ConcurrentSkipListMap<>();
+    private final AtomicLong nonce = new AtomicLong();
+    private volatile long recordFrom;
+
+    LoadTest(String url, Map<String, Integer> mix, double aiUnique, Duration timeout) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.mix = mix;
+        this.aiUnique = aiUnique;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool(daemon("load-http")))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Args a = new Args(args);
+        LoadTest test = new LoadTest(a.get("url", "http://127.0.0.1:8080"),
+                parseMix(a.get("mix", "run-c:3,run-java:3,run-python:4,ai-debug:1,ai-stream:1")),
+                a.getDouble("ai-unique", 0.5), Duration.ofSeconds(a.getLong("timeout-s", 60)));
+        long warmup = TimeUnit.SECONDS.toNanos(a.getLong("warmup-s", 10));
+        long duration = TimeUnit.SECONDS.toNanos(a.getLong("duration-s", 60));
+        int concurrency = a.getInt("concurrency", 8);
+        double rate = a.getDouble("rate", 0);
+        long seed = a.getLong("seed", 1);
+
+        System.out.printf("Load test against %s: %s, %s, warm-up %ds, measured %ds%n", test.url, test.mix,
+                rate > 0 ? rate + " req/s" : concurrency + " virtual users",
+                TimeUnit.NANOSECONDS.toSeconds(warmup), TimeUnit.NANOSECONDS.toSeconds(duration));
+        long measured = rate > 0
+                ? test.openLoop(rate, warmup, duration, seed)
+                : test.closedLoop(concurrency, warmup, duration, seed);
+        test.report(measured);
+    }
+
+    /** Virtual users that each send the next request as soon as the previous one is answered. */
+    long closedLoop(int users, long warmupNanos, long durationNanos, long seed) throws InterruptedException {
+        long start = System.nanoTime();
+        recordFrom = start + warmupNanos;
+        long end = recordFrom + durationNanos;
+        ExecutorService pool = Executors.newFixedThreadPool(users, daemon("load-user"));
+        for (int u = 0; u < users; u++) {
+            Random random = new Random(seed + u);
+            pool.execute(() -> {
+                while (System.nanoTime() < end) {
+                    send(pick(random), random, System.nanoTime());
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(durationNanos + warmupNanos + timeout.toNanos(), TimeUnit.NANOSECONDS);
+        return System.nanoTime() - recordFrom;
+    }
+
+    /**
+     * Requests started every {@code 1/rate} seconds whether or not earlier ones have finished;
+     * latency includes time spent waiting to be sent.
+     */
+    long openLoop(double rate, long warmupNanos, long durationNanos, long seed) throws InterruptedException {
+        long start = System.nanoTime();
+        recordFrom = start + warmupNanos;
+        long end = recordFrom + durationNanos;
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        Random random = new Random(seed);
+        ExecutorService pool = Executors.newCachedThreadPool(daemon("load-request"));
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * interval;
+            if (scheduled >= end) break;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            String scenario = pick(random);
+            Random requestRandom = new Random(random.nextLong());
+            pool.execute(() -> send(scenario, requestRandom, scheduled));
+        }
+        pool.shutdown();
+        pool.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        return Math.min(System.nanoTime(), end) - recordFrom;
+    }
+
+    private String pick(Random random) {
+        int total = 0;
+        for (int w : mix.values()) total += w;
+        int r = random.nextInt(total);
+        for (Map.Entry<String, Integer> e : mix.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) return e.getKey();
+        }
+        throw new IllegalStateException();
+    }
+
+    private void send(String scenario, Random random, long scheduled) {
+        String failure;
+        long firstEvent = -1;
+        try {
+            switch (scenario) {
+                case "run-c":
+                case "run-java":
+                case "run-python": {
+                    List<Submissions.Submission> samples = Submissions.of(scenario.substring(4));
+                    Submissions.Submission s = samples.get(random.nextInt(samples.size()));
+                    HttpResponse<String> resp = http.send(post("/api/run", body(s, s.getCode(), false)),
+                            HttpResponse.BodyHandlers.ofString());
+                    failure = resp.statusCode() == 200 ? null : "HTTP " + resp.statusCode();
+                    break;
+                }
+                case "ai-debug": {
+                    Submissions.Submission s = aiSample(random);
+                    HttpResponse<String> resp = http.send(post("/api/ai-debug", body(s, aiCode(s, random), true)),
+                            HttpResponse.BodyHandlers.ofString());
+                    failure = resp.statusCode() == 200 ? aiFailure(resp.body()) : "HTTP " + resp.statusCode();
+                    break;
+                }
+                case "ai-stream": {
+                    Submissions.Submission s = aiSample(random);
+                    HttpResponse<InputStream> resp = http.send(post("/api/ai-debug/stream", body(s, aiCode(s, random), true)),
+                            HttpResponse.BodyHandlers.ofInputStream());
+                    String result = null;
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(resp.body(), StandardCharsets.UTF_8))) {
+                        String line;
+                        boolean resultEvent = false;
+                        while ((line = reader.readLine()) != null) {
+                            if (firstEvent < 0 && line.startsWith("event:")) firstEvent = System.nanoTime();
+                            if (line.startsWith("event:")) resultEvent = line.substring(6).trim().equals("result");
+                            else if (resultEvent && line.startsWith("data:")) result = line.substring(5);
+                        }
+                    }
+                    if (resp.statusCode() != 200) failure = "HTTP " + resp.statusCode();
+                    else failure = result == null ? "no result event" : aiFailure(result);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown scenario " + scenario);
+            }
+        } catch (java.net.http.HttpTimeoutException e) {
+            failure = "timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            failure = e.getClass().getSimpleName();
+        }
+        long done = System.nanoTime();
+        if (scheduled < recordFrom) return;
+        recorder(scenario).record(done - scheduled, failure);
+        if (firstEvent >= 0) recorder(scenario + FIRST_EVENT).record(firstEvent - scheduled, null);
+    }
+
+    private Submissions.Submission aiSample(Random random) {
+        List<Submissions.Submission> all = Submissions.all();
+        return all.get(random.nextInt(all.size()));
+    }
+
+    private String aiCode(Submissions.Submission s, Random random) {
+        if (random.nextDouble() >= aiUnique) return s.getCode();
+        String comment = s.getLanguage().equals("python") ? "# " : "// ";
+        return s.getCode() + "\n" + comment + "revision " + nonce.incrementAndGet() + "\n";
+    }
+
+    /** The backend answered, but the answer is a Gemini or server failure rather than advice. */
+    private static String aiFailure(String json) {
+        try {
+            JsonNode node = MAPPER.readTree(json);
+            String error = node.path("error").asText("");
+            if (error.startsWith("Gemini") || error.startsWith("Server error")) return "gemini error";
+            if (error.startsWith("Too many pending") || error.contains("runners are busy")
+                    || error.startsWith("Timed out waiting for a free")) return "rejected";
+            if (node.path("explanation").asText("").startsWith("AI did not return")) return "no AI answer";
+            return null;
+        } catch (Exception e) {
+            return "bad response";
+        }
+    }
+
+    private String body(Submissions.Submission s, String code, boolean ai) throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("language", s.getLanguage());
+        body.put("code", code);
+        body.put("input", s.getInput());
+        if (ai) body.put("description", s.getDescription());
+        return MAPPER.writeValueAsString(body);
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private Recorder recorder(String scenario) {
+        return recorders.computeIfAbsent(scenario, k -> new Recorder());
+    }
+
+    void report(long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        System.out.printf("%n%-22s %8s %7s %8s %9s %9s %9s %9s%n",
+                "scenario", "requests", "failed", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Recorder all = new Recorder();
+        recorders.forEach((scenario, r) -> {
+            print(scenario, r, seconds);
+            if (!scenario.endsWith(FIRST_EVENT)) all.addAll(r);
+        });
+        print("total", all, seconds);
+        recorders.forEach((scenario, r) -> r.failures.forEach((reason, n) ->
+                System.out.printf("  %s: %d x %s%n", scenario, n, reason)));
+        if (all.count() < 1000) {
+            System.out.println("(fewer than 1000 requests: p999 is the maximum; run longer for a meaningful tail)");
+        }
+    }
+
+    private static void print(String name, Recorder r, double seconds) {
+        long[] sorted = r.sorted();
+        System.out.printf("%-22s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f%n", name, sorted.length, r.failed(),
+                sorted.length / seconds, millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999),
+                sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    /** Nearest-rank percentile in milliseconds. */
+    static double millis(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+    }
+
+    static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1]) : 1;
+            if (weight > 0) mix.put(kv[0], weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("Empty --mix");
+        return mix;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Latencies and failure reasons of one scenario. */
+    static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<String, Integer> failures = new TreeMap<>();
+
+        synchronized void record(long nanos, String failure) {
+            if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+            if (failure != null) failures.merge(failure, 1, Integer::sum);
+        }
+
+        synchronized void addAll(Recorder other) {
+            long[] theirs = other.sorted();
+            for (long l : theirs) record(l, null);
+            synchronized (other) {
+                other.failures.forEach((reason, n) -> failures.merge(reason, n, Integer::sum));
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized int failed() {
+            int n = 0;
+            for (int f : failures.values()) n += f;
+            return n;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.aidebugger.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Sample programs under {@code submissions/}, the kind students send: programs that work, ones
+ * that burn some CPU, compile errors, and crashes. A {@code <file>.in} next to a program is its
+ * stdin. The description is what a student would type into the AI Debug box.
+ */
+public final class Submissions {
+
+    public static final class Submission {
+        private final String file;
+        private final String language;
+        private final String code;
+        private final String input;
+        private final String description;
+
+        Submission(String file, String language, String code, String input, String description) {
+            this.file = file;
+            this.language = language;
+            this.code = code;
+            this.input = input;
+            this.description = description;
+        }
+
+        public String getFile() { return file; }
+        public String getLanguage() { return language; }
+        public String getCode() { return code; }
+        public String getInput() { return input; }
+        public String getDescription() { return description; }
+    }
+
+    private static final List<Submission> ALL = List.of(
+            load("sum.c", "Read n and then n integers; print their sum and average."),
+            load("sieve.c", "Count the primes up to two million with a sieve."),
+            load("missing_semicolon.c", "Print 5 factorial."),
+            load("null_deref.c", "Build a small linked list and print every value."),
+            load("Grades.java", "Sort students by score, best first, and print each one's letter grade."),
+            load("Collatz.java", "Find the start below 300000 with the longest Collatz chain."),
+            load("TypeMismatch.java", "Read a count and that many numbers, then print the total."),
+            load("Inventory.java", "Track stock per item and report what is left after removing some."),
+            load("wordfreq.py", "Print the five most common words in the input and the number of distinct words."),
+            load("knapsack.py", "Solve a 0/1 knapsack for 120 random items and capacity 500."),
+            load("indentation.py", "Print the average of a list."),
+            load("off_by_one.py", "Print the second largest distinct value; it should say when there is none."));
+
+    private Submissions() {
+    }
+
+    public static List<Submission> all() {
+        return ALL;
+    }
+
+    public static List<Submission> of(String language) {
+        return ALL.stream().filter(s -> s.language.equals(language)).collect(Collectors.toList());
+    }
+
+    public static Submission get(String file) {
+        for (Submission s : ALL) {
+            if (s.file.equals(file)) return s;
+        }
+        throw new IllegalArgumentException("No sample submission " + file);
+    }
+
+    private static Submission load(String file, String description) {
+        String language = file.endsWith(".c") ? "c" : file.endsWith(".java") ? "java" : "python";
+        String code = read(file);
+        if (code == null) throw new IllegalStateException("Missing sample submission " + file);
+        String input = read(file + ".in");
+        return new Submission(file, language, code, input == null ? "" : input, description);
+    }
+
+    private static String read(String name) {
+        try (InputStream is = Submissions.class.getResourceAsStream("/submissions/" + name)) {
+            return is == null ? null : new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+public class Collatz {
+    public static void main(String[] args) {
+        int best = 1;
+        int bestSteps = 0;
+        for (int start = 1; start < 300000; start++) {
+            long x = start;
+            int steps = 0;
+            while (x != 1) {
+                x = (x % 2 == 0) ? x / 2 : 3 * x + 1;
+                steps++;
+            }
+            if (steps > bestSteps) {
+                bestSteps = steps;
+                best = start;
+            }
+        }
+        System.out.println("Longest chain below 300000 starts at " + best + " (" + bestSteps + " steps)");
+    }
+}
@@ -0,0 +1,33 @@
+import java.util.*;
+
+public class Grades {
+    public static void main(String[] args) {
+        Scanner in = new Scanner(System.in);
+        int n = in.nextInt();
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            students.add(new Student(in.next(), in.nextInt()));
+        }
+        students.sort(Comparator.comparingInt((Student s) -> s.score).reversed().thenComparing(s -> s.name));
+        for (Student s : students) {
+            System.out.printf("%-8s %3d %s%n", s.name, s.score, s.grade());
+        }
+    }
+}
+
+class Student {
+    final String name;
+    final int score;
+
+    Student(String name, int score) {
+        this.name = name;
+        this.score = score;
+    }
+
+    String grade() {
+        if (score >= 90) return "A";
+        if (score >= 80) return "B";
+        if (score >= 70) return "C";
+        return "F";
+    }
+}
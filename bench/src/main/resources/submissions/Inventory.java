@@ -0,0 +1,24 @@
+import java.util.HashMap;
+import java.util.Map;
+
+public class Inventory {
+    private final Map<String, Integer> stock = new HashMap<>();
+
+    void add(String item, int qty) {
+        stock.merge(item, qty, Integer::sum);
+    }
+
+    int remove(String item, int qty) {
+        int left = stock.get(item) - qty;
+        stock.put(item, left);
+        return left;
+    }
+
+    public static void main(String[] args) {
+        Inventory inv = new Inventory();
+        inv.add("apple", 5);
+        inv.add("pear", 2);
+        System.out.println("apples left: " + inv.remove("apple", 3));
+        System.out.println("plums left: " + inv.remove("plum", 1));
+    }
+}
@@ -0,0 +1,13 @@
+import java.util.Scanner;
+
+public class TypeMismatch {
+    public static void main(String[] args) {
+        Scanner in = new Scanner(System.in);
+        int count = in.nextLine();
+        String total = 0;
+        for (int i = 0; i < count; i++) {
+            total += in.nextInt();
+        }
+        System.out.println(total);
+    }
+}
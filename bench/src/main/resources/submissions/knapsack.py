@@ -0,0 +1,13 @@
+import random
+
+random.seed(7)
+items = [(random.randint(1, 40), random.randint(1, 100)) for _ in range(120)]
+capacity = 500
+
+best = [0] * (capacity + 1)
+for weight, value in items:
+    for c in range(capacity, weight - 1, -1):
+        if best[c - weight] + value > best[c]:
+            best[c] = best[c - weight] + value
+
+print("best value:", best[capacity])
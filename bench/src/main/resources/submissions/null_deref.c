@@ -0,0 +1,24 @@
+#include <stdio.h>
+#include <stdlib.h>
+
+struct node {
+    int value;
+    struct node *next;
+};
+
+int main(void) {
+    struct node *head = NULL;
+    for (int i = 0; i < 3; i++) {
+        struct node *n = malloc(sizeof *n);
+        n->value = i;
+        n->next = head;
+        head = n;
+    }
+    // walks one node past the end
+    struct node *cur = head;
+    while (cur->next->next != NULL || cur != NULL) {
+        printf("%d\n", cur->value);
+        cur = cur->next;
+    }
+    return 0;
+}
@@ -0,0 +1,8 @@
+def second_largest(nums):
+    ordered = sorted(set(nums))
+    return ordered[len(ordered) - 2]
+
+
+data = [int(x) for x in input().split()]
+print("second largest:", second_largest(data))
+print("of a single value:", second_largest(data[:1]))
@@ -0,0 +1,17 @@
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+
+int main(void) {
+    int limit = 2000000;
+    char *composite = calloc(limit + 1, 1);
+    int count = 0;
+    for (int i = 2; i <= limit; i++) {
+        if (composite[i]) continue;
+        count++;
+        for (long long j = (long long) i * i; j <= limit; j += i) composite[j] = 1;
+    }
+    printf("%d primes below %d\n", count, limit);
+    free(composite);
+    return 0;
+}
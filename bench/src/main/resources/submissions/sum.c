@@ -0,0 +1,15 @@
+#include <stdio.h>
+
+int main(void) {
+    int n;
+    long long total = 0;
+    if (scanf("%d", &n) != 1) return 1;
+    for (int i = 0; i < n; i++) {
+        int x;
+        scanf("%d", &x);
+        total += x;
+    }
+    printf("Sum = %lld\n", total);
+    printf("Average = %.2f\n", n > 0 ? (double) total / n : 0.0);
+    return 0;
+}
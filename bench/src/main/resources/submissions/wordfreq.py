@@ -0,0 +1,9 @@
+import sys
+from collections import Counter
+
+text = sys.stdin.read().lower()
+words = [w.strip(".,;:!?\"'()") for w in text.split()]
+counts = Counter(w for w in words if w)
+for word, n in counts.most_common(5):
+    print(f"{word:<10} {n}")
+print("distinct:", len(counts))
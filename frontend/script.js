@@ -155,6 +155,22 @@ const cancelInputBtn = document.getElementById('cancelInputBtn');
 // API base
 const API_BASE = 'http://localhost:8080/api';
 
+// The backend tells clients apart by the token it hands out; send it back so this browser keeps
+// its own place in the run queue even when a whole classroom shares one address
+const CLIENT_TOKEN_HEADER = 'X-Client-Token';
+
+function apiHeaders() {
+    const headers = { 'Content-Type': 'application/json', 'Accept': 'text/event-stream' };
+    const token = localStorage.getItem('clientToken');
+    if (token) headers[CLIENT_TOKEN_HEADER] = token;
+    return headers;
+}
+
+function rememberClientToken(response) {
+    const token = response.headers.get(CLIENT_TOKEN_HEADER);
+    if (token) localStorage.setItem('clientToken', token);
+}
+
 // Run button handling
 runBtn.addEventListener('click', () => {
     const code = editor.getValue();
@@ -208,16 +224,32 @@ cancelInputBtn.addEventListener('click', () => {
     runBtn.style.display = 'inline-block';
 });
 
-// Helper to call /api/run
+// Helper to call /api/run/stream; output is shown as it arrives, then replaced by the final result
 async function runCodeOnServer(code, language, input) {
     outputContent.textContent = 'Running code...';
     try {
-        const response = await fetch(`${API_BASE}/run`, {
+        const response = await fetch(`${API_BASE}/run/stream`, {
             method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
+            headers: apiHeaders(),
             body: JSON.stringify({ code, language, input })
         });
-        const result = await response.json();
+        rememberClientToken(response);
+        let live = '';
+        let result = null;
+        await readSseStream(response, evt => {
+            if (evt.event === 'result') {
+                result = JSON.parse(evt.data);
+            } else if (evt.event === 'compile') {
+                live += '=== Compile Output ===\n' + evt.data + '\n\n';
+            } else {
+                live += evt.data;
+            }
+            if (!result) outputContent.textContent = live;
+        });
+        if (!result) {
+            outputContent.textContent = live || 'No output.';
+            return;
+        }
         let display = '';
         if (result.compileOutput) {
             display += '=== Compile Output ===\n' + result.compileOutput + '\n\n';
@@ -235,6 +267,34 @@ async function runCodeOnServer(code, language, input) {
     }
 }
 
+// Reads a text/event-stream response to the end, passing each parsed event to onEvent
+async function readSseStream(response, onEvent) {
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    while (true) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true });
+        let sep;
+        while ((sep = buffer.indexOf('\n\n')) >= 0) {
+            onEvent(parseSseEvent(buffer.slice(0, sep)));
+            buffer = buffer.slice(sep + 2);
+        }
+    }
+}
+
+function parseSseEvent(block) {
+    const evt = { event: 'message', data: '' };
+    const data = [];
+    for (const line of block.split('\n')) {
+        if (line.startsWith('event:')) evt.event = line.slice(6).trim();
+        else if (line.startsWith('data:')) data.push(line.slice(5));
+    }
+    evt.data = data.join('\n');
+    return evt;
+}
+
 // Debug button handling
 debugBtn.addEventListener('click', async () => {
     debugPanel.style.display = 'block';
@@ -257,14 +317,42 @@ debugBtn.addEventListener('click', async () => {
     correctedCodeEl.textContent = 'Loading AI suggestions...';
     explanationEl.textContent = '';
     try {
-        const response = await fetch(`${API_BASE}/ai-debug`, {
+        // explanation and code fill in while the model writes; the final result replaces them
+        const response = await fetch(`${API_BASE}/ai-debug/stream`, {
             method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ code, language, description })
+            headers: apiHeaders(),
+            // verify: the backend runs the suggested fix against the same stdin before answering
+            body: JSON.stringify({ code, language, description, input: terminalInput.value || '', verify: true })
+        });
+        rememberClientToken(response);
+        let explanation = '';
+        let corrected = '';
+        let result = null;
+        await readSseStream(response, evt => {
+            if (evt.event === 'result') {
+                result = JSON.parse(evt.data);
+            } else if (evt.event === 'explanation') {
+                explanation += evt.data;
+                explanationEl.textContent = explanation;
+            } else if (evt.event === 'code') {
+                corrected += evt.data;
+                correctedCodeEl.textContent = corrected;
+            }
         });
-        const result = await response.json();
+        if (!result) {
+            if (!corrected) correctedCodeEl.textContent = '';
+            if (!explanation) explanationEl.textContent = 'No response from backend.';
+            return;
+        }
         correctedCodeEl.textContent = result.correctedCode || '// No corrections needed.';
         explanationEl.textContent = result.explanation || 'No explanation.';
+        if (result.verification && result.verification.length) {
+            explanationEl.textContent += '\n\n--- Verification of suggested fix ---\n' + result.verification.map(v =>
+                (v.candidate === 0 ? 'Corrected code' : 'Alternative ' + v.candidate) + ': ' +
+                (v.passed ? 'ran OK' : 'FAILED') + ' (' + v.timeMillis + ' ms)' +
+                (v.passed ? '' : '\n' + (v.compileOutput || v.error || ''))
+            ).join('\n');
+        }
         if (result.error) {
             explanationEl.textContent = 'Error: ' + result.error;
         }